@@ -0,0 +1,10 @@
+package com.postgresql.MasChat.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Runs the @Scheduled jobs (presence sweeps and flushes, MassCoin request expiry)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
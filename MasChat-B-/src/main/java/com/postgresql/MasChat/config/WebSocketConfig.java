@@ -1,22 +1,142 @@
-// WebSocketConfig: WebSocketEventListener is required for user online/offline status
 package com.postgresql.MasChat.config;
 
+import com.postgresql.MasChat.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.*;
 
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    // Clients send a heartbeat at least this often; PresenceService expires sessions that stop
+    private static final long HEARTBEAT_MS = 10000;
+
+    public static final String BROKER_RELAY = "relay";
+
+    private static final String USER_PREFIX = "/user/";
+
+    // /user/{id}/queue/messages as clients subscribe to it and convertAndSendToUser addresses it.
+    // Sessions carry no principal, so Spring's user destination resolver cannot route these;
+    // both sides are mapped onto /topic/user.{id}.queue.messages instead, which the simple
+    // broker serves locally and the relay shares between nodes. Numeric ids and word-only
+    // segments keep broker wildcards (* and #) out of the topic.
+    private static final Pattern USER_DESTINATION = Pattern.compile("/user/(\\d+)((?:/[\\w-]+)+)");
+
+    @Autowired
+    private PresenceService presenceService;
+
+    // "simple" keeps subscriptions in this JVM; "relay" forwards them to an external STOMP
+    // broker (RabbitMQ with the STOMP plugin, ActiveMQ) so several nodes can share them
+    @Value("${app.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${app.websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        if (BROKER_RELAY.equalsIgnoreCase(brokerMode)) {
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                .setSystemHeartbeatSendInterval(HEARTBEAT_MS)
+                .setSystemHeartbeatReceiveInterval(HEARTBEAT_MS);
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] { HEARTBEAT_MS, HEARTBEAT_MS })
+                .setTaskScheduler(heartbeatScheduler());
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        config.configureBrokerChannel().interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                String topic = userTopic(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                if (topic == null) return message;
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                accessor.setDestination(topic);
+                return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+            }
+        });
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws-chat").setAllowedOriginPatterns("*").withSockJS();
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Every inbound frame, heartbeats included, keeps the session's presence alive
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                presenceService.touch(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.SUBSCRIBE) {
+                    return message;
+                }
+                String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+                Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+                String topic = userTopic(destination);
+                if (topic == null && user != null && destination != null && destination.startsWith(USER_PREFIX)) {
+                    // /user/queue/... from a session with a principal
+                    topic = userTopic(USER_PREFIX + user.getName() + destination.substring(USER_PREFIX.length() - 1));
+                }
+                if (topic == null) return message;
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                accessor.setDestination(topic);
+                return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+            }
+        });
+    }
+
+    /** The broker topic for a /user/{id}/... destination, or null for any other destination. */
+    static String userTopic(String destination) {
+        if (destination == null) return null;
+        Matcher matcher = USER_DESTINATION.matcher(destination);
+        return matcher.matches() ? "/topic/user." + matcher.group(1) + matcher.group(2).replace('/', '.') : null;
+    }
+
+    private ThreadPoolTaskScheduler heartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        scheduler.initialize();
+        return scheduler;
+    }
 }
@@ -1,7 +1,6 @@
 package com.postgresql.MasChat.config;
 
-import com.postgresql.MasChat.model.User;
-import com.postgresql.MasChat.repository.UserRepository;
+import com.postgresql.MasChat.service.PresenceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,49 +9,51 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
 @Component
 public class WebSocketEventListener {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketEventListener.class);
 
+    private static final String USER_ID_HEADER = "userId";
+    private static final String USER_DESTINATION_PREFIX = "/user/";
+
     @Autowired
-    private UserRepository userRepository;
+    private PresenceService presenceService;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String userId = headerAccessor.getUser() != null ? headerAccessor.getUser().getName() : null;
-        if (userId != null) {
-            try {
-                Long id = Long.valueOf(userId);
-                User user = userRepository.findById(id).orElse(null);
-                if (user != null) {
-                    user.setOnline(true);
-                    userRepository.save(user);
-                    logger.info("User {} is now online", userId);
-                }
-            } catch (Exception e) {
-                logger.warn("Could not set user online status for userId {}: {}", userId, e.getMessage());
+        String userId = headerAccessor.getUser() != null
+            ? headerAccessor.getUser().getName()
+            : headerAccessor.getFirstNativeHeader(USER_ID_HEADER);
+        bind(headerAccessor.getSessionId(), userId);
+    }
+
+    // Clients without an authenticated principal identify themselves by subscribing to /user/{id}/...
+    @EventListener
+    public void handleWebSocketSubscribeListener(SessionSubscribeEvent event) {
+        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = headerAccessor.getDestination();
+        if (destination != null && destination.startsWith(USER_DESTINATION_PREFIX)) {
+            int end = destination.indexOf('/', USER_DESTINATION_PREFIX.length());
+            if (end > 0) {
+                bind(headerAccessor.getSessionId(), destination.substring(USER_DESTINATION_PREFIX.length(), end));
             }
         }
     }
 
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
-        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String userId = headerAccessor.getUser() != null ? headerAccessor.getUser().getName() : null;
-        if (userId != null) {
-            try {
-                Long id = Long.valueOf(userId);
-                User user = userRepository.findById(id).orElse(null);
-                if (user != null) {
-                    user.setOnline(false);
-                    userRepository.save(user);
-                    logger.info("User {} is now offline", userId);
-                }
-            } catch (Exception e) {
-                logger.warn("Could not set user offline status for userId {}: {}", userId, e.getMessage());
-            }
+        presenceService.disconnect(event.getSessionId());
+    }
+
+    private void bind(String sessionId, String userId) {
+        if (sessionId == null || userId == null) return;
+        try {
+            presenceService.connect(sessionId, Long.valueOf(userId));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring non-numeric user id {} on session {}", userId, sessionId);
         }
     }
-} 
\ No newline at end of file
+}
@@ -1,8 +1,9 @@
 package com.postgresql.MasChat.controller;
 
 import com.postgresql.MasChat.dto.ChatMessage;
-import com.postgresql.MasChat.model.Message;
+import com.postgresql.MasChat.dto.MessageDTO;
 import com.postgresql.MasChat.service.MessageService;
+import com.postgresql.MasChat.service.MessageWriteBehind;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +24,9 @@ public class ChatController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private MessageWriteBehind messageWriteBehind;
+
     public ChatController(SimpMessagingTemplate messagingTemplate) {
         this.messagingTemplate = messagingTemplate;
     }
@@ -30,25 +34,26 @@ public class ChatController {
     @MessageMapping("/chat.send")
     public void sendMessage(@Payload ChatMessage chatMessage) {
         try {
-            // Save to DB using MessageService
-            Message savedMessage = messageService.sendMessage(
-                Long.valueOf(chatMessage.getSenderId()),
-                Long.valueOf(chatMessage.getRecipientId()),
-                chatMessage.getContent()
-            );
-            
-            logger.info("Message saved: {} -> {}: {}", chatMessage.getSenderId(), chatMessage.getRecipientId(), chatMessage.getContent());
+            Long senderId = Long.valueOf(chatMessage.getSenderId());
+            Long recipientId = Long.valueOf(chatMessage.getRecipientId());
+
+            // Write-behind hands back the message with its final id before it reaches the database
+            MessageDTO payload = messageWriteBehind.isEnabled()
+                ? messageWriteBehind.submit(senderId, recipientId, chatMessage.getContent())
+                : MessageDTO.fromEntity(messageService.sendMessage(senderId, recipientId, chatMessage.getContent()));
+
+            logger.debug("Message accepted: {} -> {}", senderId, recipientId);
             
             // Send to users
             messagingTemplate.convertAndSendToUser(
                 chatMessage.getRecipientId(),
                 "/queue/messages",
-                savedMessage
+                payload
             );
             messagingTemplate.convertAndSendToUser(
                 chatMessage.getSenderId(),
                 "/queue/messages",
-                savedMessage
+                payload
             );
         } catch (Exception e) {
             logger.error("Failed to save or send message: {}", chatMessage, e);
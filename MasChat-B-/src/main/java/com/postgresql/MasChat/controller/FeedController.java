@@ -0,0 +1,31 @@
+package com.postgresql.MasChat.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.postgresql.MasChat.dto.FeedPageDTO;
+import com.postgresql.MasChat.service.FeedService;
+
+@RestController
+@RequestMapping("/api/feed")
+public class FeedController {
+    @Autowired
+    private FeedService feedService;
+
+    @GetMapping
+    public ResponseEntity<FeedPageDTO> getFeed(
+        @RequestParam Long userId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(feedService.getFeed(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.postgresql.MasChat.model.User;
 import com.postgresql.MasChat.model.FriendRequest;
 import com.postgresql.MasChat.service.FriendService;
 import com.postgresql.MasChat.dto.FriendRequestDTO;
+import com.postgresql.MasChat.dto.PresenceDTO;
 
 import java.util.List;
 import java.util.Map;
@@ -23,6 +24,11 @@ public class FriendController {
         return ResponseEntity.ok(friends);
     }
 
+    @GetMapping("/presence/{userId}")
+    public ResponseEntity<List<PresenceDTO>> getFriendPresence(@PathVariable Long userId) {
+        return ResponseEntity.ok(friendService.getFriendPresence(userId));
+    }
+
     @GetMapping("/suggestions/{userId}")
     public ResponseEntity<List<User>> getFriendSuggestions(@PathVariable Long userId) {
         List<User> suggestions = friendService.getSuggestions(userId);
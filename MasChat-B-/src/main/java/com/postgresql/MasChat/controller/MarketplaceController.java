@@ -1,6 +1,8 @@
 package com.postgresql.MasChat.controller;
 
 import com.postgresql.MasChat.config.AppConfig;
+import com.postgresql.MasChat.dto.MediaUploadDTO;
+import com.postgresql.MasChat.exception.MediaTooLargeException;
 import com.postgresql.MasChat.model.MarketplaceCategory;
 import com.postgresql.MasChat.model.MarketplaceItem;
 import com.postgresql.MasChat.model.MarketplaceOrder;
@@ -8,16 +10,15 @@ import com.postgresql.MasChat.model.User;
 import com.postgresql.MasChat.repository.MarketplaceItemRepository;
 import com.postgresql.MasChat.repository.UserRepository;
 import com.postgresql.MasChat.service.MarketplaceService;
+import com.postgresql.MasChat.service.MediaService;
+import com.postgresql.MasChat.service.MediaStorage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.io.InputStream;
 
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,9 @@ public class MarketplaceController {
     @Autowired
     private AppConfig appConfig;
 
+    @Autowired
+    private MediaService mediaService;
+
     // --- Items ---
     @GetMapping("/items")
     public ResponseEntity<List<MarketplaceItem>> getAllItems() {
@@ -112,22 +116,20 @@ public class MarketplaceController {
     @PostMapping("/upload-image")
     public ResponseEntity<String> uploadImage(@RequestParam("file") MultipartFile file) {
         try {
-            String imageUrl = saveImage(file, "marketplace");
+            String imageUrl = saveImage(file);
             return ResponseEntity.ok(imageUrl);
+        } catch (MediaTooLargeException e) {
+            return ResponseEntity.status(413).body(e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.status(500).body("Failed to upload image");
         }
     }
 
-    private String saveImage(MultipartFile file, String type) throws IOException {
-        String uploadDir = "uploads/";
-        Files.createDirectories(Paths.get(uploadDir));
-        String originalFileName = file.getOriginalFilename();
-        String fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-        String fileName = type + "_" + UUID.randomUUID() + fileExtension;
-        Path filePath = Paths.get(uploadDir + fileName);
-        Files.write(filePath, file.getBytes());
-        return appConfig.getUploadUrl(fileName);
+    private String saveImage(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            MediaUploadDTO media = mediaService.upload(in, MediaStorage.extensionOf(file.getOriginalFilename()));
+            return media.getUrl();
+        }
     }
 
     @PutMapping("/items/{id}")
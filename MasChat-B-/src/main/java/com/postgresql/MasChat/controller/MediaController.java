@@ -0,0 +1,68 @@
+package com.postgresql.MasChat.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.postgresql.MasChat.dto.MediaFileStatsDTO;
+import com.postgresql.MasChat.dto.MediaUploadDTO;
+import com.postgresql.MasChat.exception.MediaTooLargeException;
+import com.postgresql.MasChat.service.ImageVariantService;
+import com.postgresql.MasChat.service.MediaAccessStats;
+import com.postgresql.MasChat.service.MediaService;
+import com.postgresql.MasChat.service.MediaStorage;
+
+@RestController
+@RequestMapping("/api/media")
+public class MediaController {
+    @Autowired
+    private MediaService mediaService;
+    @Autowired
+    private MediaAccessStats mediaAccessStats;
+    @Autowired
+    private ImageVariantService imageVariants;
+
+    @PostMapping
+    public ResponseEntity<MediaUploadDTO> upload(@RequestParam("file") MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(mediaService.upload(in, MediaStorage.extensionOf(file.getOriginalFilename())));
+        } catch (MediaTooLargeException e) {
+            return ResponseEntity.status(413).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    // Most-served files by bytes sent, from UploadsController
+    @GetMapping("/stats")
+    public List<MediaFileStatsDTO> topFiles(@RequestParam(defaultValue = "20") int limit) {
+        return mediaAccessStats.top(Math.min(limit, 200));
+    }
+
+    // Resized copies of an image URL, width -> url; empty until they are generated
+    @GetMapping("/variants")
+    public Map<String, String> variants(@RequestParam String url) {
+        return imageVariants.variantsOf(url);
+    }
+
+    // Clients that hash before uploading can reuse stored content without sending it
+    @GetMapping("/{sha256}")
+    public ResponseEntity<MediaUploadDTO> find(@PathVariable String sha256) {
+        try {
+            return mediaService.find(sha256).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.postgresql.MasChat.controller;
 
 import com.postgresql.MasChat.dto.MemoryDTO;
+import com.postgresql.MasChat.dto.MemoryDigestProgressDTO;
 import com.postgresql.MasChat.dto.MemoryStatsDTO;
 import com.postgresql.MasChat.service.MemoriesService;
+import com.postgresql.MasChat.service.MemoryDigestService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -18,14 +20,19 @@ public class MemoriesController {
     @Autowired
     private MemoriesService memoriesService;
 
+    @Autowired
+    private MemoryDigestService memoryDigestService;
+
     @GetMapping
     public ResponseEntity<List<MemoryDTO>> getMemories(
             Authentication authentication,
             @RequestParam(defaultValue = "all") String filter,
-            @RequestParam(defaultValue = "2024") int year) {
+            @RequestParam(defaultValue = "2024") int year,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
         try {
             Long userId = Long.valueOf(authentication.getName());
-            List<MemoryDTO> memories = memoriesService.getMemories(userId, filter, year);
+            List<MemoryDTO> memories = memoriesService.getMemories(userId, filter, year, page, size);
             return ResponseEntity.ok(memories);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -44,23 +51,35 @@ public class MemoriesController {
     }
 
     @GetMapping("/on-this-day")
-    public ResponseEntity<List<MemoryDTO>> getOnThisDay(Authentication authentication) {
+    public ResponseEntity<List<MemoryDTO>> getOnThisDay(
+            Authentication authentication,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
         try {
             Long userId = Long.valueOf(authentication.getName());
-            List<MemoryDTO> memories = memoriesService.getOnThisDay(userId);
+            List<MemoryDTO> memories = memoryDigestService.getOnThisDay(userId, page, size);
             return ResponseEntity.ok(memories);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    // The latest nightly digest run; 204 before the first
+    @GetMapping("/digest/progress")
+    public ResponseEntity<MemoryDigestProgressDTO> getDigestProgress() {
+        MemoryDigestProgressDTO progress = memoryDigestService.progress();
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/year/{year}")
     public ResponseEntity<List<MemoryDTO>> getMemoriesByYear(
             Authentication authentication,
-            @PathVariable int year) {
+            @PathVariable int year,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
         try {
             Long userId = Long.valueOf(authentication.getName());
-            List<MemoryDTO> memories = memoriesService.getMemoriesByYear(userId, year);
+            List<MemoryDTO> memories = memoriesService.getMemoriesByYear(userId, year, page, size);
             return ResponseEntity.ok(memories);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -71,10 +90,12 @@ public class MemoriesController {
     public ResponseEntity<List<MemoryDTO>> getMemoriesByMonth(
             Authentication authentication,
             @PathVariable int year,
-            @PathVariable int month) {
+            @PathVariable int month,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
         try {
             Long userId = Long.valueOf(authentication.getName());
-            List<MemoryDTO> memories = memoriesService.getMemoriesByMonth(userId, year, month);
+            List<MemoryDTO> memories = memoriesService.getMemoriesByMonth(userId, year, month, page, size);
             return ResponseEntity.ok(memories);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
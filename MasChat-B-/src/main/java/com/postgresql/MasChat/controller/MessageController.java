@@ -5,6 +5,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.postgresql.MasChat.model.Message;
 import com.postgresql.MasChat.service.MessageService;
+import com.postgresql.MasChat.dto.MessageDTO;
+import com.postgresql.MasChat.dto.MessagePageDTO;
 import com.postgresql.MasChat.dto.RecentChatDTO;
 
 import java.util.List;
@@ -18,17 +20,17 @@ public class MessageController {
     private MessageService messageService;
 
     @PostMapping("/send")
-    public ResponseEntity<Message> sendMessage(
+    public ResponseEntity<MessageDTO> sendMessage(
         @RequestParam Long senderId,
         @RequestParam Long recipientId,
         @RequestParam String content
     ) {
         Message message = messageService.sendMessage(senderId, recipientId, content);
-        return ResponseEntity.ok(message);
+        return ResponseEntity.ok(MessageDTO.fromEntity(message));
     }
 
     @PostMapping("/send-image")
-    public ResponseEntity<Message> sendImageMessage(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<MessageDTO> sendImageMessage(@RequestBody Map<String, Object> request) {
         try {
             System.out.println("Received send-image request: " + request);
             
@@ -46,7 +48,7 @@ public class MessageController {
             System.out.println("Parsed values - senderId: " + senderId + ", recipientId: " + recipientId + ", imageUrl: " + imageUrl + ", content: " + content);
             
             Message message = messageService.sendImageMessage(senderId, recipientId, imageUrl, content);
-            return ResponseEntity.ok(message);
+            return ResponseEntity.ok(MessageDTO.fromEntity(message));
         } catch (Exception e) {
             System.err.println("Error in sendImageMessage: " + e.getMessage());
             e.printStackTrace();
@@ -63,10 +65,34 @@ public class MessageController {
         return ResponseEntity.ok(conversation);
     }
 
+    @GetMapping("/conversation/page")
+    public ResponseEntity<MessagePageDTO> getConversationPage(
+        @RequestParam Long userId1,
+        @RequestParam Long userId2,
+        @RequestParam(required = false) String before,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Long aroundMessageId,
+        @RequestParam(defaultValue = "50") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(messageService.getConversationPage(userId1, userId2, before, after, aroundMessageId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/recent/{userId}")
-    public ResponseEntity<List<RecentChatDTO>> getRecentChats(@PathVariable Long userId) {
-        List<RecentChatDTO> recentChats = messageService.getRecentChats(userId);
-        return ResponseEntity.ok(recentChats);
+    public ResponseEntity<List<RecentChatDTO>> getRecentChats(
+        @PathVariable Long userId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        try {
+            List<RecentChatDTO> recentChats = messageService.getRecentChats(userId, cursor, limit);
+            return ResponseEntity.ok(recentChats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PostMapping("/mark-read")
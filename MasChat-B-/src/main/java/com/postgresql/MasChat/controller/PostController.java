@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -19,45 +20,81 @@ import com.postgresql.MasChat.model.Post;
 import com.postgresql.MasChat.dto.PostRequestDto;
 import com.postgresql.MasChat.dto.PostDTO;
 import com.postgresql.MasChat.dto.CommentDTO;
+import com.postgresql.MasChat.dto.CommentPageDTO;
+import com.postgresql.MasChat.dto.LikeResultDTO;
+import com.postgresql.MasChat.service.EngagementService;
+import com.postgresql.MasChat.service.CommentThreadService;
+import com.postgresql.MasChat.service.PostDTOAssembler;
 import com.postgresql.MasChat.service.PostService;
+import com.postgresql.MasChat.service.ViewTracker;
 
 @RestController
 @RequestMapping("/api/posts")
 public class PostController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private PostService postService;
+    @Autowired
+    private PostDTOAssembler postDTOAssembler;
+    @Autowired
+    private CommentThreadService commentThreadService;
+    @Autowired
+    private EngagementService engagementService;
+    @Autowired
+    private ViewTracker viewTracker;
 
     @PostMapping
     public ResponseEntity<PostDTO> createPost(@RequestBody PostRequestDto postDto, @RequestParam Long userId) {
         Post post = postService.createPost(postDto, userId);
-        return ResponseEntity.status(201).body(PostDTO.fromEntity(post));
+        return ResponseEntity.status(201).body(postDTOAssembler.toDto(post, userId));
     }
 
     @GetMapping
-    public ResponseEntity<List<PostDTO>> getAllPosts() {
-        return ResponseEntity.ok(postService.getAllPosts().stream().map(PostDTO::fromEntity).toList());
+    public ResponseEntity<List<PostDTO>> getAllPosts(@RequestParam(required = false) Long currentUserId,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(postDTOAssembler.toDtos(postService.getRecentPosts(page, size), currentUserId));
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PostDTO>> getPostsByUser(@PathVariable Long userId) {
-        return ResponseEntity.ok(postService.getPostsByUser(userId).stream().map(PostDTO::fromEntity).toList());
+    public ResponseEntity<List<PostDTO>> getPostsByUser(@PathVariable Long userId, @RequestParam(required = false) Long currentUserId) {
+        return ResponseEntity.ok(postDTOAssembler.toDtos(postService.getPostsByUser(userId), currentUserId));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<PostDTO>> searchPosts(@RequestParam String query) {
-        return ResponseEntity.ok(postService.searchPosts(query).stream().map(PostDTO::fromEntity).toList());
+    public ResponseEntity<List<PostDTO>> searchPosts(@RequestParam String query, @RequestParam(required = false) Long currentUserId) {
+        return ResponseEntity.ok(postDTOAssembler.toDtos(postService.searchPosts(query), currentUserId));
     }
 
+    // Like/unlike responses are built for the acting user, so likedBy holds at most their id
     @PostMapping("/{postId}/like")
     public ResponseEntity<PostDTO> likePost(@PathVariable Long postId, @RequestParam Long userId) {
-        Post post = postService.likePost(postId, userId);
-        return ResponseEntity.ok(PostDTO.fromEntity(post));
+        return ResponseEntity.ok(postDTOAssembler.toDto(postService.likePost(postId, userId), userId));
     }
 
     @PostMapping("/{postId}/unlike")
     public ResponseEntity<PostDTO> unlikePost(@PathVariable Long postId, @RequestParam Long userId) {
-        Post post = postService.unlikePost(postId, userId);
-        return ResponseEntity.ok(PostDTO.fromEntity(post));
+        return ResponseEntity.ok(postDTOAssembler.toDto(postService.unlikePost(postId, userId), userId));
+    }
+
+    // Idempotent like state; returns the new count without the liker list
+    @PutMapping("/{postId}/likes")
+    public ResponseEntity<LikeResultDTO> putLike(@PathVariable Long postId, @RequestParam Long userId) {
+        return ResponseEntity.ok(engagementService.like(EngagementService.Target.POST, postId, userId));
+    }
+
+    @DeleteMapping("/{postId}/likes")
+    public ResponseEntity<LikeResultDTO> deleteLike(@PathVariable Long postId, @RequestParam Long userId) {
+        return ResponseEntity.ok(engagementService.unlike(EngagementService.Target.POST, postId, userId));
+    }
+
+    // Posts are read in lists, so clients report a view when a post is actually shown
+    @PostMapping("/{postId}/views")
+    public ResponseEntity<Void> recordView(@PathVariable Long postId, @RequestParam(required = false) Long currentUserId) {
+        if (!postService.exists(postId)) return ResponseEntity.notFound().build();
+        viewTracker.record(ViewTracker.Subject.POST, postId, currentUserId);
+        return ResponseEntity.accepted().build();
     }
 
     @PostMapping("/{postId}/comment")
@@ -94,15 +131,22 @@ public class PostController {
         return ResponseEntity.ok().build();
     }
 
+    // One page of comments; when more remain, the X-Next-Cursor header holds the cursor for the next request
     @GetMapping("/{postId}/comments")
-    public ResponseEntity<List<CommentDTO>> getComments(@PathVariable Long postId, @RequestParam(required = false) String currentUserId) {
+    public ResponseEntity<List<CommentDTO>> getComments(
+        @PathVariable Long postId,
+        @RequestParam(required = false) String currentUserId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
         try {
             Long userId = currentUserId != null ? Long.valueOf(currentUserId) : null;
-            List<CommentDTO> comments = postService.getComments(postId, userId);
-            return ResponseEntity.ok(comments);
+            return pageResponse(postService.getComments(postId, userId, cursor, limit));
         } catch (NumberFormatException e) {
             System.err.println("Invalid currentUserId format: " + currentUserId);
             return ResponseEntity.badRequest().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("Error getting comments for post " + postId + ": " + e.getMessage());
             e.printStackTrace();
@@ -110,6 +154,22 @@ public class PostController {
         }
     }
 
+    // Newest top-level comments first, each embedding its first replyLimit replies
+    @GetMapping("/{postId}/comments/page")
+    public ResponseEntity<CommentPageDTO> getCommentPage(
+        @PathVariable Long postId,
+        @RequestParam(required = false) Long currentUserId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit,
+        @RequestParam(defaultValue = "3") int replyLimit
+    ) {
+        try {
+            return ResponseEntity.ok(commentThreadService.getCommentPage(postId, currentUserId, cursor, limit, replyLimit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{postId}/comments/search")
     public ResponseEntity<List<CommentDTO>> searchComments(@PathVariable Long postId, @RequestParam String searchTerm, @RequestParam(required = false) String currentUserId) {
         try {
@@ -126,19 +186,49 @@ public class PostController {
         }
     }
 
+    // One page of replies, oldest first, with the next cursor in X-Next-Cursor as for comments
     @GetMapping("/comment/{commentId}/replies")
-    public ResponseEntity<List<CommentDTO>> getCommentReplies(@PathVariable Long commentId, @RequestParam(required = false) String currentUserId) {
+    public ResponseEntity<List<CommentDTO>> getCommentReplies(
+        @PathVariable Long commentId,
+        @RequestParam(required = false) String currentUserId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
         try {
             Long userId = currentUserId != null ? Long.valueOf(currentUserId) : null;
-            List<CommentDTO> replies = postService.getCommentReplies(commentId, userId);
-            return ResponseEntity.ok(replies);
+            return pageResponse(postService.getCommentReplies(commentId, userId, cursor, limit));
         } catch (NumberFormatException e) {
             System.err.println("Invalid currentUserId format: " + currentUserId);
             return ResponseEntity.badRequest().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("Error getting replies for comment " + commentId + ": " + e.getMessage());
             e.printStackTrace();
             return ResponseEntity.status(500).build();
         }
     }
+
+    // Oldest replies first; start from a comment's nextRepliesCursor to skip the embedded ones
+    @GetMapping("/comment/{commentId}/replies/page")
+    public ResponseEntity<CommentPageDTO> getReplyPage(
+        @PathVariable Long commentId,
+        @RequestParam(required = false) Long currentUserId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(commentThreadService.getReplyPage(commentId, currentUserId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static ResponseEntity<List<CommentDTO>> pageResponse(CommentPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getComments());
+    }
 }
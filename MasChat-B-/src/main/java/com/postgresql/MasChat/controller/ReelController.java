@@ -3,11 +3,23 @@ package com.postgresql.MasChat.controller;
 
 import com.postgresql.MasChat.dto.ReelDTO;
 import com.postgresql.MasChat.dto.ReelCommentDTO;
+import com.postgresql.MasChat.dto.ReelPageDTO;
+import com.postgresql.MasChat.dto.LikeResultDTO;
+import com.postgresql.MasChat.dto.UploadSessionDTO;
+import com.postgresql.MasChat.exception.ResourceNotFoundException;
+import com.postgresql.MasChat.service.EngagementCounters;
+import com.postgresql.MasChat.service.EngagementService;
+import com.postgresql.MasChat.service.ImageVariantService;
+import com.postgresql.MasChat.service.ReelFeedService;
+import com.postgresql.MasChat.service.ResumableUploadService;
+import com.postgresql.MasChat.service.ViewTracker;
 import com.postgresql.MasChat.model.Reel;
 import com.postgresql.MasChat.model.ReelComment;
 import com.postgresql.MasChat.service.ReelService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import com.postgresql.MasChat.repository.ReelRepository;
@@ -20,49 +32,109 @@ import java.util.HashMap;
 public class ReelController {
 
     @GetMapping("/{reelId}")
-    public ReelDTO getReelById(@PathVariable Long reelId) {
+    public ReelDTO getReelById(@PathVariable Long reelId, @RequestParam(required = false) Long currentUserId) {
         Reel reel = reelService.getReelById(reelId);
-        return ReelDTO.fromEntity(reel);
+        viewTracker.record(ViewTracker.Subject.REEL, reelId, currentUserId);
+        reelFeedService.markWatched(currentUserId, reelId);
+        return toDto(reel);
     }
     @Autowired
     private ReelService reelService;
+    @Autowired
+    private EngagementService engagementService;
+    @Autowired
+    private EngagementCounters engagementCounters;
+    @Autowired
+    private ViewTracker viewTracker;
+    @Autowired
+    private ReelFeedService reelFeedService;
+    @Autowired
+    private ImageVariantService imageVariants;
+    @Autowired
+    private ResumableUploadService resumableUploads;
 
+    // Share count includes increments not yet flushed to the reels table
+    private ReelDTO toDto(Reel reel) {
+        ReelDTO dto = ReelDTO.fromEntity(reel);
+        dto.setShareCount((int) engagementCounters.read(EngagementService.Target.REEL, reel.getId(),
+            EngagementCounters.Metric.SHARES, reel.getShareCount()));
+        Map<String, Map<String, String>> variants = imageVariants.variantsFor(
+            Arrays.asList(dto.getMediaUrl(), dto.getProfilePicture()));
+        dto.setMediaVariants(variants.getOrDefault(dto.getMediaUrl(), Map.of()));
+        dto.setProfilePictureVariants(variants.getOrDefault(dto.getProfilePicture(), Map.of()));
+        return dto;
+    }
+
+    // First page of the ranked feed, for clients that do not page yet
     @GetMapping
-    public List<ReelDTO> getRecentReels() {
-        System.out.println("Received request for recent reels");
-        List<Reel> reels = reelService.getRecentReels();
-        List<ReelDTO> dtos = reels.stream().map(ReelDTO::fromEntity).collect(Collectors.toList());
-        System.out.println("Returning " + dtos.size() + " reels");
-        return dtos;
+    public List<ReelDTO> getRecentReels(@RequestParam(required = false) Long userId) {
+        return reelService.getFeed(userId, null, 20).getReels();
+    }
+
+    @GetMapping("/feed")
+    public ResponseEntity<ReelPageDTO> getFeed(
+        @RequestParam(required = false) Long userId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(reelService.getFeed(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{reelId}/views")
+    public void recordView(@PathVariable Long reelId, @RequestParam(required = false) Long currentUserId) {
+        viewTracker.record(ViewTracker.Subject.REEL, reelId, currentUserId);
+        reelFeedService.markWatched(currentUserId, reelId);
     }
 
     @GetMapping("/search")
     public List<ReelDTO> searchReels(@RequestParam String query) {
-        return reelService.searchReels(query).stream().map(ReelDTO::fromEntity).collect(Collectors.toList());
+        return reelService.searchReels(query).stream().map(this::toDto).collect(Collectors.toList());
     }
 
     @PostMapping("/create")
-    public ReelDTO createReel(@RequestBody ReelCreateRequest req) {
+    public ReelDTO createReel(@RequestBody ReelCreateRequest req) throws IOException {
         System.out.println("Received create reel request:");
         System.out.println("  User ID: " + req.getUserId());
         System.out.println("  Media URL: " + req.getMediaUrl());
         System.out.println("  Caption: " + req.getCaption());
         
-        Reel reel = reelService.createReel(req.getUserId(), req.getMediaUrl(), req.getCaption());
-        ReelDTO dto = ReelDTO.fromEntity(reel);
+        // A reel sent through a resumable upload names the session instead of a URL
+        String mediaUrl = req.getMediaUrl();
+        if (req.getUploadId() != null) {
+            mediaUrl = resumableUploads.complete(req.getUploadId(), req.getUserId())
+                .map(UploadSessionDTO::getUrl)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + req.getUploadId()));
+        }
+        Reel reel = reelService.createReel(req.getUserId(), mediaUrl, req.getCaption());
+        ReelDTO dto = toDto(reel);
         
         System.out.println("Returning reel DTO with ID: " + dto.getId());
         return dto;
     }
 
+    // Same as PUT/DELETE /likes; the liker list is not read back
     @PostMapping("/{reelId}/like")
-    public ReelDTO likeReel(@PathVariable Long reelId, @RequestParam Long userId) {
-        return ReelDTO.fromEntity(reelService.likeReel(reelId, userId));
+    public LikeResultDTO likeReel(@PathVariable Long reelId, @RequestParam Long userId) {
+        return reelService.likeReel(reelId, userId);
     }
 
     @PostMapping("/{reelId}/unlike")
-    public ReelDTO unlikeReel(@PathVariable Long reelId, @RequestParam Long userId) {
-        return ReelDTO.fromEntity(reelService.unlikeReel(reelId, userId));
+    public LikeResultDTO unlikeReel(@PathVariable Long reelId, @RequestParam Long userId) {
+        return reelService.unlikeReel(reelId, userId);
+    }
+
+    @PutMapping("/{reelId}/likes")
+    public LikeResultDTO putLike(@PathVariable Long reelId, @RequestParam Long userId) {
+        return engagementService.like(EngagementService.Target.REEL, reelId, userId);
+    }
+
+    @DeleteMapping("/{reelId}/likes")
+    public LikeResultDTO deleteLike(@PathVariable Long reelId, @RequestParam Long userId) {
+        return engagementService.unlike(EngagementService.Target.REEL, reelId, userId);
     }
 
     @PostMapping("/{reelId}/comment")
@@ -77,7 +149,7 @@ public class ReelController {
 
     @PostMapping("/{reelId}/share")
     public ReelDTO shareReel(@PathVariable Long reelId) {
-        return ReelDTO.fromEntity(reelService.shareReel(reelId));
+        return toDto(reelService.shareReel(reelId));
     }
 
     @DeleteMapping("/{reelId}")
@@ -120,11 +192,14 @@ public class ReelController {
         private Long userId;
         private String mediaUrl;
         private String caption;
+        private String uploadId; // resumable upload session, instead of mediaUrl
         public Long getUserId() { return userId; }
         public void setUserId(Long userId) { this.userId = userId; }
         public String getMediaUrl() { return mediaUrl; }
         public void setMediaUrl(String mediaUrl) { this.mediaUrl = mediaUrl; }
         public String getCaption() { return caption; }
         public void setCaption(String caption) { this.caption = caption; }
+        public String getUploadId() { return uploadId; }
+        public void setUploadId(String uploadId) { this.uploadId = uploadId; }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.postgresql.MasChat.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.postgresql.MasChat.dto.UploadSessionDTO;
+import com.postgresql.MasChat.exception.MediaTooLargeException;
+import com.postgresql.MasChat.service.ResumableUploadService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resumable uploads: POST opens a session, each chunk is PUT raw to
+ * /{id}/chunks/{index} (optionally with a Content-Range to check its offset), GET reports
+ * the received byte ranges so a client can resend only what is missing, and
+ * POST /{id}/complete stores the file and returns its URL.
+ */
+@RestController
+@RequestMapping("/api/media/uploads")
+public class ResumableUploadController {
+    @Autowired
+    private ResumableUploadService uploads;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> create(@RequestBody CreateRequest req, @RequestParam(required = false) Long userId) {
+        try {
+            return ResponseEntity.ok(uploads.create(userId, req.getFileName(), req.getSize(), req.getChunkSize()));
+        } catch (MediaTooLargeException e) {
+            return ResponseEntity.status(413).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> status(@PathVariable String id, @RequestParam(required = false) Long userId) {
+        return uploads.status(id, userId).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}/chunks/{index}")
+    public ResponseEntity<UploadSessionDTO> putChunk(@PathVariable String id, @PathVariable int index,
+                                                     @RequestParam(required = false) Long userId,
+                                                     HttpServletRequest request) {
+        try (InputStream in = request.getInputStream()) {
+            return uploads.putChunk(id, userId, index, offset(request.getHeader(HttpHeaders.CONTENT_RANGE)),
+                    request.getContentLengthLong(), in)
+                .map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<UploadSessionDTO> complete(@PathVariable String id, @RequestParam(required = false) Long userId) {
+        try {
+            return uploads.complete(id, userId).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable String id, @RequestParam(required = false) Long userId) throws IOException {
+        return uploads.abort(id, userId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    // First byte of a "bytes first-last/total" Content-Range, or null when there is none
+    private static Long offset(String contentRange) {
+        if (contentRange == null) return null;
+        String spec = contentRange.trim();
+        if (!spec.startsWith("bytes ")) throw new IllegalArgumentException("Invalid Content-Range: " + contentRange);
+        int slash = spec.indexOf('/');
+        List<HttpRange> ranges = HttpRange.parseRanges("bytes=" + spec.substring(6, slash < 0 ? spec.length() : slash));
+        if (ranges.size() != 1) throw new IllegalArgumentException("Invalid Content-Range: " + contentRange);
+        return ranges.get(0).getRangeStart(Long.MAX_VALUE);
+    }
+
+    public static class CreateRequest {
+        private String fileName;
+        private long size;
+        private Integer chunkSize;
+        public String getFileName() { return fileName; }
+        public void setFileName(String fileName) { this.fileName = fileName; }
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+        public Integer getChunkSize() { return chunkSize; }
+        public void setChunkSize(Integer chunkSize) { this.chunkSize = chunkSize; }
+    }
+}
@@ -1,8 +1,14 @@
 package com.postgresql.MasChat.controller;
 
+import com.postgresql.MasChat.dto.LikeResultDTO;
 import com.postgresql.MasChat.dto.StoryDTO;
+import com.postgresql.MasChat.dto.StoryTrayDTO;
+import com.postgresql.MasChat.dto.StoryViewersDTO;
 import com.postgresql.MasChat.model.Story;
+import com.postgresql.MasChat.service.EngagementService;
+import com.postgresql.MasChat.service.StorySeenService;
 import com.postgresql.MasChat.service.StoryService;
+import com.postgresql.MasChat.service.StoryTrayService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -13,12 +19,24 @@ import java.util.stream.Collectors;
 public class StoryController {
     @Autowired
     private StoryService storyService;
+    @Autowired
+    private EngagementService engagementService;
+    @Autowired
+    private StoryTrayService storyTrayService;
+    @Autowired
+    private StorySeenService storySeenService;
 
     @GetMapping
     public List<StoryDTO> getRecentStories() {
         return storyService.getRecentStories().stream().map(StoryDTO::fromEntity).collect(Collectors.toList());
     }
 
+    // Friends' active stories grouped by author; list entries omit likedBy
+    @GetMapping("/tray")
+    public List<StoryTrayDTO> getTray(@RequestParam Long userId) {
+        return storyTrayService.getTray(userId);
+    }
+
     @GetMapping("/user/{userId}")
     public List<StoryDTO> getStoriesByUser(@PathVariable Long userId) {
         return storyService.getStoriesByUser(userId).stream().map(StoryDTO::fromEntity).collect(Collectors.toList());
@@ -30,14 +48,37 @@ public class StoryController {
         return StoryDTO.fromEntity(story);
     }
 
+    // Same as PUT/DELETE /likes; the liker list is not read back
     @PostMapping("/{storyId}/like")
-    public StoryDTO likeStory(@PathVariable Long storyId, @RequestParam Long userId) {
-        return StoryDTO.fromEntity(storyService.likeStory(storyId, userId));
+    public LikeResultDTO likeStory(@PathVariable Long storyId, @RequestParam Long userId) {
+        return storyService.likeStory(storyId, userId);
     }
 
     @PostMapping("/{storyId}/unlike")
-    public StoryDTO unlikeStory(@PathVariable Long storyId, @RequestParam Long userId) {
-        return StoryDTO.fromEntity(storyService.unlikeStory(storyId, userId));
+    public LikeResultDTO unlikeStory(@PathVariable Long storyId, @RequestParam Long userId) {
+        return storyService.unlikeStory(storyId, userId);
+    }
+
+    @PutMapping("/{storyId}/likes")
+    public LikeResultDTO putLike(@PathVariable Long storyId, @RequestParam Long userId) {
+        return engagementService.like(EngagementService.Target.STORY, storyId, userId);
+    }
+
+    @DeleteMapping("/{storyId}/likes")
+    public LikeResultDTO deleteLike(@PathVariable Long storyId, @RequestParam Long userId) {
+        return engagementService.unlike(EngagementService.Target.STORY, storyId, userId);
+    }
+
+    @PostMapping("/{storyId}/seen")
+    public void markSeen(@PathVariable Long storyId, @RequestParam Long userId) {
+        storySeenService.markSeen(storyId, userId);
+    }
+
+    // Author only: who has seen the story, with the total count
+    @GetMapping("/{storyId}/viewers")
+    public StoryViewersDTO getViewers(@PathVariable Long storyId, @RequestParam Long userId,
+                                      @RequestParam(defaultValue = "50") int limit) {
+        return storySeenService.getViewers(storyId, userId, limit);
     }
 
     @DeleteMapping("/{storyId}")
@@ -0,0 +1,183 @@
+package com.postgresql.MasChat.controller;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.util.UriUtils;
+
+import com.postgresql.MasChat.service.LocalMediaStorage;
+import com.postgresql.MasChat.service.MediaAccessStats;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves stored media under /uploads/**.
+ *
+ * Supports single byte ranges (206, or 416 when unsatisfiable; If-Range is honoured) so
+ * video can be scrubbed without downloading it from the start, and conditional GETs on a
+ * strong ETag and Last-Modified. Content-addressed files are named after their hash,
+ * which is also their ETag, and never change, so they are cached as immutable; so are
+ * their resized variants, named after the hash and width.
+ *
+ * Bodies go out through Tomcat's sendfile when the connector offers it, so the file is
+ * copied by the kernel; otherwise FileChannel.transferTo copies it to the response.
+ */
+@Controller
+public class UploadsController {
+
+    private static final String UPLOADS_PATH = "/uploads/";
+    private static final Pattern HASHED_NAME = Pattern.compile("(?:.*/)?([0-9a-f]{64}(?:_w[0-9]{1,5})?)(?:\\.[a-z0-9]{1,10})?");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "public, max-age=86400";
+    // Tomcat request attributes for sendfile (org.apache.tomcat.util.net.Constants)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private LocalMediaStorage storage;
+
+    @Autowired
+    private MediaAccessStats stats;
+
+    @RequestMapping(value = "/uploads/**", method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = UriUtils.decode(
+            request.getRequestURI().substring(request.getContextPath().length() + UPLOADS_PATH.length()),
+            StandardCharsets.UTF_8);
+        Optional<Path> file = storage.file(key);
+        if (file.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path = file.get();
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis() / 1000 * 1000;
+        var hashed = HASHED_NAME.matcher(key);
+        String etag = hashed.matches()
+            ? "\"" + hashed.group(1) + "\""
+            : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, hashed.matches() ? IMMUTABLE : REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            stats.record(key, HttpServletResponse.SC_NOT_MODIFIED, 0);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        int status = HttpServletResponse.SC_OK;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && rangeApplies(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // malformed: ignored, the whole file is sent
+            }
+            // Several ranges are answered with the whole file, which the spec allows
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                long first = firstByte(range, length);
+                if (first < 0 || first >= length) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    stats.record(key, HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, 0);
+                    return;
+                }
+                start = first;
+                end = Math.min(range.getRangeEnd(length), length - 1);
+                status = HttpServletResponse.SC_PARTIAL_CONTENT;
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setStatus(status);
+        response.setContentType(MediaTypeFactory.getMediaType(path.getFileName().toString())
+            .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            stats.record(key, status, 0);
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+        } else {
+            try (FileChannel in = FileChannel.open(path);
+                 WritableByteChannel out = Channels.newChannel(response.getOutputStream())) {
+                long position = start;
+                while (position <= end) {
+                    long sent = in.transferTo(position, end + 1 - position, out);
+                    if (sent <= 0) break; // the file was truncated underneath us
+                    position += sent;
+                }
+            }
+        }
+        stats.record(key, status, count);
+    }
+
+    // If-None-Match wins over If-Modified-Since when both are sent
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals("*") || tag.equals(etag)) return true;
+            }
+            return false;
+        }
+        return lastModified <= dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+    }
+
+    // A Range is only honoured if If-Range, when present, still matches the file
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static long firstByte(HttpRange range, long length) {
+        try {
+            return range.getRangeStart(length);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -1,11 +1,6 @@
 package com.postgresql.MasChat.controller;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.Map;
 
@@ -20,7 +15,6 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
 import com.postgresql.MasChat.config.AppConfig;
@@ -29,7 +23,10 @@ import com.postgresql.MasChat.dto.UserDTO;
 import com.postgresql.MasChat.model.User;
 import com.postgresql.MasChat.model.UserProfile;
 import com.postgresql.MasChat.repository.UserRepository;
+import com.postgresql.MasChat.service.ImageVariantService;
+import com.postgresql.MasChat.service.UserSearchService;
 import com.postgresql.MasChat.service.UserService;
+import com.postgresql.MasChat.service.ViewTracker;
 
 @RestController
 @RequestMapping("/api/users")
@@ -45,11 +42,21 @@ public class UserController {
     @Autowired
     private AppConfig appConfig;
 
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private ViewTracker viewTracker;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
     
 
     @GetMapping("/{userId}/profile")
-    public ResponseEntity<User> getUserProfile(@PathVariable Long userId) {
+    public ResponseEntity<User> getUserProfile(@PathVariable Long userId, @RequestParam(required = false) Long currentUserId) {
     User user = userService.findById(userId); // No need for orElseThrow here
+    viewTracker.record(ViewTracker.Subject.PROFILE, userId, currentUserId);
     return ResponseEntity.ok(user);
 }   
     @GetMapping("/{id}")
@@ -59,9 +66,15 @@ public ResponseEntity<User> getUserById(@PathVariable Long id) {
 }
 
     @GetMapping("/search")
-    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String query) {
-        List<User> users = userService.searchUsers(query);
+    public ResponseEntity<List<UserDTO>> searchUsers(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<User> users = userService.searchUsers(query, page, size);
         List<UserDTO> dtos = users.stream().map(UserDTO::fromEntity).collect(Collectors.toList());
+        Map<String, Map<String, String>> variants = imageVariants.variantsFor(
+            dtos.stream().map(UserDTO::getProfilePicture).toList());
+        dtos.forEach(dto -> dto.setProfilePictureVariants(variants.getOrDefault(dto.getProfilePicture(), Map.of())));
         return ResponseEntity.ok(dtos);
     }
 
@@ -156,21 +169,6 @@ public ResponseEntity<String> updateAvatarPicture(
 }
 
 
-    private String saveImage(MultipartFile file, String type) throws IOException {
-        String uploadDir = "uploads/";
-        Files.createDirectories(Paths.get(uploadDir));
-        
-        String originalFileName = file.getOriginalFilename();
-        String fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-        String fileName = type + "_" + UUID.randomUUID() + fileExtension;
-        
-        Path filePath = Paths.get(uploadDir + fileName);
-        Files.write(filePath, file.getBytes());
-        
-        // Return the full URL for the image using centralized configuration
-        return appConfig.getUploadUrl(fileName);
-    }
-
     @PutMapping("/{id}")
 public User updateUser(@PathVariable Long id, @RequestBody User updatedUser) {
     return userRepository.findById(id).map(user -> {
@@ -200,13 +198,16 @@ public User updateUser(@PathVariable Long id, @RequestBody User updatedUser) {
             }
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSearchService.onUserChanged(saved);
+        return saved;
     }).orElseThrow(() -> new RuntimeException("User not found with id " + id));
 }
 
 @DeleteMapping("/{userId}")
 public ResponseEntity<Void> deleteUser(@PathVariable Long userId) {
     userRepository.deleteById(userId);
+    userSearchService.onUserDeleted(userId);
     return ResponseEntity.ok().build();
 }
 
@@ -0,0 +1,20 @@
+package com.postgresql.MasChat.dto;
+
+public class AttachmentDTO {
+    private String fileName;
+    private String fileType;
+    private String url;
+
+    public AttachmentDTO(String fileName, String fileType, String url) {
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.url = url;
+    }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getFileType() { return fileType; }
+    public void setFileType(String fileType) { this.fileType = fileType; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+}
@@ -17,6 +17,7 @@ public class CommentDTO {
     private int replyCount;
     private boolean isLikedByCurrentUser;
     private String timeAgo;
+    private String nextRepliesCursor;
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -42,6 +43,9 @@ public class CommentDTO {
     public void setLikedByCurrentUser(boolean isLikedByCurrentUser) { this.isLikedByCurrentUser = isLikedByCurrentUser; }
     public String getTimeAgo() { return timeAgo; }
     public void setTimeAgo(String timeAgo) { this.timeAgo = timeAgo; }
+    // Pass as "cursor" to /api/posts/comment/{id}/replies/page for the replies after the embedded ones
+    public String getNextRepliesCursor() { return nextRepliesCursor; }
+    public void setNextRepliesCursor(String nextRepliesCursor) { this.nextRepliesCursor = nextRepliesCursor; }
 
     public static CommentDTO fromEntity(com.postgresql.MasChat.model.Comment comment) {
         return fromEntity(comment, null);
@@ -88,7 +92,7 @@ public class CommentDTO {
         }
     }
 
-    private static String formatTimeAgo(LocalDateTime createdAt) {
+    public static String formatTimeAgo(LocalDateTime createdAt) {
         if (createdAt == null) return "";
         
         LocalDateTime now = LocalDateTime.now();
@@ -0,0 +1,18 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+public class CommentPageDTO {
+    private List<CommentDTO> comments;
+    private String nextCursor;   // pass as "cursor" for the next page; null when there is none
+
+    public CommentPageDTO(List<CommentDTO> comments, String nextCursor) {
+        this.comments = comments;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<CommentDTO> getComments() { return comments; }
+    public void setComments(List<CommentDTO> comments) { this.comments = comments; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
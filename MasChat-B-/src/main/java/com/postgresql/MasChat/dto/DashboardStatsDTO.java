@@ -8,6 +8,7 @@ public class DashboardStatsDTO {
     private long followers;
     private long following;
     private long profileViews;
+    private long uniqueProfileViews;
     private double engagementRate;
     private double weeklyGrowth;
     private double monthlyGrowth;
@@ -33,6 +34,9 @@ public class DashboardStatsDTO {
     public long getProfileViews() { return profileViews; }
     public void setProfileViews(long profileViews) { this.profileViews = profileViews; }
 
+    public long getUniqueProfileViews() { return uniqueProfileViews; }
+    public void setUniqueProfileViews(long uniqueProfileViews) { this.uniqueProfileViews = uniqueProfileViews; }
+
     public double getEngagementRate() { return engagementRate; }
     public void setEngagementRate(double engagementRate) { this.engagementRate = engagementRate; }
 
@@ -0,0 +1,18 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+public class FeedPageDTO {
+    private List<PostDTO> posts;
+    private String nextCursor; // null when there is nothing older
+
+    public FeedPageDTO(List<PostDTO> posts, String nextCursor) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PostDTO> getPosts() { return posts; }
+    public void setPosts(List<PostDTO> posts) { this.posts = posts; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,20 @@
+package com.postgresql.MasChat.dto;
+
+public class LikeResultDTO {
+    private Long targetId;
+    private boolean liked;      // the user's like state after the call
+    private long likeCount;
+
+    public LikeResultDTO(Long targetId, boolean liked, long likeCount) {
+        this.targetId = targetId;
+        this.liked = liked;
+        this.likeCount = likeCount;
+    }
+
+    public Long getTargetId() { return targetId; }
+    public void setTargetId(Long targetId) { this.targetId = targetId; }
+    public boolean isLiked() { return liked; }
+    public void setLiked(boolean liked) { this.liked = liked; }
+    public long getLikeCount() { return likeCount; }
+    public void setLikeCount(long likeCount) { this.likeCount = likeCount; }
+}
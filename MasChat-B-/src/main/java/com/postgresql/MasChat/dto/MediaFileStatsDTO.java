@@ -0,0 +1,28 @@
+package com.postgresql.MasChat.dto;
+
+public class MediaFileStatsDTO {
+    private String key;
+    private long requests;
+    private long rangeRequests;  // answered 206
+    private long notModified;    // answered 304
+    private long bytesSent;
+
+    public MediaFileStatsDTO(String key, long requests, long rangeRequests, long notModified, long bytesSent) {
+        this.key = key;
+        this.requests = requests;
+        this.rangeRequests = rangeRequests;
+        this.notModified = notModified;
+        this.bytesSent = bytesSent;
+    }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+    public long getRequests() { return requests; }
+    public void setRequests(long requests) { this.requests = requests; }
+    public long getRangeRequests() { return rangeRequests; }
+    public void setRangeRequests(long rangeRequests) { this.rangeRequests = rangeRequests; }
+    public long getNotModified() { return notModified; }
+    public void setNotModified(long notModified) { this.notModified = notModified; }
+    public long getBytesSent() { return bytesSent; }
+    public void setBytesSent(long bytesSent) { this.bytesSent = bytesSent; }
+}
@@ -0,0 +1,24 @@
+package com.postgresql.MasChat.dto;
+
+public class MediaUploadDTO {
+    private String url;
+    private String sha256;
+    private long size;
+    private boolean deduplicated; // true when identical content was already stored
+
+    public MediaUploadDTO(String url, String sha256, long size, boolean deduplicated) {
+        this.url = url;
+        this.sha256 = sha256;
+        this.size = size;
+        this.deduplicated = deduplicated;
+    }
+
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    public boolean isDeduplicated() { return deduplicated; }
+    public void setDeduplicated(boolean deduplicated) { this.deduplicated = deduplicated; }
+}
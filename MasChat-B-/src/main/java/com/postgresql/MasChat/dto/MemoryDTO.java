@@ -13,6 +13,7 @@ public class MemoryDTO {
     private Long comments;
     private Long shares;
     private Long views;
+    private Long uniqueViews;
     private boolean isVideo;
     private String duration;
     private String originalContent;
@@ -98,6 +99,14 @@ public class MemoryDTO {
         this.views = views;
     }
 
+    public Long getUniqueViews() {
+        return uniqueViews;
+    }
+
+    public void setUniqueViews(Long uniqueViews) {
+        this.uniqueViews = uniqueViews;
+    }
+
     public boolean isVideo() {
         return isVideo;
     }
@@ -0,0 +1,33 @@
+package com.postgresql.MasChat.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class MemoryDigestProgressDTO {
+    private LocalDate date;            // the day the digests are for
+    private int usersTotal;            // active users when the run started
+    private int usersDone;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;  // null while the run is incomplete
+
+    public MemoryDigestProgressDTO(LocalDate date, int usersTotal, int usersDone,
+                                   LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.date = date;
+        this.usersTotal = usersTotal;
+        this.usersDone = usersDone;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+    public int getUsersTotal() { return usersTotal; }
+    public void setUsersTotal(int usersTotal) { this.usersTotal = usersTotal; }
+    public int getUsersDone() { return usersDone; }
+    public void setUsersDone(int usersDone) { this.usersDone = usersDone; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+    public boolean isComplete() { return finishedAt != null; }
+}
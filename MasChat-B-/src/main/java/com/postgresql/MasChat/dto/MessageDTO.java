@@ -0,0 +1,60 @@
+package com.postgresql.MasChat.dto;
+
+import java.time.LocalDateTime;
+
+import com.postgresql.MasChat.model.Message;
+
+/**
+ * Wire shape of a just-sent chat message. Built from ids only, so the send path never
+ * has to load the sender or recipient; {@code sender.id} / {@code recipient.id} match the
+ * fields clients read from the full message entity.
+ */
+public class MessageDTO {
+    private Long id;
+    private Long chatId;
+    private Participant sender;
+    private Participant recipient;
+    private String content;
+    private String image;
+    private LocalDateTime sentAt;
+    private boolean read;
+
+    public static class Participant {
+        private Long id;
+
+        public Participant(Long id) { this.id = id; }
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+    }
+
+    public static MessageDTO fromEntity(Message message) {
+        MessageDTO dto = new MessageDTO();
+        dto.id = message.getId();
+        dto.chatId = message.getChat() != null ? message.getChat().getId() : null;
+        dto.sender = message.getSender() != null ? new Participant(message.getSender().getId()) : null;
+        dto.recipient = message.getRecipient() != null ? new Participant(message.getRecipient().getId()) : null;
+        dto.content = message.getContent();
+        dto.image = message.getImage();
+        dto.sentAt = message.getSentAt();
+        dto.read = message.isRead();
+        return dto;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+    public Participant getSender() { return sender; }
+    public void setSender(Participant sender) { this.sender = sender; }
+    public Participant getRecipient() { return recipient; }
+    public void setRecipient(Participant recipient) { this.recipient = recipient; }
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public String getImage() { return image; }
+    public void setImage(String image) { this.image = image; }
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+    public boolean isRead() { return read; }
+    public void setRead(boolean read) { this.read = read; }
+}
@@ -0,0 +1,24 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+import com.postgresql.MasChat.model.Message;
+
+public class MessagePageDTO {
+    private List<Message> messages;   // newest first
+    private String olderCursor;       // pass as "before" to load older messages; null at the start of the chat
+    private String newerCursor;       // pass as "after" to load newer messages; null when already at the latest
+
+    public MessagePageDTO(List<Message> messages, String olderCursor, String newerCursor) {
+        this.messages = messages;
+        this.olderCursor = olderCursor;
+        this.newerCursor = newerCursor;
+    }
+
+    public List<Message> getMessages() { return messages; }
+    public void setMessages(List<Message> messages) { this.messages = messages; }
+    public String getOlderCursor() { return olderCursor; }
+    public void setOlderCursor(String olderCursor) { this.olderCursor = olderCursor; }
+    public String getNewerCursor() { return newerCursor; }
+    public void setNewerCursor(String newerCursor) { this.newerCursor = newerCursor; }
+}
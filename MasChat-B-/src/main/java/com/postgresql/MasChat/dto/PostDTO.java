@@ -2,19 +2,23 @@ package com.postgresql.MasChat.dto;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class PostDTO {
     private String id;
     private String content;
     private String imageUrl;
+    private Map<String, String> imageVariants = Map.of(); // width -> resized copy of imageUrl
     private String videoUrl;
+    private List<AttachmentDTO> attachments = List.of();
     private LocalDateTime createdAt;
     private UserDTO user;
     private List<String> likedBy;
     private int likeCount;
     private int commentCount;
     private int shareCount;
+    private boolean isLikedByCurrentUser;
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -22,8 +26,12 @@ public class PostDTO {
     public void setContent(String content) { this.content = content; }
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public Map<String, String> getImageVariants() { return imageVariants; }
+    public void setImageVariants(Map<String, String> imageVariants) { this.imageVariants = imageVariants; }
     public String getVideoUrl() { return videoUrl; }
     public void setVideoUrl(String videoUrl) { this.videoUrl = videoUrl; }
+    public List<AttachmentDTO> getAttachments() { return attachments; }
+    public void setAttachments(List<AttachmentDTO> attachments) { this.attachments = attachments; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public UserDTO getUser() { return user; }
@@ -36,7 +44,10 @@ public class PostDTO {
     public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
     public int getShareCount() { return shareCount; }
     public void setShareCount(int shareCount) { this.shareCount = shareCount; }
+    public boolean isLikedByCurrentUser() { return isLikedByCurrentUser; }
+    public void setLikedByCurrentUser(boolean isLikedByCurrentUser) { this.isLikedByCurrentUser = isLikedByCurrentUser; }
 
+    // Loads the post's author, likes and comments one by one; lists go through PostDTOAssembler
     public static PostDTO fromEntity(com.postgresql.MasChat.model.Post post) {
         if (post == null) return null;
         PostDTO dto = new PostDTO();
@@ -1,9 +1,12 @@
 package com.postgresql.MasChat.dto;
 
+import java.util.List;
+
 public class PostRequestDto {
     private String content;
     private String imageUrl;
     private String videoUrl;
+    private List<String> attachmentUploadIds; // completed resumable uploads to attach
 
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
@@ -11,4 +14,6 @@ public class PostRequestDto {
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
     public String getVideoUrl() { return videoUrl; }
     public void setVideoUrl(String videoUrl) { this.videoUrl = videoUrl; }
+    public List<String> getAttachmentUploadIds() { return attachmentUploadIds; }
+    public void setAttachmentUploadIds(List<String> attachmentUploadIds) { this.attachmentUploadIds = attachmentUploadIds; }
 }
\ No newline at end of file
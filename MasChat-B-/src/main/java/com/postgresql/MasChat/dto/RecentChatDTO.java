@@ -11,6 +11,8 @@ public class RecentChatDTO {
     private LocalDateTime lastMessageTime;
     private long unreadCount;
     private boolean isOnline;
+    private Long chatId;
+    private String cursor;
 
     public RecentChatDTO(Long id, String username, String fullName, String profilePicture, 
                         String lastMessage, LocalDateTime lastMessageTime, long unreadCount, boolean isOnline) {
@@ -48,4 +50,11 @@ public class RecentChatDTO {
 
     public boolean isOnline() { return isOnline; }
     public void setOnline(boolean online) { isOnline = online; }
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    // Pass the last item's cursor back to /api/messages/recent to get the next page
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.postgresql.MasChat.dto;
 
 import com.postgresql.MasChat.model.Reel;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class ReelDTO {
@@ -9,7 +10,9 @@ public class ReelDTO {
     private String userId;
     private String username;
     private String profilePicture;
+    private Map<String, String> profilePictureVariants = Map.of(); // width -> resized copy of profilePicture
     private String mediaUrl;
+    private Map<String, String> mediaVariants = Map.of(); // width -> resized copy of mediaUrl, for images
     private String caption;
     private String createdAt;
     private String videoUrl;
@@ -36,8 +39,6 @@ public class ReelDTO {
         dto.setCaption(reel.getCaption());
         dto.setCreatedAt(reel.getCreatedAt().toString());
         
-        System.out.println("ReelDTO created - ID: " + dto.getId() + ", Media URL: " + mediaUrl);
-        
         // Convert likedBy Set<User> to List<String>
         if (reel.getLikedBy() != null) {
             dto.setLikedBy(reel.getLikedBy().stream()
@@ -57,7 +58,7 @@ public class ReelDTO {
         }
         
         // Set share count
-        dto.setShareCount(reel.getShareCount());
+        dto.setShareCount((int) reel.getShareCount());
         
         return dto;
     }
@@ -70,8 +71,12 @@ public class ReelDTO {
     public void setUsername(String username) { this.username = username; }
     public String getProfilePicture() { return profilePicture; }
     public void setProfilePicture(String profilePicture) { this.profilePicture = profilePicture; }
+    public Map<String, String> getProfilePictureVariants() { return profilePictureVariants; }
+    public void setProfilePictureVariants(Map<String, String> profilePictureVariants) { this.profilePictureVariants = profilePictureVariants; }
     public String getMediaUrl() { return mediaUrl; }
     public void setMediaUrl(String mediaUrl) { this.mediaUrl = mediaUrl; }
+    public Map<String, String> getMediaVariants() { return mediaVariants; }
+    public void setMediaVariants(Map<String, String> mediaVariants) { this.mediaVariants = mediaVariants; }
     public String getCaption() { return caption; }
     public void setCaption(String caption) { this.caption = caption; }
     public String getCreatedAt() { return createdAt; }
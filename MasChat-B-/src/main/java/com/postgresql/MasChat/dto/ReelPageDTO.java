@@ -0,0 +1,18 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+public class ReelPageDTO {
+    private List<ReelDTO> reels;
+    private String nextCursor; // null when the feed is exhausted
+
+    public ReelPageDTO(List<ReelDTO> reels, String nextCursor) {
+        this.reels = reels;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ReelDTO> getReels() { return reels; }
+    public void setReels(List<ReelDTO> reels) { this.reels = reels; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -15,6 +15,7 @@ public class StoryDTO {
     private String caption;
     private String createdAt;
     private List<Long> likedBy;
+    private Boolean seen; // set in the story tray only
 
     public static StoryDTO fromEntity(Story story) {
         StoryDTO dto = new StoryDTO();
@@ -45,4 +46,6 @@ public class StoryDTO {
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
     public List<Long> getLikedBy() { return likedBy; }
     public void setLikedBy(List<Long> likedBy) { this.likedBy = likedBy; }
+    public Boolean getSeen() { return seen; }
+    public void setSeen(Boolean seen) { this.seen = seen; }
 } 
\ No newline at end of file
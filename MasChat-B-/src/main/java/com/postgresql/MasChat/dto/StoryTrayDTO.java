@@ -0,0 +1,26 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+// One author's active stories in a viewer's tray
+public class StoryTrayDTO {
+    private Long userId;
+    private String username;
+    private String profilePicture;
+    private boolean allSeen;        // the viewer has seen every story in this group
+    private String latestAt;
+    private List<StoryDTO> stories; // oldest first, the order they are played in
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public String getProfilePicture() { return profilePicture; }
+    public void setProfilePicture(String profilePicture) { this.profilePicture = profilePicture; }
+    public boolean isAllSeen() { return allSeen; }
+    public void setAllSeen(boolean allSeen) { this.allSeen = allSeen; }
+    public String getLatestAt() { return latestAt; }
+    public void setLatestAt(String latestAt) { this.latestAt = latestAt; }
+    public List<StoryDTO> getStories() { return stories; }
+    public void setStories(List<StoryDTO> stories) { this.stories = stories; }
+}
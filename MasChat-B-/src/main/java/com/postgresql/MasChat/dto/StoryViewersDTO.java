@@ -0,0 +1,22 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+public class StoryViewersDTO {
+    private Long storyId;
+    private long viewerCount;
+    private List<UserDTO> viewers; // at most the requested limit, by user id
+
+    public StoryViewersDTO(Long storyId, long viewerCount, List<UserDTO> viewers) {
+        this.storyId = storyId;
+        this.viewerCount = viewerCount;
+        this.viewers = viewers;
+    }
+
+    public Long getStoryId() { return storyId; }
+    public void setStoryId(Long storyId) { this.storyId = storyId; }
+    public long getViewerCount() { return viewerCount; }
+    public void setViewerCount(long viewerCount) { this.viewerCount = viewerCount; }
+    public List<UserDTO> getViewers() { return viewers; }
+    public void setViewers(List<UserDTO> viewers) { this.viewers = viewers; }
+}
@@ -0,0 +1,48 @@
+package com.postgresql.MasChat.dto;
+
+import java.util.List;
+
+public class UploadSessionDTO {
+    private String id;
+    private String fileName;
+    private long size;
+    private int chunkSize;
+    private int chunkCount;
+    private int receivedChunks;
+    private List<long[]> receivedRanges; // [first, last] byte offsets, inclusive, ascending
+    private String url;                  // set once the upload is completed
+    private String sha256;
+
+    public UploadSessionDTO(String id, String fileName, long size, int chunkSize, int chunkCount,
+                            int receivedChunks, List<long[]> receivedRanges, String url, String sha256) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        this.receivedChunks = receivedChunks;
+        this.receivedRanges = receivedRanges;
+        this.url = url;
+        this.sha256 = sha256;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+    public int getChunkCount() { return chunkCount; }
+    public void setChunkCount(int chunkCount) { this.chunkCount = chunkCount; }
+    public int getReceivedChunks() { return receivedChunks; }
+    public void setReceivedChunks(int receivedChunks) { this.receivedChunks = receivedChunks; }
+    public List<long[]> getReceivedRanges() { return receivedRanges; }
+    public void setReceivedRanges(List<long[]> receivedRanges) { this.receivedRanges = receivedRanges; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public boolean isComplete() { return url != null; }
+}
@@ -1,11 +1,14 @@
 package com.postgresql.MasChat.dto;
 
+import java.util.Map;
+
 public class UserDTO {
     private String id;
     private String username;
     private String email;
     private String fullName;
     private String profilePicture;
+    private Map<String, String> profilePictureVariants = Map.of(); // width -> resized copy of profilePicture
     private String coverPhoto;
     private String bio;
     private Boolean verified;
@@ -22,6 +25,8 @@ public class UserDTO {
     public void setFullName(String fullName) { this.fullName = fullName; }
     public String getProfilePicture() { return profilePicture; }
     public void setProfilePicture(String profilePicture) { this.profilePicture = profilePicture; }
+    public Map<String, String> getProfilePictureVariants() { return profilePictureVariants; }
+    public void setProfilePictureVariants(Map<String, String> profilePictureVariants) { this.profilePictureVariants = profilePictureVariants; }
     public String getCoverPhoto() { return coverPhoto; }
     public void setCoverPhoto(String coverPhoto) { this.coverPhoto = coverPhoto; }
     public String getBio() { return bio; }
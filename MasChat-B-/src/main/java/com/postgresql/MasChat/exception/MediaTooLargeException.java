@@ -0,0 +1,14 @@
+package com.postgresql.MasChat.exception;
+
+public class MediaTooLargeException extends RuntimeException {
+    private final long maxBytes;
+
+    public MediaTooLargeException(long maxBytes) {
+        super("Upload exceeds the limit of " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
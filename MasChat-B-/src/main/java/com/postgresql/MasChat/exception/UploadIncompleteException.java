@@ -0,0 +1,12 @@
+package com.postgresql.MasChat.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A resumable upload was used before all of its chunks arrived
+@ResponseStatus(HttpStatus.CONFLICT)
+public class UploadIncompleteException extends IllegalStateException {
+    public UploadIncompleteException(String message) {
+        super(message);
+    }
+}
@@ -5,7 +5,6 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@SuppressWarnings("unused")
 @Table(name = "attachments")
 public class Attachment {
     @Id
@@ -30,5 +29,16 @@ public class Attachment {
 
     private LocalDateTime uploadedAt = LocalDateTime.now();
 
-    // Getters and setters...
+    public Long getId() { return id; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getFileType() { return fileType; }
+    public void setFileType(String fileType) { this.fileType = fileType; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public Post getPost() { return post; }
+    public void setPost(Post post) { this.post = post; }
+    public Message getMessage() { return message; }
+    public void setMessage(Message message) { this.message = message; }
+    public LocalDateTime getUploadedAt() { return uploadedAt; }
 }
@@ -1,10 +1,13 @@
 package com.postgresql.MasChat.model;
 
 import jakarta.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "chats", uniqueConstraints = @UniqueConstraint(columnNames = {"user1_id", "user2_id"}))
 public class Chat {
+    public static final int PREVIEW_LENGTH = 100;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -17,9 +20,43 @@ public class Chat {
     @JoinColumn(name = "user2_id", nullable = false)
     private User user2;
 
+    // Inbox summary, maintained by MessageService so the inbox never scans messages
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "user1_unread_count", nullable = false)
+    private int user1UnreadCount = 0;
+
+    @Column(name = "user2_unread_count", nullable = false)
+    private int user2UnreadCount = 0;
+
     public Long getId() { return id; }
     public User getUser1() { return user1; }
     public void setUser1(User user1) { this.user1 = user1; }
     public User getUser2() { return user2; }
     public void setUser2(User user2) { this.user2 = user2; }
-} 
\ No newline at end of file
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+    public LocalDateTime getLastActivityAt() { return lastActivityAt; }
+    public void setLastActivityAt(LocalDateTime lastActivityAt) { this.lastActivityAt = lastActivityAt; }
+    public int getUser1UnreadCount() { return user1UnreadCount; }
+    public void setUser1UnreadCount(int user1UnreadCount) { this.user1UnreadCount = user1UnreadCount; }
+    public int getUser2UnreadCount() { return user2UnreadCount; }
+    public void setUser2UnreadCount(int user2UnreadCount) { this.user2UnreadCount = user2UnreadCount; }
+
+    public static String preview(String content, String image) {
+        if (content != null && !content.isBlank()) {
+            return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+        }
+        return image != null ? "[Image]" : "";
+    }
+}
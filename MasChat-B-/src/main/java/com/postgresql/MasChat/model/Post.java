@@ -1,6 +1,7 @@
 package com.postgresql.MasChat.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -44,6 +45,19 @@ public class Post {
     private String imageUrl;
     private String videoUrl;
 
+    // Denormalized counters; written only by EngagementCounters, never by entity saves
+    @Column(name = "like_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long likeCount;
+
+    @Column(name = "share_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long shareCount;
+
+    @Column(name = "view_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long viewCount;
+
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
     public String getVideoUrl() { return videoUrl; }
@@ -100,4 +114,8 @@ public class Post {
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
+
+    public long getLikeCount() { return likeCount != null ? likeCount : 0; }
+    public long getShareCount() { return shareCount != null ? shareCount : 0; }
+    public long getViewCount() { return viewCount != null ? viewCount : 0; }
 }
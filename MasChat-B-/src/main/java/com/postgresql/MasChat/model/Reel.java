@@ -1,6 +1,7 @@
 package com.postgresql.MasChat.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -37,7 +38,23 @@ public class Reel {
     @JsonIgnore
     private List<ReelComment> comments;
 
-    private int shareCount = 0;
+    // Denormalized counters; written only by EngagementCounters, never by entity saves
+    @Column(name = "like_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long likeCount;
+
+    @Column(name = "share_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long shareCount;
+
+    @Column(name = "view_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long viewCount;
+
+    // Maintained by ReelRanker
+    @Column(name = "rank_score", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Double rankScore;
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -60,6 +77,8 @@ public class Reel {
     public List<ReelComment> getComments() { return comments; }
     public void setComments(List<ReelComment> comments) { this.comments = comments; }
 
-    public int getShareCount() { return shareCount; }
-    public void setShareCount(int shareCount) { this.shareCount = shareCount; }
+    public long getLikeCount() { return likeCount != null ? likeCount : 0; }
+    public long getShareCount() { return shareCount != null ? shareCount : 0; }
+    public long getViewCount() { return viewCount != null ? viewCount : 0; }
+    public double getRankScore() { return rankScore != null ? rankScore : 0; }
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.postgresql.MasChat.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -28,6 +29,19 @@ public class Story {
     )
     private Set<User> likedBy = new HashSet<>();
 
+    // Denormalized counters; written only by EngagementCounters, never by entity saves
+    @Column(name = "like_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long likeCount;
+
+    @Column(name = "share_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long shareCount;
+
+    @Column(name = "view_count", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long viewCount;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -45,4 +59,8 @@ public class Story {
 
     public Set<User> getLikedBy() { return likedBy; }
     public void setLikedBy(Set<User> likedBy) { this.likedBy = likedBy; }
-} 
\ No newline at end of file
+
+    public long getLikeCount() { return likeCount != null ? likeCount : 0; }
+    public long getShareCount() { return shareCount != null ? shareCount : 0; }
+    public long getViewCount() { return viewCount != null ? viewCount : 0; }
+}
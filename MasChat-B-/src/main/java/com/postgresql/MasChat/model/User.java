@@ -70,6 +70,10 @@ public class User {
     @Column(name = "online")
     private Boolean online = false; // Used for WebSocket online status
 
+    // Written in batches by PresenceService; the live online state is held in memory there
+    @Column(name = "last_seen")
+    private LocalDateTime lastSeen;
+
     @ManyToMany
     @JoinTable(
         name = "user_friends",
@@ -228,6 +232,9 @@ public class User {
         this.online = online;
     }
 
+    public LocalDateTime getLastSeen() { return lastSeen; }
+    public void setLastSeen(LocalDateTime lastSeen) { this.lastSeen = lastSeen; }
+
     public List<User> getFriends() {
         return friends;
     }
@@ -0,0 +1,19 @@
+package com.postgresql.MasChat.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.postgresql.MasChat.model.Attachment;
+
+public interface AttachmentRepository extends JpaRepository<Attachment, Long> {
+    // Rows of (postId, fileName, fileType, url), without loading the attachments' posts
+    @Query("SELECT a.post.id, a.fileName, a.fileType, a.url FROM Attachment a WHERE a.post.id IN :postIds ORDER BY a.id")
+    List<Object[]> findByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT a.url FROM Attachment a WHERE a.post.id = :postId")
+    List<String> findUrlsByPostId(@Param("postId") Long postId);
+}
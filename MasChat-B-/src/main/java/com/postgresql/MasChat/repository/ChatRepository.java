@@ -2,10 +2,55 @@ package com.postgresql.MasChat.repository;
 
 import com.postgresql.MasChat.model.Chat;
 import com.postgresql.MasChat.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface ChatRepository extends JpaRepository<Chat, Long> {
     Optional<Chat> findByUser1AndUser2(User user1, User user2);
-    Optional<Chat> findByUser1AndUser2OrUser2AndUser1(User user1, User user2, User user2b, User user1b);
-} 
\ No newline at end of file
+
+    // Point lookup on the unique (user1_id, user2_id) index
+    @Query("SELECT c.id FROM Chat c WHERE c.user1.id = :user1Id AND c.user2.id = :user2Id")
+    Optional<Long> findIdByUserIds(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+
+    @Query("SELECT c FROM Chat c WHERE (c.user1.id = :userId AND c.user2.id = :partnerId) OR (c.user1.id = :partnerId AND c.user2.id = :userId)")
+    List<Chat> findBetweenUsers(@Param("userId") Long userId, @Param("partnerId") Long partnerId);
+
+    // Inbox pages, one per side of the chat; each walks (user_id, last_activity_at, id) in index order
+    @Query("SELECT c FROM Chat c JOIN FETCH c.user2 WHERE c.user1.id = :userId AND c.lastActivityAt IS NOT NULL " +
+           "AND (c.lastActivityAt < :beforeAt OR (c.lastActivityAt = :beforeAt AND c.id < :beforeId)) " +
+           "ORDER BY c.lastActivityAt DESC, c.id DESC")
+    List<Chat> findInboxPageAsUser1(@Param("userId") Long userId, @Param("beforeAt") LocalDateTime beforeAt,
+                                    @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query("SELECT c FROM Chat c JOIN FETCH c.user1 WHERE c.user2.id = :userId AND c.lastActivityAt IS NOT NULL " +
+           "AND (c.lastActivityAt < :beforeAt OR (c.lastActivityAt = :beforeAt AND c.id < :beforeId)) " +
+           "ORDER BY c.lastActivityAt DESC, c.id DESC")
+    List<Chat> findInboxPageAsUser2(@Param("userId") Long userId, @Param("beforeAt") LocalDateTime beforeAt,
+                                    @Param("beforeId") Long beforeId, Pageable pageable);
+
+    // Record a new last message and bump the recipient's unread counter in one statement.
+    // The summary only moves forward, since write-behind batches can land after a newer synchronous send.
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+           "c.lastMessageId = CASE WHEN c.lastActivityAt IS NULL OR c.lastActivityAt <= :at THEN :messageId ELSE c.lastMessageId END, " +
+           "c.lastMessagePreview = CASE WHEN c.lastActivityAt IS NULL OR c.lastActivityAt <= :at THEN :preview ELSE c.lastMessagePreview END, " +
+           "c.lastActivityAt = CASE WHEN c.lastActivityAt IS NULL OR c.lastActivityAt <= :at THEN :at ELSE c.lastActivityAt END, " +
+           "c.user1UnreadCount = c.user1UnreadCount + CASE WHEN c.user1.id = :recipientId THEN 1 ELSE 0 END, " +
+           "c.user2UnreadCount = c.user2UnreadCount + CASE WHEN c.user2.id = :recipientId THEN 1 ELSE 0 END " +
+           "WHERE c.id = :chatId")
+    int recordMessage(@Param("chatId") Long chatId, @Param("messageId") Long messageId, @Param("preview") String preview,
+                      @Param("at") LocalDateTime at, @Param("recipientId") Long recipientId);
+
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+           "c.user1UnreadCount = CASE WHEN c.user1.id = :userId THEN 0 ELSE c.user1UnreadCount END, " +
+           "c.user2UnreadCount = CASE WHEN c.user2.id = :userId THEN 0 ELSE c.user2UnreadCount END " +
+           "WHERE (c.user1.id = :userId AND c.user2.id = :partnerId) OR (c.user1.id = :partnerId AND c.user2.id = :userId)")
+    int clearUnread(@Param("userId") Long userId, @Param("partnerId") Long partnerId);
+}
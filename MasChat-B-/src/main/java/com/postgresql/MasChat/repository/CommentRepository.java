@@ -1,11 +1,14 @@
 package com.postgresql.MasChat.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.postgresql.MasChat.model.Comment;
 import com.postgresql.MasChat.model.Post;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
@@ -35,4 +38,36 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     
     @Query("SELECT COUNT(c) FROM Comment c WHERE c.post.user.id = :postUserId")
     long countByPostUserId(@Param("postUserId") Long postUserId);
+
+    @Query("SELECT c.post.id, COUNT(c) FROM Comment c WHERE c.post.id IN :postIds GROUP BY c.post.id")
+    List<Object[]> countByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    // Comment thread projections for CommentThreadService:
+    // [id, userId, username, profilePicture, content, createdAt, parentCommentId]
+    @Query("SELECT c.id, u.id, u.username, u.profilePicture, c.content, c.createdAt, c.parentComment.id " +
+           "FROM Comment c LEFT JOIN c.user u WHERE c.post.id = :postId AND c.parentComment IS NULL " +
+           "AND (c.createdAt < :at OR (c.createdAt = :at AND c.id < :id)) ORDER BY c.createdAt DESC, c.id DESC")
+    List<Object[]> findTopLevelRowsBefore(@Param("postId") Long postId, @Param("at") LocalDateTime at, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT c.id, u.id, u.username, u.profilePicture, c.content, c.createdAt, c.parentComment.id " +
+           "FROM Comment c LEFT JOIN c.user u WHERE c.parentComment.id = :parentId " +
+           "AND (c.createdAt > :at OR (c.createdAt = :at AND c.id > :id)) ORDER BY c.createdAt ASC, c.id ASC")
+    List<Object[]> findReplyRowsAfter(@Param("parentId") Long parentId, @Param("at") LocalDateTime at, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT c.id, u.id, u.username, u.profilePicture, c.content, c.createdAt, c.parentComment.id " +
+           "FROM Comment c LEFT JOIN c.user u WHERE c.id IN :ids ORDER BY c.createdAt ASC, c.id ASC")
+    List<Object[]> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c.id, u.id, u.username, u.profilePicture, c.content, c.createdAt, c.parentComment.id " +
+           "FROM Comment c LEFT JOIN c.user u WHERE c.post.id = :postId " +
+           "AND LOWER(c.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY c.createdAt DESC")
+    List<Object[]> searchRowsByContent(@Param("postId") Long postId, @Param("searchTerm") String searchTerm);
+
+    // The first :perParent replies of each parent, oldest first
+    @Query(value = "SELECT id FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY parent_comment_id ORDER BY created_at, id) AS rn " +
+                   "FROM comments WHERE parent_comment_id IN (:parentIds)) ranked WHERE rn <= :perParent", nativeQuery = true)
+    List<Long> findFirstReplyIds(@Param("parentIds") Collection<Long> parentIds, @Param("perParent") int perParent);
+
+    @Query("SELECT c.parentComment.id, COUNT(c) FROM Comment c WHERE c.parentComment.id IN :parentIds GROUP BY c.parentComment.id")
+    List<Object[]> countRepliesByParentIds(@Param("parentIds") Collection<Long> parentIds);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import com.postgresql.MasChat.model.Like;
 import com.postgresql.MasChat.model.Comment;
 import com.postgresql.MasChat.model.User;
+import java.util.Collection;
 import java.util.List;
 
 public interface LikeRepository extends JpaRepository<Like, Long> {
@@ -28,4 +29,10 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     // Find like by comment and user
     @Query("SELECT l FROM Like l WHERE l.comment = :comment AND l.user = :user")
     Like findByCommentAndUser(@Param("comment") Comment comment, @Param("user") User user);
-} 
\ No newline at end of file
+
+    @Query("SELECT l.comment.id, COUNT(l) FROM Like l WHERE l.comment.id IN :commentIds GROUP BY l.comment.id")
+    List<Object[]> countByCommentIds(@Param("commentIds") Collection<Long> commentIds);
+
+    @Query("SELECT l.comment.id FROM Like l WHERE l.comment.id IN :commentIds AND l.user.id = :userId")
+    List<Long> findLikedCommentIds(@Param("commentIds") Collection<Long> commentIds, @Param("userId") Long userId);
+}
@@ -1,7 +1,11 @@
 package com.postgresql.MasChat.repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.time.LocalDateTime;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import com.postgresql.MasChat.model.Message;
@@ -23,4 +27,24 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     // Get unread messages from a specific sender to a recipient
     @Query("SELECT m FROM Message m WHERE m.recipient.id = :recipientId AND m.sender.id = :senderId AND m.read = false")
     List<Message> findByRecipientIdAndSenderIdAndReadFalse(@Param("recipientId") Long recipientId, @Param("senderId") Long senderId);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.read = true WHERE m.recipient.id = :recipientId AND m.sender.id = :senderId AND m.read = false")
+    int markReadFromSender(@Param("recipientId") Long recipientId, @Param("senderId") Long senderId);
+
+    // Used to rebuild a chat's inbox summary after deletes
+    Optional<Message> findFirstByChat_IdOrderBySentAtDescIdDesc(Long chatId);
+
+    long countByChat_IdAndRecipient_IdAndReadFalse(Long chatId, Long recipientId);
+
+    // Keyset history pages over (chat_id, sent_at, id); callers ask for limit + 1 rows to detect more
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.recipient WHERE m.chat.id IN :chatIds " +
+           "AND (m.sentAt < :at OR (m.sentAt = :at AND m.id < :id)) ORDER BY m.sentAt DESC, m.id DESC")
+    List<Message> findOlderInChats(@Param("chatIds") List<Long> chatIds, @Param("at") LocalDateTime at,
+                                   @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.recipient WHERE m.chat.id IN :chatIds " +
+           "AND (m.sentAt > :at OR (m.sentAt = :at AND m.id > :id)) ORDER BY m.sentAt ASC, m.id ASC")
+    List<Message> findNewerInChats(@Param("chatIds") List<Long> chatIds, @Param("at") LocalDateTime at,
+                                   @Param("id") Long id, Pageable pageable);
 }
@@ -4,8 +4,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import com.postgresql.MasChat.model.Post;
+import java.util.Collection;
 import java.util.List;
-import java.time.LocalDateTime;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByUserId(Long userId);
@@ -17,15 +17,10 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("SELECT p FROM Post p WHERE p.user.id = :userId ORDER BY p.createdAt DESC")
     List<Post> findTop10ByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
     
-    @Query("SELECT p FROM Post p WHERE p.user.id = :userId AND YEAR(p.createdAt) = :year")
-    List<Post> findByUserIdAndYear(@Param("userId") Long userId, @Param("year") int year);
-    
-    @Query("SELECT COUNT(p) FROM Post p WHERE p.user.id = :userId AND p.createdAt >= :after")
-    long countByUserIdAndCreatedAtAfter(@Param("userId") Long userId, @Param("after") LocalDateTime after);
-    
-    @Query("SELECT p FROM Post p WHERE p.user.id = :userId AND YEAR(p.createdAt) = :year AND MONTH(p.createdAt) = :month")
-    List<Post> findByUserIdAndYearAndMonth(@Param("userId") Long userId, @Param("year") int year, @Param("month") int month);
-    
-    @Query("SELECT p FROM Post p WHERE p.user.id = :userId AND DAYOFYEAR(p.createdAt) = :dayOfYear")
-    List<Post> findByUserIdAndDayOfYear(@Param("userId") Long userId, @Param("dayOfYear") int dayOfYear);
-}
\ No newline at end of file
+    // Batch lookups for PostDTOAssembler; native so the likedBy set is never materialized
+    @Query(value = "SELECT post_id FROM post_likes WHERE post_id IN (:postIds) AND user_id = :userId", nativeQuery = true)
+    List<Long> findLikedPostIds(@Param("postIds") Collection<Long> postIds, @Param("userId") Long userId);
+
+    @Query(value = "SELECT post_id, user_id FROM post_likes WHERE post_id IN (:postIds)", nativeQuery = true)
+    List<Object[]> findLikerIdsByPostIds(@Param("postIds") Collection<Long> postIds);
+}
@@ -1,8 +1,10 @@
 package com.postgresql.MasChat.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,6 +21,44 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Search users by username or fullname
     @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(u.fullName) LIKE LOWER(CONCAT('%', :query, '%'))")
     List<User> findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(@Param("query") String query, @Param("query") String query2);
+
+    // Ranked substring search; served by the pg_trgm indexes on lower(username) / lower(full_name).
+    // :pattern is :q with LIKE wildcards escaped (UserSearchService.escapeLike).
+    @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE CONCAT('%', :pattern, '%') ESCAPE '\\' " +
+           "OR LOWER(u.fullName) LIKE CONCAT('%', :pattern, '%') ESCAPE '\\' " +
+           "ORDER BY CASE WHEN LOWER(u.username) = :q THEN 0 WHEN LOWER(u.username) LIKE CONCAT(:pattern, '%') ESCAPE '\\' THEN 1 ELSE 2 END, u.username")
+    List<User> searchRanked(@Param("q") String q, @Param("pattern") String pattern, Pageable pageable);
+
+    // Keyset scan of the fields the in-memory search index needs: id, username, fullName
+    @Query("SELECT u.id, u.username, u.fullName FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchFieldsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Friend graph lookups used by FriendSuggestionService; native so they never materialize User rows
+    @Query(value = "SELECT friend_id FROM user_friends WHERE user_id = :userId", nativeQuery = true)
+    List<Long> findFriendIds(@Param("userId") Long userId);
+
+    @Query(value = "SELECT f2.friend_id, COUNT(*) FROM user_friends f1 " +
+                   "JOIN user_friends f2 ON f2.user_id = f1.friend_id " +
+                   "WHERE f1.user_id = :userId AND f2.friend_id <> :userId " +
+                   "GROUP BY f2.friend_id", nativeQuery = true)
+    List<Object[]> countMutualFriends(@Param("userId") Long userId);
+
+    @Query(value = "SELECT g2.user_id, COUNT(*) FROM group_members g1 " +
+                   "JOIN group_members g2 ON g2.group_id = g1.group_id " +
+                   "WHERE g1.user_id = :userId AND g2.user_id <> :userId " +
+                   "GROUP BY g2.user_id", nativeQuery = true)
+    List<Object[]> countSharedGroups(@Param("userId") Long userId);
+
+    @Query(value = "SELECT receiver_id FROM friend_requests WHERE sender_id = :userId " +
+                   "UNION SELECT sender_id FROM friend_requests WHERE receiver_id = :userId", nativeQuery = true)
+    List<Long> findFriendRequestCounterpartIds(@Param("userId") Long userId);
+
+    // Authors for a page of posts/reels in one round trip, profile details included
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.details WHERE u.id IN :ids")
+    List<User> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id FROM User u WHERE u.id <> :userId ORDER BY u.createdAt DESC, u.id DESC")
+    List<Long> findNewestUserIds(@Param("userId") Long userId, Pageable pageable);
     
     // findById is inherited from JpaRepository and used for online status updates in WebSocketEventListener
 }
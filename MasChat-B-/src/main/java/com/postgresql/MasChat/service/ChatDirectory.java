@@ -0,0 +1,121 @@
+package com.postgresql.MasChat.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.postgresql.MasChat.model.Chat;
+import com.postgresql.MasChat.repository.ChatRepository;
+import com.postgresql.MasChat.repository.UserRepository;
+
+/**
+ * Resolves the chat between two users to its id without loading either user.
+ *
+ * Chats are keyed by the ordered pair (min user id, max user id) and new chats are
+ * stored that way, so a lookup is a point read on the unique (user1_id, user2_id)
+ * index. Resolved ids are kept in a bounded LRU map; a steady conversation never
+ * touches the chats table on send.
+ */
+@Service
+public class ChatDirectory {
+
+    private static final int MAX_CACHED_CHATS = 50_000;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final TransactionTemplate createTx;
+
+    private final Map<ChatKey, Long> cache = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ChatKey, Long> eldest) {
+            return size() > MAX_CACHED_CHATS;
+        }
+    };
+
+    public ChatDirectory(PlatformTransactionManager transactionManager) {
+        this.createTx = new TransactionTemplate(transactionManager);
+        this.createTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /** Canonical (low, high) key for the chat between two users. */
+    static final class ChatKey {
+        final long low;
+        final long high;
+
+        ChatKey(long a, long b) {
+            this.low = Math.min(a, b);
+            this.high = Math.max(a, b);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ChatKey k && k.low == low && k.high == high;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(low) * 31 + Long.hashCode(high);
+        }
+    }
+
+    /** Returns the id of the chat between the two users, creating it on first contact. */
+    public Long resolveChatId(Long userA, Long userB) {
+        ChatKey key = new ChatKey(userA, userB);
+        Long chatId;
+        synchronized (cache) {
+            chatId = cache.get(key);
+        }
+        if (chatId != null) return chatId;
+
+        chatId = lookup(key);
+        if (chatId == null) {
+            chatId = create(key);
+        }
+        synchronized (cache) {
+            cache.put(key, chatId);
+        }
+        return chatId;
+    }
+
+    public void evict(Long userA, Long userB) {
+        synchronized (cache) {
+            cache.remove(new ChatKey(userA, userB));
+        }
+    }
+
+    private Long lookup(ChatKey key) {
+        // Chats created before canonical ordering may still be stored high-first
+        return chatRepository.findIdByUserIds(key.low, key.high)
+            .or(() -> chatRepository.findIdByUserIds(key.high, key.low))
+            .orElse(null);
+    }
+
+    // Created in its own transaction so a lost race on the unique index does not poison the caller's
+    private Long create(ChatKey key) {
+        try {
+            return createTx.execute(status -> {
+                Chat chat = new Chat();
+                chat.setUser1(userRepository.getReferenceById(key.low));
+                chat.setUser2(userRepository.getReferenceById(key.high));
+                return chatRepository.save(chat).getId();
+            });
+        } catch (DataIntegrityViolationException e) {
+            Long existing = lookup(key);
+            if (existing == null) {
+                throw new NoSuchElementException("User not found: " + key.low + " or " + key.high);
+            }
+            return existing;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.postgresql.MasChat.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.postgresql.MasChat.dto.CommentDTO;
+import com.postgresql.MasChat.dto.CommentPageDTO;
+import com.postgresql.MasChat.dto.KeysetCursor;
+import com.postgresql.MasChat.repository.CommentRepository;
+import com.postgresql.MasChat.repository.LikeRepository;
+
+/**
+ * Loads comment threads as flat row projections plus a fixed number of batch queries,
+ * so a page costs the same handful of queries however busy the thread is.
+ *
+ * Top-level comments are paged newest first and replies oldest first, both keyset on
+ * (createdAt, id). Each top-level comment embeds its first few replies; when it has
+ * more, {@link CommentDTO#getNextRepliesCursor()} continues from the last embedded one.
+ * Reply and like counts come from grouped aggregates and the viewer's likes from one
+ * IN query; the entities' lazy reply and like sets are never initialized.
+ */
+@Service
+public class CommentThreadService {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_EMBEDDED_REPLIES = 3;
+    public static final int MAX_EMBEDDED_REPLIES = 20;
+
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59);
+    private static final LocalDateTime START_OF_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    // [id, userId, username, profilePicture, content, createdAt, parentCommentId]
+    private record Row(Long id, Long userId, String username, String profilePicture,
+                       String content, LocalDateTime createdAt, Long parentId) {
+        static Row of(Object[] r) {
+            return new Row((Long) r[0], (Long) r[1], (String) r[2], (String) r[3],
+                (String) r[4], (LocalDateTime) r[5], (Long) r[6]);
+        }
+    }
+
+    /** One page of a post's top-level comments, newest first, each with its first replies. */
+    @Transactional(readOnly = true)
+    public CommentPageDTO getCommentPage(Long postId, Long viewerId, String cursor, int limit, int embeddedReplies) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int replies = Math.max(0, Math.min(embeddedReplies, MAX_EMBEDDED_REPLIES));
+        KeysetCursor before = KeysetCursor.decode(cursor);
+
+        List<Row> rows = rows(commentRepository.findTopLevelRowsBefore(postId,
+            before != null ? before.getTime() : END_OF_TIME,
+            before != null ? before.getId() : Long.MAX_VALUE,
+            PageRequest.of(0, size + 1)));
+        boolean hasMore = rows.size() > size;
+        List<Row> page = rows.subList(0, Math.min(size, rows.size()));
+
+        List<Row> embedded = List.of();
+        if (replies > 0 && !page.isEmpty()) {
+            List<Long> replyIds = commentRepository.findFirstReplyIds(ids(page), replies);
+            embedded = replyIds.isEmpty() ? List.of() : rows(commentRepository.findRowsByIds(replyIds));
+        }
+        List<CommentDTO> comments = assemble(page, embedded, viewerId);
+        Row last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return new CommentPageDTO(comments, hasMore && last != null ? KeysetCursor.encode(last.createdAt(), last.id()) : null);
+    }
+
+    /** One page of a comment's direct replies, oldest first. */
+    @Transactional(readOnly = true)
+    public CommentPageDTO getReplyPage(Long commentId, Long viewerId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        List<Row> rows = rows(commentRepository.findReplyRowsAfter(commentId,
+            after != null ? after.getTime() : START_OF_TIME,
+            after != null ? after.getId() : 0L,
+            PageRequest.of(0, size + 1)));
+        boolean hasMore = rows.size() > size;
+        List<Row> page = rows.subList(0, Math.min(size, rows.size()));
+
+        Row last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return new CommentPageDTO(assemble(page, List.of(), viewerId),
+            hasMore && last != null ? KeysetCursor.encode(last.createdAt(), last.id()) : null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CommentDTO> search(Long postId, String searchTerm, Long viewerId) {
+        return assemble(rows(commentRepository.searchRowsByContent(postId, searchTerm)), List.of(), viewerId);
+    }
+
+    // Builds DTOs for the given comments, nesting each embedded reply under its parent
+    private List<CommentDTO> assemble(List<Row> comments, List<Row> replies, Long viewerId) {
+        if (comments.isEmpty()) return List.of();
+
+        List<Long> allIds = new ArrayList<>(ids(comments));
+        allIds.addAll(ids(replies));
+        Map<Long, Long> replyCounts = counts(commentRepository.countRepliesByParentIds(allIds));
+        Map<Long, Long> likeCounts = counts(likeRepository.countByCommentIds(allIds));
+        Set<Long> liked = viewerId != null
+            ? new HashSet<>(likeRepository.findLikedCommentIds(allIds, viewerId))
+            : Set.of();
+
+        Map<Long, List<CommentDTO>> repliesByParent = new HashMap<>();
+        for (Row reply : replies) {
+            repliesByParent.computeIfAbsent(reply.parentId(), k -> new ArrayList<>())
+                .add(toDto(reply, replyCounts, likeCounts, liked));
+        }
+
+        List<CommentDTO> dtos = new ArrayList<>(comments.size());
+        for (Row row : comments) {
+            CommentDTO dto = toDto(row, replyCounts, likeCounts, liked);
+            List<CommentDTO> nested = repliesByParent.get(row.id());
+            if (nested != null) {
+                dto.setReplies(nested);
+                if (nested.size() < dto.getReplyCount()) {
+                    CommentDTO lastReply = nested.get(nested.size() - 1);
+                    dto.setNextRepliesCursor(KeysetCursor.encode(lastReply.getCreatedAt(), lastReply.getId()));
+                }
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private static CommentDTO toDto(Row row, Map<Long, Long> replyCounts, Map<Long, Long> likeCounts, Set<Long> liked) {
+        CommentDTO dto = new CommentDTO();
+        dto.setId(row.id());
+        dto.setUserId(row.userId());
+        dto.setUsername(row.username());
+        dto.setProfilePicture(row.profilePicture());
+        dto.setContent(row.content());
+        dto.setCreatedAt(row.createdAt());
+        dto.setParentCommentId(row.parentId());
+        dto.setReplyCount(replyCounts.getOrDefault(row.id(), 0L).intValue());
+        dto.setLikeCount(likeCounts.getOrDefault(row.id(), 0L).intValue());
+        dto.setLikedByCurrentUser(liked.contains(row.id()));
+        dto.setTimeAgo(CommentDTO.formatTimeAgo(row.createdAt()));
+        return dto;
+    }
+
+    private static List<Row> rows(List<Object[]> raw) {
+        List<Row> rows = new ArrayList<>(raw.size());
+        for (Object[] r : raw) rows.add(Row.of(r));
+        return rows;
+    }
+
+    private static List<Long> ids(List<Row> rows) {
+        return rows.stream().map(Row::id).toList();
+    }
+
+    private static Map<Long, Long> counts(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,132 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * How much content each user has created, kept as per-day counts of posts, stories and
+ * reels in memory_daily_counts. {@link MemoryCalendar} records each content row it adds or
+ * removes here, so the counts follow creates and deletes without recounting.
+ *
+ * {@link #totals} sums a user's day rows into all-time, calendar and rolling-window totals
+ * in one query. Results are cached per user until the user's counts change on this node,
+ * the date changes, or the TTL passes (for changes made on other nodes). A change made
+ * while a user's totals are being read keeps that read out of the cache, since it may have
+ * missed the change.
+ */
+@Service
+public class ContentStats {
+
+    private static final int MAX_CACHED = 10_000;
+    private static final int CHANGE_STRIPES = 64;
+
+    @Value("${app.memories.stats.cache-ttl-ms:60000}")
+    private long cacheTtlMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    /**
+     * A user's content counts. The calendar totals start on January 1st, the 1st of the
+     * month and Monday; the rolling windows end today, and prior* are the windows before them.
+     */
+    public record Totals(long posts, long stories, long reels,
+                         long thisYear, long thisMonth, long thisWeek,
+                         long last7Days, long prior7Days, long last30Days, long prior30Days) {
+        public long total() {
+            return posts + stories + reels;
+        }
+    }
+
+    private record Cached(Totals totals, LocalDate date, long loadedAt) {}
+
+    private final Map<Long, Cached> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Cached> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    // Changes recorded per stripe of user ids, guarded by cache like the entries themselves
+    private final long[] changes = new long[CHANGE_STRIPES];
+
+    /** Adds {@code delta} to the user's count of {@code type} for the day {@code createdOn}. */
+    public void record(MemoryCalendar.Type type, Long userId, LocalDate createdOn, int delta) {
+        String column = switch (type) {
+            case POST -> "posts";
+            case STORY -> "stories";
+            case REEL -> "reels";
+        };
+        jdbcTemplate.update(
+            "INSERT INTO memory_daily_counts (user_id, created_on, " + column + ") VALUES (?, ?, GREATEST(?, 0)) " +
+            "ON CONFLICT (user_id, created_on) DO UPDATE SET " + column + " = " +
+            "GREATEST(memory_daily_counts." + column + " + ?, 0)",
+            userId, Date.valueOf(createdOn), delta, delta);
+        synchronized (cache) {
+            changes[stripe(userId)]++;
+            cache.remove(userId);
+        }
+    }
+
+    public Totals totals(Long userId) {
+        LocalDate today = LocalDate.now();
+        long now = System.currentTimeMillis();
+        long seenChanges;
+        synchronized (cache) {
+            Cached cached = cache.get(userId);
+            if (cached != null && cached.date().equals(today) && now - cached.loadedAt() < cacheTtlMillis) {
+                return cached.totals();
+            }
+            seenChanges = changes[stripe(userId)];
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId)
+            .addValue("yearStart", Date.valueOf(today.withDayOfYear(1)))
+            .addValue("monthStart", Date.valueOf(today.withDayOfMonth(1)))
+            .addValue("weekStart", Date.valueOf(today.with(DayOfWeek.MONDAY)))
+            .addValue("last7Start", Date.valueOf(today.minusDays(6)))
+            .addValue("prior7Start", Date.valueOf(today.minusDays(13)))
+            .addValue("last30Start", Date.valueOf(today.minusDays(29)))
+            .addValue("prior30Start", Date.valueOf(today.minusDays(59)));
+        Totals totals = namedJdbc.queryForObject(
+            "SELECT COALESCE(SUM(posts), 0), COALESCE(SUM(stories), 0), COALESCE(SUM(reels), 0), " +
+            sumFrom(":yearStart") + ", " + sumFrom(":monthStart") + ", " + sumFrom(":weekStart") + ", " +
+            sumFrom(":last7Start") + ", " + sumBetween(":prior7Start", ":last7Start") + ", " +
+            sumFrom(":last30Start") + ", " + sumBetween(":prior30Start", ":last30Start") + " " +
+            "FROM memory_daily_counts WHERE user_id = :userId",
+            params,
+            (rs, i) -> new Totals(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5),
+                rs.getLong(6), rs.getLong(7), rs.getLong(8), rs.getLong(9), rs.getLong(10)));
+
+        synchronized (cache) {
+            if (changes[stripe(userId)] == seenChanges) cache.put(userId, new Cached(totals, today, now));
+        }
+        return totals;
+    }
+
+    private static int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) CHANGE_STRIPES);
+    }
+
+    private static String sumFrom(String start) {
+        return "COALESCE(SUM(CASE WHEN created_on >= " + start + " THEN posts + stories + reels END), 0)";
+    }
+
+    private static String sumBetween(String start, String end) {
+        return "COALESCE(SUM(CASE WHEN created_on >= " + start + " AND created_on < " + end +
+            " THEN posts + stories + reels END), 0)";
+    }
+}
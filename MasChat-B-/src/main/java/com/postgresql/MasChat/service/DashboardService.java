@@ -32,12 +32,19 @@ public class DashboardService {
     @Autowired
     private LikeRepository likeRepository;
 
+    @Autowired
+    private ViewTracker viewTracker;
+
+    @Autowired
+    private ContentStats contentStats;
+
 
     public DashboardStatsDTO getDashboardStats(Long userId) {
         DashboardStatsDTO stats = new DashboardStatsDTO();
         
         // Basic stats
-        stats.setTotalPosts(postRepository.countByUserId(userId));
+        ContentStats.Totals content = contentStats.totals(userId);
+        stats.setTotalPosts(content.posts());
         stats.setTotalLikes(likeRepository.countByUserId(userId));
         stats.setTotalComments(commentRepository.countByUserId(userId));
         stats.setTotalShares(0L); // TODO: Implement shares functionality
@@ -45,7 +52,9 @@ public class DashboardService {
         // Social stats
         stats.setFollowers(friendRepository.countByFriendId(userId));
         stats.setFollowing(friendRepository.countByUserId(userId));
-        stats.setProfileViews(0L); // TODO: Implement profile views tracking
+        ViewTracker.ViewCount profileViews = viewTracker.count(ViewTracker.Subject.PROFILE, userId);
+        stats.setProfileViews(profileViews.total());
+        stats.setUniqueProfileViews(profileViews.unique());
         
         // Calculate engagement rate
         long totalInteractions = stats.getTotalLikes() + stats.getTotalComments();
@@ -56,9 +65,9 @@ public class DashboardService {
             stats.setEngagementRate(0.0);
         }
         
-        // Growth metrics (mock data for now)
-        stats.setWeeklyGrowth(12.3);
-        stats.setMonthlyGrowth(23.7);
+        // Growth metrics
+        stats.setWeeklyGrowth(growth(content.last7Days(), content.prior7Days()));
+        stats.setMonthlyGrowth(growth(content.last30Days(), content.prior30Days()));
         
         return stats;
     }
@@ -129,12 +138,14 @@ public class DashboardService {
             // Profile analytics
             analytics.setFollowers(friendRepository.countByFriendId(userId));
             analytics.setFollowing(friendRepository.countByUserId(userId));
-            analytics.setProfileViews(0L); // TODO: Implement profile views
+            ViewTracker.ViewCount profileViews = viewTracker.count(ViewTracker.Subject.PROFILE, userId);
+            analytics.setProfileViews(profileViews.total());
+            analytics.setUniqueProfileViews(profileViews.unique());
             
             // Calculate engagement rate
             long totalLikes = likeRepository.countByUserId(userId);
             long totalComments = commentRepository.countByUserId(userId);
-            long totalPosts = postRepository.countByUserId(userId);
+            long totalPosts = contentStats.totals(userId).posts();
             
             if (totalPosts > 0) {
                 analytics.setEngagementRate((double) (totalLikes + totalComments) / totalPosts);
@@ -149,14 +160,15 @@ public class DashboardService {
     public DashboardStatsDTO getGrowthMetrics(Long userId) {
         DashboardStatsDTO growth = new DashboardStatsDTO();
         
-        // Calculate weekly growth (mock data for now)
-        growth.setWeeklyGrowth(12.3);
-        growth.setMonthlyGrowth(23.7);
+        // Calculate weekly growth
+        ContentStats.Totals content = contentStats.totals(userId);
+        growth.setWeeklyGrowth(growth(content.last7Days(), content.prior7Days()));
+        growth.setMonthlyGrowth(growth(content.last30Days(), content.prior30Days()));
         
         // Calculate engagement rate
         long totalLikes = likeRepository.countByUserId(userId);
         long totalComments = commentRepository.countByUserId(userId);
-        long totalPosts = postRepository.countByUserId(userId);
+        long totalPosts = content.posts();
         
         if (totalPosts > 0) {
             growth.setEngagementRate((double) (totalLikes + totalComments) / totalPosts);
@@ -167,6 +179,12 @@ public class DashboardService {
         return growth;
     }
 
+    // Content created in the latest window against the one before it, in percent
+    private static double growth(long current, long previous) {
+        if (previous == 0) return current > 0 ? 100.0 : 0.0;
+        return Math.round((current - previous) * 1000.0 / previous) / 10.0;
+    }
+
     private String formatTimestamp(LocalDateTime timestamp) {
         LocalDateTime now = LocalDateTime.now();
         long diffInHours = java.time.Duration.between(timestamp, now).toHours();
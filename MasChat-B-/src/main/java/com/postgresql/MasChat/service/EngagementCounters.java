@@ -0,0 +1,247 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.postgresql.MasChat.service.EngagementService.Target;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory engagement counters in front of the like_count / share_count / view_count
+ * columns of posts, reels and stories.
+ *
+ * Increments land in a {@link LongAdder} per (target, id, metric), so bursts on one
+ * hot item do not contend on a row lock. Every flush interval the pending deltas are
+ * written with one batched UPDATE per table and metric; reads are the persisted column
+ * plus whatever is still pending here.
+ *
+ * Shares and views are added as deltas. Each flush batch carries an id recorded in
+ * counter_flushes in the same transaction, so a batch retried after an ambiguous commit
+ * is skipped instead of applied twice. Likes already have a durable row per like, so a
+ * flush recounts like_count from the join table for the items that changed: a crash
+ * can delay a like count but never inflate it, and startup repairs any that drifted.
+ * Pending share and view deltas are flushed on shutdown; a crash loses at most one interval.
+ */
+@Service
+public class EngagementCounters {
+    private static final Logger logger = LoggerFactory.getLogger(EngagementCounters.class);
+
+    public enum Metric {
+        LIKES("like_count"),
+        SHARES("share_count"),
+        VIEWS("view_count");
+
+        final String column;
+
+        Metric(String column) {
+            this.column = column;
+        }
+    }
+
+    private record Key(Target target, long id, Metric metric) {}
+
+    @Value("${app.counters.reconcile-on-startup:true}")
+    private boolean reconcileOnStartup;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private final Map<Key, LongAdder> pending = new ConcurrentHashMap<>();
+    // Idle adders dropped from pending on the previous flush; only touched by flush()
+    private final Map<Key, LongAdder> retired = new HashMap<>();
+
+    // A batch that failed to commit; retried with the same id before anything newer
+    private UUID retryId;
+    private volatile Map<Key, Long> retryBatch;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    public void increment(Target target, Long id, Metric metric) {
+        add(target, id, metric, 1);
+    }
+
+    public void add(Target target, Long id, Metric metric, long delta) {
+        if (id == null || delta == 0) return;
+        pending.computeIfAbsent(new Key(target, id, metric), k -> new LongAdder()).add(delta);
+    }
+
+    /** Not yet flushed delta for one counter. */
+    public long pending(Target target, Long id, Metric metric) {
+        if (id == null) return 0;
+        LongAdder adder = pending.get(new Key(target, id, metric));
+        long value = adder != null ? adder.sum() : 0;
+        Map<Key, Long> inFlight = retryBatch;
+        if (inFlight != null) value += inFlight.getOrDefault(new Key(target, id, metric), 0L);
+        return value;
+    }
+
+    /** Current value: the persisted column plus the pending delta. */
+    public long read(Target target, Long id, Metric metric, long persisted) {
+        return Math.max(0, persisted + pending(target, id, metric));
+    }
+
+    /** Current value, reading the persisted column; throws if the item does not exist. */
+    public long read(Target target, Long id, Metric metric) {
+        Long persisted = jdbcTemplate.queryForObject(
+            "SELECT " + metric.column + " FROM " + target.table + " WHERE id = ?", Long.class, id);
+        return read(target, id, metric, persisted != null ? persisted : 0);
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (retryBatch != null && !apply(retryId, retryBatch)) return;
+        retryBatch = null;
+
+        // Take each pending delta by subtracting exactly what was read, so increments
+        // racing with the flush stay in the adder for the next round. A like racing with
+        // the recount may show up in both for one interval; the next flush settles it.
+        Map<Key, Long> batch = new HashMap<>();
+        // Adders removed last round may still have received a late increment
+        for (Map.Entry<Key, LongAdder> e : retired.entrySet()) {
+            long delta = e.getValue().sum();
+            if (delta != 0) batch.merge(e.getKey(), delta, Long::sum);
+        }
+        retired.clear();
+        for (Map.Entry<Key, LongAdder> e : pending.entrySet()) {
+            long delta = e.getValue().sum();
+            if (delta == 0) {
+                if (pending.remove(e.getKey(), e.getValue())) retired.put(e.getKey(), e.getValue());
+                continue;
+            }
+            e.getValue().add(-delta);
+            batch.merge(e.getKey(), delta, Long::sum);
+        }
+        if (batch.isEmpty()) return;
+
+        UUID id = UUID.randomUUID();
+        if (!apply(id, batch)) {
+            retryId = id;
+            retryBatch = batch;
+        }
+    }
+
+    @Scheduled(cron = "${app.counters.flush-log-purge-cron:0 15 4 * * *}")
+    public void purgeFlushLog() {
+        try {
+            jdbcTemplate.update("DELETE FROM counter_flushes WHERE applied_at < CURRENT_TIMESTAMP - INTERVAL '1 day'");
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge counter flush log: {}", e.getMessage());
+        }
+    }
+
+    // Likes recorded while this node was down, or whose flush was lost in a crash
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileLikeCounts() {
+        if (!reconcileOnStartup) return;
+        for (Target target : Target.values()) {
+            try {
+                int fixed = jdbcTemplate.update(
+                    "UPDATE " + target.table + " t SET like_count = l.n FROM (" +
+                    "  SELECT x.id, COUNT(lk." + target.targetColumn + ") AS n FROM " + target.table + " x" +
+                    "  LEFT JOIN " + target.likeTable + " lk ON lk." + target.targetColumn + " = x.id GROUP BY x.id) l " +
+                    "WHERE l.id = t.id AND t.like_count <> l.n");
+                if (fixed > 0) logger.info("Reconciled like_count on {} {}", fixed, target.table);
+            } catch (RuntimeException e) {
+                logger.warn("Could not reconcile like counts on {}: {}", target.table, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (retryBatch != null) {
+            logger.warn("Dropping {} unflushed engagement counter deltas at shutdown", retryBatch.size());
+        }
+    }
+
+    private boolean apply(UUID batchId, Map<Key, Long> batch) {
+        Map<String, List<Map.Entry<Key, Long>>> deltas = new HashMap<>();
+        Map<Target, List<Long>> recounts = new HashMap<>();
+        for (Map.Entry<Key, Long> e : batch.entrySet()) {
+            Key key = e.getKey();
+            if (key.metric() == Metric.LIKES) {
+                recounts.computeIfAbsent(key.target(), t -> new ArrayList<>()).add(key.id());
+            } else {
+                deltas.computeIfAbsent(
+                    "UPDATE " + key.target().table + " SET " + key.metric().column + " = " + key.metric().column + " + ? WHERE id = ?",
+                    sql -> new ArrayList<>()).add(e);
+            }
+        }
+        try {
+            tx.executeWithoutResult(status -> {
+                int fresh = jdbcTemplate.update(
+                    "INSERT INTO counter_flushes (id) VALUES (?) ON CONFLICT DO NOTHING", batchId);
+                if (fresh == 0) return; // applied by an earlier attempt whose commit looked failed
+
+                for (Map.Entry<String, List<Map.Entry<Key, Long>>> group : deltas.entrySet()) {
+                    List<Map.Entry<Key, Long>> rows = group.getValue();
+                    jdbcTemplate.batchUpdate(group.getKey(), new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, rows.get(i).getValue());
+                            ps.setLong(2, rows.get(i).getKey().id());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return rows.size();
+                        }
+                    });
+                }
+                for (Map.Entry<Target, List<Long>> group : recounts.entrySet()) {
+                    Target t = group.getKey();
+                    List<Long> ids = group.getValue();
+                    jdbcTemplate.batchUpdate(
+                        "UPDATE " + t.table + " SET like_count = (SELECT COUNT(*) FROM " + t.likeTable +
+                        " WHERE " + t.targetColumn + " = ?) WHERE id = ?",
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                ps.setLong(1, ids.get(i));
+                                ps.setLong(2, ids.get(i));
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return ids.size();
+                            }
+                        });
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Engagement counter flush of {} counters failed, will retry: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+}
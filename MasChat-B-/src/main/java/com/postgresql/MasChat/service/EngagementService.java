@@ -0,0 +1,92 @@
+package com.postgresql.MasChat.service;
+
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.postgresql.MasChat.dto.LikeResultDTO;
+import com.postgresql.MasChat.service.EngagementCounters.Metric;
+
+/**
+ * Like/unlike for posts, reels and stories as single-row writes on their join tables.
+ *
+ * Liking inserts one (target, user) row with ON CONFLICT DO NOTHING and unliking deletes
+ * it, so repeating either call is harmless and concurrent likes cannot collide. The
+ * entities' likedBy sets are never loaded; only a row that actually changed moves the
+ * like counter, and the returned count comes from {@link EngagementCounters}.
+ */
+@Service
+public class EngagementService {
+
+    public enum Target {
+        POST("posts", "post_likes", "post_id"),
+        REEL("reels", "reel_likes", "reel_id"),
+        STORY("stories", "story_likes", "story_id");
+
+        final String table;
+        final String likeTable;
+        final String targetColumn;
+
+        Target(String table, String likeTable, String targetColumn) {
+            this.table = table;
+            this.likeTable = likeTable;
+            this.targetColumn = targetColumn;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EngagementCounters counters;
+
+    @Autowired
+    private ReelRanker reelRanker;
+
+    @Transactional
+    public LikeResultDTO like(Target target, Long targetId, Long userId) {
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(
+                "INSERT INTO " + target.likeTable + " (" + target.targetColumn + ", user_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                targetId, userId);
+        } catch (DataIntegrityViolationException e) {
+            // Foreign key: the target or the user does not exist
+            throw new NoSuchElementException(target.name().toLowerCase() + " " + targetId + " or user " + userId + " not found");
+        }
+        if (inserted > 0) {
+            counters.increment(target, targetId, Metric.LIKES);
+            if (target == Target.REEL) reelRanker.record(targetId, ReelRanker.Signal.LIKE);
+        }
+        return new LikeResultDTO(targetId, true, likeCount(target, targetId));
+    }
+
+    @Transactional
+    public LikeResultDTO unlike(Target target, Long targetId, Long userId) {
+        int removed = jdbcTemplate.update(
+            "DELETE FROM " + target.likeTable + " WHERE " + target.targetColumn + " = ? AND user_id = ?",
+            targetId, userId);
+        if (removed > 0) counters.add(target, targetId, Metric.LIKES, -removed);
+        return new LikeResultDTO(targetId, false, likeCount(target, targetId));
+    }
+
+    public long share(Target target, Long targetId) {
+        long shares = counters.read(target, targetId, Metric.SHARES);
+        counters.increment(target, targetId, Metric.SHARES);
+        if (target == Target.REEL) reelRanker.record(targetId, ReelRanker.Signal.SHARE);
+        return shares + 1;
+    }
+
+    private long likeCount(Target target, Long targetId) {
+        try {
+            return counters.read(target, targetId, Metric.LIKES);
+        } catch (EmptyResultDataAccessException e) {
+            throw new NoSuchElementException(target.name().toLowerCase() + " " + targetId + " not found");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.postgresql.MasChat.dto.FeedPageDTO;
+import com.postgresql.MasChat.dto.KeysetCursor;
+import com.postgresql.MasChat.dto.PostDTO;
+import com.postgresql.MasChat.model.Post;
+import com.postgresql.MasChat.repository.PostRepository;
+import com.postgresql.MasChat.repository.UserRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Home feed built on the feeds / feed_posts tables.
+ *
+ * Posts by ordinary authors are fanned out on write: the post id is inserted into the
+ * timeline of the author and of every friend who has a timeline. Authors with at least
+ * {@code app.feed.fan-out-threshold} friends are skipped on write and their posts are
+ * merged in on read instead, so one post never turns into tens of thousands of inserts.
+ *
+ * A timeline is created and backfilled from friends' recent posts the first time its
+ * owner opens the feed, and trimmed nightly to {@link #MAX_TIMELINE_LENGTH} entries.
+ * Reads only ever touch the owner's timeline and the posts of their high-fan-out friends.
+ */
+@Service
+public class FeedService {
+    private static final Logger logger = LoggerFactory.getLogger(FeedService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+    static final int MAX_TIMELINE_LENGTH = 1000;
+    private static final int FRIENDSHIP_BACKFILL = 50;
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    @Value("${app.feed.fan-out-threshold:5000}")
+    private int fanOutThreshold;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostDTOAssembler postDTOAssembler;
+
+    // Authors whose posts are pulled at read time; refreshed periodically
+    private volatile Set<Long> highFanOutAuthors = Set.of();
+
+    // Fan-out runs off the request thread; when the queue is full the caller does the work
+    private final ThreadPoolExecutor fanOutExecutor = new ThreadPoolExecutor(
+        2, 2, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10_000),
+        r -> {
+            Thread t = new Thread(r, "feed-fan-out");
+            t.setDaemon(true);
+            return t;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private record Entry(long postId, LocalDateTime createdAt) {}
+
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+        .comparing(Entry::createdAt).thenComparingLong(Entry::postId).reversed();
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+
+    /**
+     * One page of the user's home feed, newest first. {@code cursor} is the
+     * {@link FeedPageDTO#getNextCursor()} of the previous page.
+     */
+    @Transactional
+    public FeedPageDTO getFeed(Long userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDateTime beforeAt = after != null ? after.getTime() : END_OF_TIME;
+        long beforeId = after != null ? after.getId() : Long.MAX_VALUE;
+
+        long feedId = ensureTimeline(userId);
+        List<Entry> candidates = new ArrayList<>(jdbcTemplate.query(
+            "SELECT post_id, created_at FROM feed_posts WHERE feed_id = ? " +
+            "AND (created_at < ? OR (created_at = ? AND post_id < ?)) " +
+            "ORDER BY created_at DESC, post_id DESC LIMIT ?",
+            (rs, i) -> new Entry(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()),
+            feedId, Timestamp.valueOf(beforeAt), Timestamp.valueOf(beforeAt), beforeId, size + 1));
+
+        List<Long> pulledAuthors = highFanOutFriends(userId);
+        if (!pulledAuthors.isEmpty()) {
+            candidates.addAll(namedJdbc.query(
+                "SELECT id, created_at FROM posts WHERE user_id IN (:authors) AND created_at IS NOT NULL " +
+                "AND (created_at < :at OR (created_at = :at AND id < :id)) " +
+                "ORDER BY created_at DESC, id DESC LIMIT :limit",
+                new MapSqlParameterSource()
+                    .addValue("authors", pulledAuthors)
+                    .addValue("at", Timestamp.valueOf(beforeAt))
+                    .addValue("id", beforeId)
+                    .addValue("limit", size + 1),
+                (rs, i) -> new Entry(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime())));
+        }
+
+        // Merge both sources; a post can be in both if its author crossed the threshold
+        Map<Long, Entry> merged = new LinkedHashMap<>();
+        candidates.stream().sorted(NEWEST_FIRST).forEach(e -> merged.putIfAbsent(e.postId(), e));
+        List<Entry> ordered = new ArrayList<>(merged.values());
+        boolean hasMore = ordered.size() > size;
+        List<Entry> page = ordered.subList(0, Math.min(size, ordered.size()));
+
+        List<Long> ids = page.stream().map(Entry::postId).toList();
+        Map<Long, Post> byId = postRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> loaded = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Post post = byId.get(id);
+            if (post != null) loaded.add(post);
+        }
+        List<PostDTO> posts = postDTOAssembler.toDtos(loaded, userId);
+
+        Entry last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return new FeedPageDTO(posts, hasMore && last != null ? KeysetCursor.encode(last.createdAt(), last.postId()) : null);
+    }
+
+    /** Pushes a new post into the author's and their friends' timelines. */
+    public void onPostCreated(Post post) {
+        if (post == null || post.getId() == null || post.getUser() == null) return;
+        Long authorId = post.getUser().getId();
+        Long postId = post.getId();
+        LocalDateTime createdAt = post.getCreatedAt() != null ? post.getCreatedAt() : LocalDateTime.now();
+        fanOutExecutor.execute(() -> {
+            try {
+                boolean pulled = highFanOutAuthors.contains(authorId);
+                // High-fan-out authors still see their own post in their timeline
+                jdbcTemplate.update(
+                    "INSERT INTO feed_posts (feed_id, post_id, created_at) " +
+                    "SELECT f.id, ?, ? FROM feeds f WHERE f.user_id = ? " +
+                    (pulled ? "" : "OR f.user_id IN (SELECT friend_id FROM user_friends WHERE user_id = ?) ") +
+                    "ON CONFLICT DO NOTHING",
+                    pulled
+                        ? new Object[] { postId, Timestamp.valueOf(createdAt), authorId }
+                        : new Object[] { postId, Timestamp.valueOf(createdAt), authorId, authorId });
+            } catch (RuntimeException e) {
+                logger.warn("Feed fan-out failed for post {}: {}", postId, e.getMessage());
+            }
+        });
+    }
+
+    /** A and B became friends: each gets the other's recent posts. */
+    public void onFriendshipAdded(Long a, Long b) {
+        fanOutExecutor.execute(() -> {
+            try {
+                backfillFrom(a, b);
+                backfillFrom(b, a);
+            } catch (RuntimeException e) {
+                logger.warn("Feed backfill failed for {} and {}: {}", a, b, e.getMessage());
+            }
+        });
+    }
+
+    /** A and B are no longer friends: drop each other's posts from their timelines. */
+    public void onFriendshipRemoved(Long a, Long b) {
+        fanOutExecutor.execute(() -> {
+            try {
+                String sql = "DELETE FROM feed_posts WHERE feed_id = (SELECT id FROM feeds WHERE user_id = ?) " +
+                             "AND post_id IN (SELECT id FROM posts WHERE user_id = ?)";
+                jdbcTemplate.update(sql, a, b);
+                jdbcTemplate.update(sql, b, a);
+            } catch (RuntimeException e) {
+                logger.warn("Feed cleanup failed for {} and {}: {}", a, b, e.getMessage());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.feed.threshold-refresh-ms:600000}")
+    public void refreshHighFanOutAuthors() {
+        try {
+            highFanOutAuthors = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT user_id FROM user_friends GROUP BY user_id HAVING COUNT(*) >= ?", Long.class, fanOutThreshold));
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh high fan-out authors: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.feed.trim-cron:0 30 3 * * *}")
+    public void trimTimelines() {
+        try {
+            int removed = jdbcTemplate.update(
+                "DELETE FROM feed_posts fp USING (" +
+                "  SELECT feed_id, post_id, ROW_NUMBER() OVER (PARTITION BY feed_id ORDER BY created_at DESC, post_id DESC) AS rn" +
+                "  FROM feed_posts) ranked " +
+                "WHERE fp.feed_id = ranked.feed_id AND fp.post_id = ranked.post_id AND ranked.rn > ?",
+                MAX_TIMELINE_LENGTH);
+            logger.info("Trimmed {} old feed entries", removed);
+        } catch (RuntimeException e) {
+            logger.warn("Feed trim failed: {}", e.getMessage());
+        }
+    }
+
+    // Returns the user's timeline id, creating and backfilling it on first use
+    private long ensureTimeline(Long userId) {
+        List<Long> existing = jdbcTemplate.queryForList("SELECT id FROM feeds WHERE user_id = ?", Long.class, userId);
+        if (!existing.isEmpty()) return existing.get(0);
+
+        jdbcTemplate.update("INSERT INTO feeds (user_id, updated_at) VALUES (?, ?) ON CONFLICT (user_id) DO NOTHING",
+            userId, Timestamp.valueOf(LocalDateTime.now()));
+        long feedId = jdbcTemplate.queryForObject("SELECT id FROM feeds WHERE user_id = ?", Long.class, userId);
+
+        Set<Long> pulled = highFanOutAuthors;
+        List<Long> authors = new ArrayList<>();
+        authors.add(userId);
+        for (Long friendId : userRepository.findFriendIds(userId)) {
+            if (!pulled.contains(friendId)) authors.add(friendId);
+        }
+        namedJdbc.update(
+            "INSERT INTO feed_posts (feed_id, post_id, created_at) " +
+            "SELECT :feedId, id, created_at FROM posts WHERE user_id IN (:authors) AND created_at IS NOT NULL " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit ON CONFLICT DO NOTHING",
+            new MapSqlParameterSource()
+                .addValue("feedId", feedId)
+                .addValue("authors", authors)
+                .addValue("limit", MAX_TIMELINE_LENGTH));
+        return feedId;
+    }
+
+    private List<Long> highFanOutFriends(Long userId) {
+        Set<Long> pulled = highFanOutAuthors;
+        if (pulled.isEmpty()) return List.of();
+        return userRepository.findFriendIds(userId).stream().filter(pulled::contains).toList();
+    }
+
+    // Copies the author's latest posts into the viewer's timeline, if the viewer has one
+    private void backfillFrom(Long viewerId, Long authorId) {
+        if (highFanOutAuthors.contains(authorId)) return;
+        jdbcTemplate.update(
+            "INSERT INTO feed_posts (feed_id, post_id, created_at) " +
+            "SELECT f.id, p.id, p.created_at FROM feeds f " +
+            "CROSS JOIN (SELECT id, created_at FROM posts WHERE user_id = ? AND created_at IS NOT NULL " +
+            "            ORDER BY created_at DESC, id DESC LIMIT ?) p " +
+            "WHERE f.user_id = ? ON CONFLICT DO NOTHING",
+            authorId, FRIENDSHIP_BACKFILL, viewerId);
+    }
+}
@@ -1,5 +1,6 @@
 package com.postgresql.MasChat.service;
 
+import com.postgresql.MasChat.dto.PresenceDTO;
 import com.postgresql.MasChat.model.FriendRequest;
 import com.postgresql.MasChat.model.User;
 import com.postgresql.MasChat.repository.FriendRequestRepository;
@@ -15,68 +16,37 @@ public class FriendService {
     private FriendRequestRepository friendRequestRepository;
     private UserRepository userRepository;
     private NotificationService notificationService;
+    private FriendSuggestionService friendSuggestionService;
+    private PresenceService presenceService;
+    private FeedService feedService;
+    private StoryTrayService storyTrayService;
 
-    public FriendService(FriendRequestRepository friendRequestRepository, UserRepository userRepository, NotificationService notificationService) {
+    public FriendService(FriendRequestRepository friendRequestRepository, UserRepository userRepository, NotificationService notificationService,
+                         FriendSuggestionService friendSuggestionService, PresenceService presenceService, FeedService feedService,
+                         StoryTrayService storyTrayService) {
         this.friendRequestRepository = friendRequestRepository;
         this.userRepository = userRepository;
         this.notificationService = notificationService;
+        this.friendSuggestionService = friendSuggestionService;
+        this.presenceService = presenceService;
+        this.feedService = feedService;
+        this.storyTrayService = storyTrayService;
+    }
+
+    // Snapshot to pair with the /topic/presence.{userId} delta subscription
+    public List<PresenceDTO> getFriendPresence(Long userId) {
+        return userRepository.findFriendIds(userId).stream()
+            .map(presenceService::getPresence)
+            .toList();
     }
 
     public List<User> getSuggestions(Long userId) {
         try {
-            System.out.println("Getting suggestions for user: " + userId);
-            
-            User user = userRepository.findById(userId).orElse(null);
-            if (user == null) {
+            if (!userRepository.existsById(userId)) {
                 System.out.println("User not found: " + userId);
                 return List.of();
             }
-            
-            // Get all users first
-            List<User> allUsers = userRepository.findAll();
-            System.out.println("Total users in database: " + allUsers.size());
-            
-            // Get friends, sent requests, and received requests
-            Set<Long> excludeIds = new HashSet<>();
-            excludeIds.add(userId); // Exclude self
-            
-            // Add friends
-            if (user.getFriends() != null) {
-                for (User friend : user.getFriends()) {
-                    excludeIds.add(friend.getId());
-                }
-            }
-            System.out.println("User's friends count: " + (user.getFriends() != null ? user.getFriends().size() : 0));
-            
-            // Add sent requests
-            try {
-                List<FriendRequest> sentRequests = friendRequestRepository.findBySenderId(userId);
-                for (FriendRequest request : sentRequests) {
-                    excludeIds.add(request.getReceiver().getId());
-                }
-            } catch (Exception e) {
-                System.err.println("Error getting sent requests: " + e.getMessage());
-            }
-            
-            // Add received requests
-            try {
-                List<FriendRequest> receivedRequests = friendRequestRepository.findByReceiverId(userId);
-                for (FriendRequest request : receivedRequests) {
-                    excludeIds.add(request.getSender().getId());
-                }
-            } catch (Exception e) {
-                System.err.println("Error getting received requests: " + e.getMessage());
-            }
-            
-            // Filter users to get suggestions
-            List<User> suggestions = allUsers.stream()
-                .filter(u -> !excludeIds.contains(u.getId()))
-                .limit(20) // Limit to 20 suggestions
-                .toList();
-            
-            System.out.println("Suggestions found: " + suggestions.size());
-            return suggestions;
-            
+            return friendSuggestionService.getSuggestions(userId);
         } catch (Exception e) {
             System.err.println("Error getting suggestions for user " + userId + ": " + e.getMessage());
             e.printStackTrace();
@@ -181,6 +151,7 @@ public class FriendService {
             request.setStatus("PENDING");
             request.setCreatedAt(LocalDateTime.now());
             request = friendRequestRepository.save(request);
+            friendSuggestionService.onFriendRequestChanged(senderId, receiverId);
             
             // Notify receiver with related metadata (request id, sender info)
             try {
@@ -218,6 +189,9 @@ public class FriendService {
             receiver.getFriends().add(sender);
             userRepository.save(sender);
             userRepository.save(receiver);
+            friendSuggestionService.onFriendshipAdded(sender.getId(), receiver.getId());
+            feedService.onFriendshipAdded(sender.getId(), receiver.getId());
+            storyTrayService.onFriendshipChanged(sender.getId(), receiver.getId());
             
             // Notify sender that request was accepted
             notificationService.createFriendRequestAcceptedNotification(receiver, sender);
@@ -254,6 +228,9 @@ public class FriendService {
             
             userRepository.save(user);
             userRepository.save(friend);
+            friendSuggestionService.onFriendshipRemoved(userId, friendId);
+            feedService.onFriendshipRemoved(userId, friendId);
+            storyTrayService.onFriendshipChanged(userId, friendId);
         } catch (Exception e) {
             System.err.println("Error removing friend: " + e.getMessage());
             throw e;
@@ -304,6 +281,8 @@ public class FriendService {
             List<FriendRequest> requests = friendRequestRepository.findBySenderIdAndReceiverId(senderId, receiverId);
             if (!requests.isEmpty()) {
                 friendRequestRepository.deleteAll(requests);
+                friendSuggestionService.invalidate(senderId);
+                friendSuggestionService.invalidate(receiverId);
             }
         } catch (Exception e) {
             System.err.println("Error cancelling friend request: " + e.getMessage());
@@ -325,6 +304,9 @@ public class FriendService {
             }
             userRepository.save(user);
             userRepository.save(friend);
+            friendSuggestionService.onFriendshipRemoved(userId, friendId);
+            feedService.onFriendshipRemoved(userId, friendId);
+            storyTrayService.onFriendshipChanged(userId, friendId);
         } catch (Exception e) {
             System.err.println("Error unfriending: " + e.getMessage());
             throw e;
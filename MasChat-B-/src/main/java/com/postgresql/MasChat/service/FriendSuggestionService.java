@@ -0,0 +1,245 @@
+package com.postgresql.MasChat.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.model.User;
+import com.postgresql.MasChat.repository.UserRepository;
+
+/**
+ * Friend suggestions scored from the friend graph instead of a users table scan.
+ *
+ * A candidate's score is {@code 3 * mutualFriends + 2 * sharedGroups}. Each user's
+ * scored candidates are cached (bounded LRU, with a TTL to pick up group changes) and
+ * adjusted in place when friendships are added or removed, so the common case never
+ * re-runs the graph queries.
+ */
+@Service
+public class FriendSuggestionService {
+
+    public static final int SUGGESTION_LIMIT = 20;
+    private static final int MUTUAL_WEIGHT = 3;
+    private static final int GROUP_WEIGHT = 2;
+    private static final int MAX_CANDIDATES = 200;
+    private static final int MAX_CACHED_USERS = 10_000;
+    private static final long TTL_MILLIS = 10 * 60 * 1000L;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private static class Candidate {
+        int mutualFriends;
+        int sharedGroups;
+
+        int score() {
+            return MUTUAL_WEIGHT * mutualFriends + GROUP_WEIGHT * sharedGroups;
+        }
+    }
+
+    private static class Entry {
+        final long computedAt = System.currentTimeMillis();
+        final Set<Long> excluded;
+        final Map<Long, Candidate> candidates;
+        // Cut to MAX_CANDIDATES, so a user missing from candidates may still have a score
+        final boolean truncated;
+
+        Entry(Set<Long> excluded, Map<Long, Candidate> candidates, boolean truncated) {
+            this.excluded = excluded;
+            this.candidates = candidates;
+            this.truncated = truncated;
+        }
+
+        boolean expired() {
+            return System.currentTimeMillis() - computedAt > TTL_MILLIS;
+        }
+    }
+
+    private final Map<Long, Entry> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > MAX_CACHED_USERS;
+        }
+    };
+
+    public List<User> getSuggestions(Long userId) {
+        List<Long> ids = getSuggestedIds(userId);
+        if (ids.isEmpty()) return List.of();
+        Map<Long, User> byId = userRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User u = byId.get(id);
+            if (u != null) ordered.add(u);
+        }
+        return ordered;
+    }
+
+    public List<Long> getSuggestedIds(Long userId) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(userId);
+        }
+        if (entry == null || entry.expired()) {
+            entry = compute(userId);
+            synchronized (cache) {
+                cache.put(userId, entry);
+            }
+        }
+
+        List<Long> ranked;
+        Set<Long> excluded;
+        synchronized (entry) {
+            ranked = entry.candidates.entrySet().stream()
+                .filter(e -> e.getValue().score() > 0)
+                .sorted((a, b) -> {
+                    int cmp = Integer.compare(b.getValue().score(), a.getValue().score());
+                    return cmp != 0 ? cmp : Long.compare(a.getKey(), b.getKey());
+                })
+                .limit(SUGGESTION_LIMIT)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(ArrayList::new));
+            excluded = new HashSet<>(entry.excluded);
+        }
+
+        // Users with a thin graph still get something to browse: pad with newest sign-ups
+        if (ranked.size() < SUGGESTION_LIMIT) {
+            Set<Long> seen = new HashSet<>(ranked);
+            for (Long id : userRepository.findNewestUserIds(userId, PageRequest.of(0, SUGGESTION_LIMIT + excluded.size()))) {
+                if (ranked.size() >= SUGGESTION_LIMIT) break;
+                if (!excluded.contains(id) && seen.add(id)) ranked.add(id);
+            }
+        }
+        return ranked;
+    }
+
+    /** A and B just became friends. */
+    public void onFriendshipAdded(Long a, Long b) {
+        forget(a, b);
+        adjustMutual(a, b, 1);
+    }
+
+    /** A and B are no longer friends. */
+    public void onFriendshipRemoved(Long a, Long b) {
+        // Both sides may now see each other as candidates again; recompute lazily.
+        invalidate(a);
+        invalidate(b);
+        adjustMutual(a, b, -1);
+    }
+
+    /** A request was sent or cancelled between A and B; drop each from the other's list. */
+    public void onFriendRequestChanged(Long a, Long b) {
+        forget(a, b);
+    }
+
+    public void invalidate(Long userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+
+    private Entry compute(Long userId) {
+        Set<Long> excluded = new HashSet<>();
+        excluded.add(userId);
+        excluded.addAll(userRepository.findFriendIds(userId));
+        excluded.addAll(userRepository.findFriendRequestCounterpartIds(userId));
+
+        Map<Long, Candidate> candidates = new HashMap<>();
+        for (Object[] row : userRepository.countMutualFriends(userId)) {
+            Long id = ((Number) row[0]).longValue();
+            if (!excluded.contains(id)) {
+                candidates.computeIfAbsent(id, k -> new Candidate()).mutualFriends = ((Number) row[1]).intValue();
+            }
+        }
+        for (Object[] row : userRepository.countSharedGroups(userId)) {
+            Long id = ((Number) row[0]).longValue();
+            if (!excluded.contains(id)) {
+                candidates.computeIfAbsent(id, k -> new Candidate()).sharedGroups = ((Number) row[1]).intValue();
+            }
+        }
+
+        // Keep only the strongest candidates; incremental updates start from here
+        boolean truncated = candidates.size() > MAX_CANDIDATES;
+        if (truncated) {
+            Map<Long, Candidate> top = new HashMap<>();
+            candidates.entrySet().stream()
+                .sorted((x, y) -> Integer.compare(y.getValue().score(), x.getValue().score()))
+                .limit(MAX_CANDIDATES)
+                .forEach(e -> top.put(e.getKey(), e.getValue()));
+            candidates = top;
+        }
+        return new Entry(excluded, candidates, truncated);
+    }
+
+    private void forget(Long a, Long b) {
+        Entry ea, eb;
+        synchronized (cache) {
+            ea = cache.get(a);
+            eb = cache.get(b);
+        }
+        if (ea != null) {
+            synchronized (ea) {
+                ea.excluded.add(b);
+                ea.candidates.remove(b);
+            }
+        }
+        if (eb != null) {
+            synchronized (eb) {
+                eb.excluded.add(a);
+                eb.candidates.remove(a);
+            }
+        }
+    }
+
+    /**
+     * Every cached friend of A gains (or loses) B as a mutual-friend candidate, and
+     * every cached friend of B gains (or loses) A. A viewer whose list was cut off and
+     * does not hold the candidate is recomputed instead, since the candidate's actual
+     * counts are unknown there.
+     */
+    private void adjustMutual(Long a, Long b, int delta) {
+        adjustMutualFor(userRepository.findFriendIds(a), b, delta);
+        adjustMutualFor(userRepository.findFriendIds(b), a, delta);
+    }
+
+    private void adjustMutualFor(List<Long> viewers, Long candidateId, int delta) {
+        for (Long viewer : viewers) {
+            if (viewer.equals(candidateId)) continue;
+            Entry entry;
+            synchronized (cache) {
+                entry = cache.get(viewer);
+            }
+            if (entry == null) continue;
+            boolean stale = false;
+            synchronized (entry) {
+                if (entry.excluded.contains(candidateId)) continue;
+                Candidate c = entry.candidates.get(candidateId);
+                if (c == null) {
+                    if (delta <= 0) continue;
+                    if (entry.truncated) {
+                        stale = true;
+                    } else {
+                        // Not in a complete list: no mutual friends or shared groups until now
+                        c = new Candidate();
+                        entry.candidates.put(candidateId, c);
+                    }
+                }
+                if (c != null) {
+                    c.mutualFriends = Math.max(0, c.mutualFriends + delta);
+                    if (c.score() == 0) entry.candidates.remove(candidateId);
+                }
+            }
+            if (stale) invalidate(viewer);
+        }
+    }
+}
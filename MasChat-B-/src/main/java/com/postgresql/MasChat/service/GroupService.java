@@ -28,6 +28,9 @@ public class GroupService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MediaService mediaService;
+
     public List<GroupDTO> getUserGroups(Long userId) {
         List<Group> groups = groupRepository.findByMemberId(userId);
         return groups.stream()
@@ -64,6 +67,7 @@ public class GroupService {
         group.setUpdatedAt(LocalDateTime.now());
 
         Group savedGroup = groupRepository.save(group);
+        mediaService.retain(savedGroup.getImageUrl());
 
         // Add creator as admin
         GroupMember adminMember = new GroupMember();
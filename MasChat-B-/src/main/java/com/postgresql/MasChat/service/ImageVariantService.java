@@ -0,0 +1,360 @@
+package com.postgresql.MasChat.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.postgresql.MasChat.config.AppConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Resized copies of uploaded images, at {@link #WIDTHS} pixels wide, for clients that do
+ * not need the original: avatars at 64, feed thumbnails at 320, full-screen at 1080.
+ *
+ * {@link MediaService} submits each new image blob once it is stored; generation runs on
+ * a small bounded pool so the upload response never waits for it. The image is decoded
+ * once, subsampled to roughly twice the largest width needed, and each smaller width is
+ * scaled down from the one above it. Variants are stored next to the original as
+ * {@code ab/cd/<sha256>_w<width>.jpg} (.png when the image has transparency), and the
+ * width-to-key map is written to media_blobs.variants. Widths at or above the original's
+ * are skipped.
+ *
+ * Work the pool had no room for, or lost to a restart, is picked up by {@link #sweep}.
+ * Lookups through {@link #variantsFor} are batched and cache completed maps only.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    public static final int[] WIDTHS = { 64, 320, 1080 };
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+    private static final float JPEG_QUALITY = 0.82f;
+    // Caps decoded size for very tall images, whose subsampling by width alone is not enough
+    private static final long MAX_DECODED_PIXELS = 16_000_000L;
+    private static final int SWEEP_BATCH = 50;
+    private static final int MAX_CACHED = 10_000;
+    private static final String NONE = "{}";
+
+    @Value("${app.media.variants.threads:2}")
+    private int threads;
+
+    @Value("${app.media.variants.queue-capacity:200}")
+    private int queueCapacity;
+
+    // Blobs younger than this are left to the pool rather than the sweep
+    @Value("${app.media.variants.sweep-delay-ms:60000}")
+    private long sweepDelayMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private MediaStorage storage;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ThreadPoolExecutor workers;
+
+    // Blobs queued or being generated, so the sweep does not submit them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Map<Integer, String>> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<Integer, String>> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger n = new AtomicInteger();
+        workers = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "image-variants-" + n.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            },
+            (r, executor) -> {
+                // Full: leave the blob pending for the sweep
+                if (r instanceof Task task) inFlight.remove(task.sha256);
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** Whether a storage key names a format variants are generated for. */
+    public static boolean isImage(String key) {
+        return IMAGE_EXTENSIONS.contains(MediaStorage.extensionOf(key));
+    }
+
+    /** Queues variant generation for a stored image blob; returns at once. */
+    public void submit(String sha256, String key) {
+        if (!isImage(key) || !inFlight.add(sha256)) return;
+        workers.execute(new Task(sha256, key));
+    }
+
+    private final class Task implements Runnable {
+        final String sha256;
+        final String key;
+
+        Task(String sha256, String key) {
+            this.sha256 = sha256;
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                generate(sha256, key);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not generate variants of {}: {}", key, e.getMessage());
+            } finally {
+                inFlight.remove(sha256);
+            }
+        }
+    }
+
+    // Images whose variants were dropped by a full queue or lost to a restart
+    @Scheduled(fixedDelayString = "${app.media.variants.sweep-ms:60000}")
+    public void sweep() {
+        try {
+            List<Map<String, Object>> pending = jdbcTemplate.queryForList(
+                "SELECT sha256, storage_key FROM media_blobs WHERE variants IS NULL AND created_at < ? " +
+                "ORDER BY created_at LIMIT " + SWEEP_BATCH,
+                new Timestamp(System.currentTimeMillis() - sweepDelayMillis));
+            for (Map<String, Object> row : pending) {
+                if (workers.getQueue().remainingCapacity() == 0) break;
+                submit(((String) row.get("sha256")).trim(), (String) row.get("storage_key"));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Image variant sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Variant URLs for each of the given media URLs that has any, as url → (width → url),
+     * widths ascending. Other URLs, and images whose variants are not ready yet, are left out.
+     */
+    public Map<String, Map<String, String>> variantsFor(Collection<String> urls) {
+        Map<String, String> keyByUrl = new HashMap<>();
+        for (String url : urls) {
+            String key = MediaService.keyOf(url);
+            if (key != null && isImage(key)) keyByUrl.put(url, key);
+        }
+        if (keyByUrl.isEmpty()) return Collections.emptyMap();
+
+        Map<String, Map<Integer, String>> found = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        synchronized (cache) {
+            for (String key : keyByUrl.values()) {
+                Map<Integer, String> cached = cache.get(key);
+                if (cached != null) found.put(key, cached);
+                else missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Map<Integer, String>> loaded = new HashMap<>();
+            namedJdbc.query(
+                "SELECT storage_key, variants FROM media_blobs WHERE storage_key IN (:keys) AND variants IS NOT NULL",
+                new MapSqlParameterSource("keys", missing),
+                rs -> { loaded.put(rs.getString(1), parse(rs.getString(2))); });
+            synchronized (cache) {
+                cache.putAll(loaded);
+            }
+            found.putAll(loaded);
+        }
+
+        Map<String, Map<String, String>> result = new HashMap<>();
+        keyByUrl.forEach((url, key) -> {
+            Map<Integer, String> variants = found.get(key);
+            if (variants == null || variants.isEmpty()) return;
+            Map<String, String> urlsByWidth = new LinkedHashMap<>();
+            variants.forEach((width, variantKey) -> urlsByWidth.put(String.valueOf(width), appConfig.getUploadUrl(variantKey)));
+            result.put(url, urlsByWidth);
+        });
+        return result;
+    }
+
+    /** Variant URLs of a single media URL; empty if it has none (yet). */
+    public Map<String, String> variantsOf(String url) {
+        if (url == null) return Collections.emptyMap();
+        return variantsFor(List.of(url)).getOrDefault(url, Collections.emptyMap());
+    }
+
+    /** The storage keys in a media_blobs.variants value, for deleting them with the blob. */
+    Collection<String> variantKeys(String json) {
+        return json == null ? List.of() : parse(json).values();
+    }
+
+    void generate(String sha256, String key) throws IOException {
+        BufferedImage image;
+        try (InputStream in = storage.open(key); ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            image = input == null ? null : decode(input);
+        } catch (IIOException e) {
+            // A reader took the format but could not decode the file; not worth retrying.
+            // Other (storage) I/O errors propagate and leave variants NULL for the sweep to retry.
+            logger.info("Not generating variants of {}: {}", key, e.getMessage());
+            image = null;
+        }
+
+        Map<Integer, String> variants = new TreeMap<>();
+        if (image != null) {
+            String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+            String prefix = key.substring(0, key.lastIndexOf('/') + 1) + sha256 + "_w";
+            for (int i = WIDTHS.length - 1; i >= 0; i--) {
+                if (WIDTHS[i] >= image.getWidth()) continue;
+                image = scale(image, WIDTHS[i]);
+                String variantKey = prefix + WIDTHS[i] + "." + format;
+                write(image, format, variantKey);
+                variants.put(WIDTHS[i], variantKey);
+            }
+        }
+
+        String json = variants.isEmpty() ? NONE : objectMapper.writeValueAsString(variants);
+        int updated = jdbcTemplate.update("UPDATE media_blobs SET variants = ? WHERE sha256 = ?", json, sha256);
+        if (updated == 0) {
+            // The blob was collected while its variants were being made
+            for (String variantKey : variants.values()) storage.delete(variantKey);
+        }
+    }
+
+    // Decodes the first frame, subsampled so it is no more than about twice the largest width needed
+    private static BufferedImage decode(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) return null;
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int largest = 0;
+            for (int w : WIDTHS) if (w < width) largest = Math.max(largest, w);
+            if (largest == 0) return null;
+
+            int step = Math.max(1, width / (2 * largest));
+            while ((long) (width / step) * (height / step) > MAX_DECODED_PIXELS) step++;
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(0, param);
+        } catch (RuntimeException e) {
+            // Readers throw unchecked exceptions (bad color profiles, truncated tables) on malformed
+            // files; these would fail the same way on every sweep, so report them as undecodable
+            throw new IIOException("Could not decode image: " + e, e);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    // Halves while that stays above the target, then one bilinear step, which keeps detail without a full resample
+    private static BufferedImage scale(BufferedImage source, int width) {
+        BufferedImage current = source;
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        while (current.getWidth() / 2 >= width) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2), type);
+        }
+        int height = Math.max(1, (int) Math.round((double) current.getHeight() * width / current.getWidth()));
+        return draw(current, width, height, type);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String format, String variantKey) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        StagedMedia staged = storage.stage(new ByteArrayInputStream(bytes.toByteArray()), Long.MAX_VALUE);
+        try {
+            storage.commit(staged, variantKey);
+        } finally {
+            storage.discard(staged);
+        }
+    }
+
+    private Map<Integer, String> parse(String json) {
+        if (json == null || NONE.equals(json)) return Collections.emptyMap();
+        try {
+            return new TreeMap<>(objectMapper.readValue(json, new TypeReference<Map<Integer, String>>() {}));
+        } catch (JsonProcessingException e) {
+            logger.warn("Unreadable media variants {}: {}", json, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.postgresql.MasChat.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.exception.MediaTooLargeException;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * {@link MediaStorage} on the local filesystem, under the directory served at /uploads/**.
+ *
+ * An upload is staged by streaming it into a temporary file in {@code .tmp/} with
+ * {@link FileChannel#transferFrom}, through a channel that hashes each chunk and stops
+ * the copy once the size limit is passed, so only one transfer buffer is ever on the
+ * heap. Committing moves the file to its key with an atomic rename.
+ *
+ * Parts of resumable uploads are files of their final size in {@code .parts/}, written
+ * with positional channel writes so chunks can land in any order without buffering; once
+ * complete they are hashed in one sequential pass and moved into {@code .tmp/}.
+ *
+ * Files written before this class existed stay where they are, directly under the root.
+ */
+@Service
+public class LocalMediaStorage implements MediaStorage {
+    private static final Logger logger = LoggerFactory.getLogger(LocalMediaStorage.class);
+
+    private static final String TMP_DIR = ".tmp";
+    private static final String PARTS_DIR = ".parts";
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    // Temporary files this old were left by a crash, not by an upload still in progress
+    private static final Duration STALE_TMP_AGE = Duration.ofHours(1);
+    // Parts outlive restarts; ResumableUploadService expires their sessions well before this
+    private static final Duration STALE_PART_AGE = Duration.ofDays(7);
+
+    @Value("${app.media.root:uploads}")
+    private String rootDir;
+
+    @Value("${app.media.max-upload-bytes:10485760}")
+    private long maxUploadBytes;
+
+    private Path root;
+    private Path tmp;
+    private Path parts;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(rootDir).toAbsolutePath().normalize();
+        tmp = root.resolve(TMP_DIR);
+        parts = root.resolve(PARTS_DIR);
+        Files.createDirectories(tmp);
+        Files.createDirectories(parts);
+        removeStale(tmp, STALE_TMP_AGE);
+        removeStale(parts, STALE_PART_AGE);
+    }
+
+    private static void removeStale(Path dir, Duration age) throws IOException {
+        Instant cutoff = Instant.now().minus(age);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> lastModified(p).toInstant().isBefore(cutoff)).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    logger.warn("Could not remove stale upload {}: {}", p, e.getMessage());
+                }
+            });
+        }
+    }
+
+    @Override
+    public long maxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    @Override
+    public StagedMedia stage(InputStream content, long maxBytes) throws IOException {
+        Path part = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            HashingChannel source = new HashingChannel(Channels.newChannel(content), digest, maxBytes);
+            long size = 0;
+            try (FileChannel target = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                while (!source.eof) size += target.transferFrom(source, size, TRANSFER_CHUNK);
+            }
+            return new StagedMedia(part.getFileName().toString(), HexFormat.of().formatHex(digest.digest()), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean commit(StagedMedia staged, String key) throws IOException {
+        Path part = staged(staged);
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            if (Files.exists(target)) return false;
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false; // another upload of the same content got there first
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    @Override
+    public void discard(StagedMedia staged) throws IOException {
+        Files.deleteIfExists(staged(staged));
+    }
+
+    @Override
+    public String createPart(long size) throws IOException {
+        Path part = Files.createTempFile(parts, "resumable-", ".part");
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            file.setLength(size); // sparse where the filesystem allows
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        return part.getFileName().toString();
+    }
+
+    @Override
+    public void writePart(String handle, long offset, long length, InputStream content) throws IOException {
+        Path part = part(handle);
+        try (FileChannel target = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            if (offset < 0 || length < 0 || offset + length > target.size()) {
+                throw new IllegalArgumentException("Range " + offset + "+" + length + " is outside the upload");
+            }
+            ReadableByteChannel source = Channels.newChannel(content);
+            long written = 0;
+            while (written < length) {
+                long n = target.transferFrom(source, offset + written, Math.min(TRANSFER_CHUNK, length - written));
+                if (n <= 0) break;
+                written += n;
+            }
+            if (written < length) throw new IllegalArgumentException("Chunk ended after " + written + " of " + length + " bytes");
+            if (content.read() >= 0) throw new IllegalArgumentException("Chunk is longer than " + length + " bytes");
+        }
+    }
+
+    @Override
+    public StagedMedia sealPart(String handle) throws IOException {
+        Path part = part(handle);
+        MessageDigest digest = sha256();
+        long size;
+        try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) TRANSFER_CHUNK);
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            size = source.size();
+        }
+        Path staged = Files.createTempFile(tmp, "upload-", ".part");
+        Files.move(part, staged, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new StagedMedia(staged.getFileName().toString(), HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    @Override
+    public void discardPart(String handle) throws IOException {
+        Files.deleteIfExists(part(handle));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    /** The stored file for a key, for serving it directly; empty if there is none or the key is invalid. */
+    public Optional<Path> file(String key) {
+        try {
+            Path path = resolve(key);
+            return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+        } catch (IllegalArgumentException e) { // includes InvalidPathException
+            return Optional.empty();
+        }
+    }
+
+    // The file for a key, refusing anything that would leave the root
+    Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.startsWith(tmp) || path.startsWith(parts)) throw new IllegalArgumentException("Invalid media key: " + key);
+        return path;
+    }
+
+    private Path staged(StagedMedia staged) {
+        Path part = tmp.resolve(staged.handle()).normalize();
+        if (!part.getParent().equals(tmp)) throw new IllegalArgumentException("Invalid staged media: " + staged.handle());
+        return part;
+    }
+
+    private Path part(String handle) {
+        Path part = parts.resolve(handle).normalize();
+        if (!part.getParent().equals(parts)) throw new IllegalArgumentException("Invalid upload part: " + handle);
+        return part;
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.from(Instant.now());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Hashes and counts what passes through; fails once more than maxBytes have been read
+    private static final class HashingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel source;
+        private final MessageDigest digest;
+        private final long maxBytes;
+        private long read;
+        boolean eof;
+
+        HashingChannel(ReadableByteChannel source, MessageDigest digest, long maxBytes) {
+            this.source = source;
+            this.digest = digest;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int n = source.read(dst);
+            if (n < 0) {
+                eof = true;
+                return n;
+            }
+            read += n;
+            if (read > maxBytes) throw new MediaTooLargeException(maxBytes);
+            ByteBuffer chunk = dst.duplicate();
+            chunk.position(start).limit(start + n);
+            digest.update(chunk);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return source.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The caller owns the underlying stream
+        }
+    }
+}
@@ -24,6 +24,8 @@ public class MarketplaceService {
     private MarketplaceOrderRepository orderRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private MediaService mediaService;
 
     public List<MarketplaceItem> getAllItems() {
         try {
@@ -68,7 +70,9 @@ public class MarketplaceService {
         // Set the validated seller
         item.setSeller(seller);
         
-        return itemRepository.save(item);
+        MarketplaceItem saved = itemRepository.save(item);
+        if (saved.getImages() != null) mediaService.retainAll(saved.getImages());
+        return saved;
     }
 
     public MarketplaceItem updateItem(Long id, MarketplaceItem updated) {
@@ -79,6 +83,10 @@ public class MarketplaceService {
             item.setNegotiable(updated.getNegotiable());
             item.setCategory(updated.getCategory());
             item.setCondition(updated.getCondition());
+            // Retain before releasing, so images kept across the edit never drop to zero references
+            List<String> oldImages = item.getImages() != null ? new ArrayList<>(item.getImages()) : List.of();
+            if (updated.getImages() != null) mediaService.retainAll(updated.getImages());
+            mediaService.releaseAll(oldImages);
             item.setImages(updated.getImages());
             item.setDeliveryMethod(updated.getDeliveryMethod());
             item.setLocation(updated.getLocation());
@@ -89,7 +97,11 @@ public class MarketplaceService {
     }
 
     public void deleteItem(Long id) {
-        itemRepository.deleteById(id);
+        itemRepository.findById(id).ifPresent(item -> {
+            List<String> images = item.getImages() != null ? new ArrayList<>(item.getImages()) : List.of();
+            itemRepository.delete(item);
+            mediaService.releaseAll(images);
+        });
     }
 
     public List<MarketplaceItem> searchItems(String keyword) {
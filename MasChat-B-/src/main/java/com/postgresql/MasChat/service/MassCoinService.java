@@ -59,13 +59,13 @@ public class MassCoinService {
     private ReelRepository reelRepository;
 
     @Autowired
-    private com.postgresql.MasChat.repository.ChatRepository chatRepository;
+    private MessageService messageService;
 
     @Autowired
-    private com.postgresql.MasChat.repository.MessageRepository messageRepository;
+    private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private UserSearchService userSearchService;
 
     // Initialize wallet with 1000 tokens for new users
     @Transactional
@@ -350,18 +350,6 @@ public class MassCoinService {
 
         // Create a chat message so both users see the tip in their chat history
         try {
-            com.postgresql.MasChat.model.Chat chat = chatRepository
-                .findByUser1AndUser2OrUser2AndUser1(sender, recipient, sender, recipient)
-                .orElseGet(() -> {
-                    com.postgresql.MasChat.model.Chat newChat = new com.postgresql.MasChat.model.Chat();
-                    newChat.setUser1(sender);
-                    newChat.setUser2(recipient);
-                    return chatRepository.save(newChat);
-                });
-
-            com.postgresql.MasChat.model.Message tipMessage = new com.postgresql.MasChat.model.Message();
-            tipMessage.setSender(sender);
-            tipMessage.setRecipient(recipient);
             // Compose a clear tip message including optional user message
             StringBuilder contentBuilder = new StringBuilder();
             contentBuilder.append("MASS TIP: ")
@@ -374,10 +362,8 @@ public class MassCoinService {
                 contentBuilder.append(" — \"").append(request.getMessage().trim()).append("\"");
             }
             contentBuilder.append(" (Tx #").append(transaction.getId()).append(")");
-            tipMessage.setContent(contentBuilder.toString());
-            tipMessage.setChat(chat);
-            tipMessage.setSentAt(java.time.LocalDateTime.now());
-            tipMessage = messageRepository.save(tipMessage);
+            com.postgresql.MasChat.dto.MessageDTO tipMessage = com.postgresql.MasChat.dto.MessageDTO.fromEntity(
+                messageService.sendMessage(sender.getId(), recipient.getId(), contentBuilder.toString()));
 
             // Broadcast to both users over WebSocket so it appears immediately
             try {
@@ -484,10 +470,9 @@ public class MassCoinService {
         }
         
         // Search by username or fullname
-        List<User> users = userRepository.findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(searchQuery, searchQuery);
+        List<User> users = userSearchService.search(searchQuery, 0, 10, currentUserId);
         
         return users.stream()
-            .filter(user -> !user.getId().equals(currentUserId)) // Exclude current user
             .map(user -> new MassCoinDTO.UserSearchResult(
                 user.getId(),
                 user.getUsername(),
@@ -495,7 +480,6 @@ public class MassCoinService {
                 user.getProfilePicture(),
                 user.getEmail()
             ))
-            .limit(10) // Limit results
             .toList();
     }
 
@@ -0,0 +1,70 @@
+package com.postgresql.MasChat.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.dto.MediaFileStatsDTO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Access counts for served media files.
+ *
+ * Totals by status go to Micrometer as media.requests and media.bytes.sent. Per-file counts
+ * would be unbounded as metric tags, so they are kept here instead, for the most recently
+ * served files only (bounded LRU), and read through {@link #top}.
+ */
+@Service
+public class MediaAccessStats {
+
+    private static final int MAX_TRACKED_FILES = 10_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static class FileStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder rangeRequests = new LongAdder();
+        final LongAdder notModified = new LongAdder();
+        final LongAdder bytesSent = new LongAdder();
+    }
+
+    private final Map<String, FileStats> files = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileStats> eldest) {
+            return size() > MAX_TRACKED_FILES;
+        }
+    };
+
+    public void record(String key, int status, long bytesSent) {
+        meterRegistry.counter("media.requests", "status", String.valueOf(status)).increment();
+        if (bytesSent > 0) meterRegistry.counter("media.bytes.sent").increment(bytesSent);
+
+        FileStats stats;
+        synchronized (files) {
+            stats = files.computeIfAbsent(key, k -> new FileStats());
+        }
+        stats.requests.increment();
+        if (status == 206) stats.rangeRequests.increment();
+        if (status == 304) stats.notModified.increment();
+        stats.bytesSent.add(bytesSent);
+    }
+
+    /** The {@code limit} tracked files that have sent the most bytes. */
+    public List<MediaFileStatsDTO> top(int limit) {
+        List<MediaFileStatsDTO> all = new ArrayList<>();
+        synchronized (files) {
+            files.forEach((key, s) -> all.add(new MediaFileStatsDTO(
+                key, s.requests.sum(), s.rangeRequests.sum(), s.notModified.sum(), s.bytesSent.sum())));
+        }
+        all.sort(Comparator.comparingLong(MediaFileStatsDTO::getBytesSent).reversed());
+        return all.subList(0, Math.min(Math.max(limit, 0), all.size()));
+    }
+}
@@ -0,0 +1,252 @@
+package com.postgresql.MasChat.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.postgresql.MasChat.config.AppConfig;
+import com.postgresql.MasChat.dto.MediaUploadDTO;
+
+/**
+ * Content-addressed, deduplicated uploads on top of {@link MediaStorage}.
+ *
+ * Each distinct content is stored once, under {@code ab/cd/<sha256><ext>}, with a row in
+ * media_blobs. An upload whose hash is already known returns the existing URL and its
+ * staged copy is dropped; a client that hashes first can skip the upload entirely with
+ * {@link #find}.
+ *
+ * Whatever stores a media URL calls {@link #retain} when it starts and {@link #release}
+ * when it stops pointing at it. Only URLs of content-addressed uploads are counted; other
+ * URLs are ignored. A blob is collected once its count has dropped back to zero and it has
+ * not been uploaded or retained for the grace period: right away when the last reference
+ * is deleted, otherwise by the periodic sweep. Uploads that were never referenced are kept.
+ * New images are handed to {@link ImageVariantService}, and their resized variants go with
+ * them when they are collected.
+ */
+@Service
+public class MediaService {
+    private static final Logger logger = LoggerFactory.getLogger(MediaService.class);
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final String UPLOADS_PATH = "/uploads/";
+    private static final int GC_BATCH = 500;
+
+    @Value("${app.media.gc-grace-ms:3600000}")
+    private long gcGraceMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private MediaStorage storage;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
+    public MediaUploadDTO upload(InputStream content, String extension) throws IOException {
+        return upload(content, extension, storage.maxUploadBytes());
+    }
+
+    public MediaUploadDTO upload(InputStream content, String extension, long maxBytes) throws IOException {
+        return upload(storage.stage(content, maxBytes), extension);
+    }
+
+    /** Stores content already staged in {@link MediaStorage}, such as a sealed resumable upload; the staged copy is dropped either way. */
+    public MediaUploadDTO upload(StagedMedia staged, String extension) throws IOException {
+        try {
+            return store(staged, extension);
+        } finally {
+            storage.discard(staged);
+        }
+    }
+
+    /** The stored upload with this SHA-256 (lowercase hex), if any. Throws IllegalArgumentException for a malformed hash. */
+    public Optional<MediaUploadDTO> find(String sha256) {
+        if (sha256 == null || !SHA256.matcher(sha256).matches()) throw new IllegalArgumentException("Invalid sha256: " + sha256);
+        return touch(sha256).map(row -> new MediaUploadDTO(appConfig.getUploadUrl(row.key()), sha256, row.size(), true));
+    }
+
+    /** The given URLs are now referenced once more each. Nulls and URLs of other media are ignored. */
+    public void retain(String... urls) {
+        retainAll(Arrays.asList(urls));
+    }
+
+    public void retainAll(Collection<String> urls) {
+        List<Object[]> rows = keysOf(urls).stream().map(key -> new Object[] { key }).toList();
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+            "UPDATE media_blobs SET ref_count = ref_count + 1, updated_at = CURRENT_TIMESTAMP WHERE storage_key = ?", rows);
+    }
+
+    /** One reference to each of the given URLs is gone; blobs left unreferenced are collected. */
+    public void release(String... urls) {
+        releaseAll(Arrays.asList(urls));
+    }
+
+    public void releaseAll(Collection<String> urls) {
+        List<String> keys = keysOf(urls);
+        if (keys.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+            "UPDATE media_blobs SET ref_count = ref_count - 1, " +
+            "released_at = CASE WHEN ref_count = 1 THEN CURRENT_TIMESTAMP ELSE released_at END " +
+            "WHERE storage_key = ? AND ref_count > 0",
+            keys.stream().map(key -> new Object[] { key }).toList());
+        List<Collected> collected = namedJdbc.query(
+            "DELETE FROM media_blobs WHERE storage_key IN (:keys) AND ref_count = 0 AND released_at IS NOT NULL " +
+            "AND updated_at < :cutoff RETURNING storage_key, variants",
+            new MapSqlParameterSource("keys", new HashSet<>(keys)).addValue("cutoff", graceCutoff()),
+            COLLECTED);
+        deleteFilesAfterCommit(collected);
+    }
+
+    /** A field's URL changed from {@code oldUrl} to {@code newUrl}. */
+    public void replace(String oldUrl, String newUrl) {
+        if (Objects.equals(oldUrl, newUrl)) return;
+        retain(newUrl);
+        release(oldUrl);
+    }
+
+    // Unreferenced blobs whose grace period had not passed when their last reference went
+    @Scheduled(fixedDelayString = "${app.media.gc-interval-ms:600000}")
+    public void collectGarbage() {
+        try {
+            List<Collected> collected;
+            do {
+                collected = jdbcTemplate.query(
+                    "DELETE FROM media_blobs WHERE sha256 IN (SELECT sha256 FROM media_blobs " +
+                    "WHERE ref_count = 0 AND released_at IS NOT NULL AND updated_at < ? " +
+                    "LIMIT " + GC_BATCH + " FOR UPDATE SKIP LOCKED) RETURNING storage_key, variants",
+                    COLLECTED, graceCutoff());
+                deleteFiles(collected);
+            } while (collected.size() == GC_BATCH);
+        } catch (RuntimeException e) {
+            logger.warn("Media garbage collection failed: {}", e.getMessage());
+        }
+    }
+
+    private MediaUploadDTO store(StagedMedia staged, String extension) throws IOException {
+        String sha256 = staged.sha256();
+        Optional<Blob> existing = touch(sha256);
+        if (existing.isPresent()) {
+            return new MediaUploadDTO(appConfig.getUploadUrl(existing.get().key()), sha256, existing.get().size(), true);
+        }
+
+        String key = sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + MediaStorage.extensionOf(extension);
+        storage.commit(staged, key);
+        boolean image = ImageVariantService.isImage(key);
+        String stored = jdbcTemplate.queryForObject(
+            "INSERT INTO media_blobs (sha256, storage_key, size_bytes, variants) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (sha256) DO UPDATE SET updated_at = CURRENT_TIMESTAMP RETURNING storage_key",
+            String.class, sha256, key, staged.size(), image ? null : "{}");
+        if (!key.equals(stored)) {
+            // The same content was stored concurrently under another extension
+            storage.delete(key);
+        } else if (image) {
+            afterCommit(() -> imageVariants.submit(sha256, key));
+        }
+        return new MediaUploadDTO(appConfig.getUploadUrl(stored), sha256, staged.size(), !key.equals(stored));
+    }
+
+    private record Blob(String key, long size) {}
+
+    private record Collected(String key, String variants) {}
+
+    private static final RowMapper<Collected> COLLECTED = (rs, i) -> new Collected(rs.getString(1), rs.getString(2));
+
+    // Looks the blob up and restarts its grace period, so a collection running now cannot take it
+    private Optional<Blob> touch(String sha256) {
+        return jdbcTemplate.query(
+            "UPDATE media_blobs SET updated_at = CURRENT_TIMESTAMP WHERE sha256 = ? RETURNING storage_key, size_bytes",
+            (rs, i) -> new Blob(rs.getString(1), rs.getLong(2)), sha256).stream().findFirst();
+    }
+
+    private Timestamp graceCutoff() {
+        return new Timestamp(System.currentTimeMillis() - gcGraceMillis);
+    }
+
+    private void deleteFilesAfterCommit(List<Collected> collected) {
+        if (!collected.isEmpty()) afterCommit(() -> deleteFiles(collected));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void deleteFiles(List<Collected> collected) {
+        if (collected.isEmpty()) return;
+        // A blob uploaded again after its row was deleted has a new row; keep its files
+        Set<String> live = new HashSet<>(namedJdbc.queryForList(
+            "SELECT storage_key FROM media_blobs WHERE storage_key IN (:keys)",
+            new MapSqlParameterSource("keys", collected.stream().map(Collected::key).toList()), String.class));
+        for (Collected blob : collected) {
+            if (live.contains(blob.key())) continue;
+            List<String> keys = new ArrayList<>(imageVariants.variantKeys(blob.variants()));
+            keys.add(blob.key());
+            for (String key : keys) {
+                try {
+                    storage.delete(key);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not delete media {}: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Storage keys of the content-addressed uploads among the URLs
+    private static List<String> keysOf(Collection<String> urls) {
+        List<String> keys = new ArrayList<>();
+        for (String url : urls) {
+            String key = keyOf(url);
+            if (key != null) keys.add(key);
+        }
+        return keys;
+    }
+
+    /** The storage key of a content-addressed upload's URL, or null for any other URL. */
+    static String keyOf(String url) {
+        if (url == null) return null;
+        int at = url.indexOf(UPLOADS_PATH);
+        String key = at >= 0 ? url.substring(at + UPLOADS_PATH.length()) : url;
+        int end = key.indexOf('?');
+        if (end >= 0) key = key.substring(0, end);
+        return KEY.matcher(key).matches() ? key : null;
+    }
+}
@@ -0,0 +1,72 @@
+package com.postgresql.MasChat.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Where uploaded media is kept. {@link LocalMediaStorage} writes under the uploads
+ * directory served at /uploads/**; an object-store implementation can replace it as the
+ * MediaStorage bean without changing callers.
+ *
+ * Storing is two steps so the caller can pick the key from the content hash:
+ * {@link #stage} streams the content aside, then {@link #commit} stores it under a key
+ * or {@link #discard} drops it. Keys are relative, '/'-separated paths;
+ * {@code AppConfig.getUploadUrl(key)} is the public URL.
+ */
+public interface MediaStorage {
+
+    /**
+     * Streams {@code content} aside, hashing it. Throws
+     * {@link com.postgresql.MasChat.exception.MediaTooLargeException} as soon as more than
+     * {@code maxBytes} have been read; nothing is kept in that case. The caller closes
+     * {@code content}.
+     */
+    StagedMedia stage(InputStream content, long maxBytes) throws IOException;
+
+    /** The configured maximum upload size, for {@link #stage}. */
+    long maxUploadBytes();
+
+    /**
+     * Stores staged content under {@code key}. If an object already exists there it is
+     * kept, the staged copy is dropped and false is returned.
+     */
+    boolean commit(StagedMedia staged, String key) throws IOException;
+
+    /** Drops staged content; does nothing once it has been committed. */
+    void discard(StagedMedia staged) throws IOException;
+
+    /**
+     * Starts content that arrives in pieces, in any order and possibly across restarts:
+     * reserves a part of {@code size} bytes for {@link #writePart} to fill, and returns
+     * its handle. {@link #sealPart} then stages it like {@link #stage} does.
+     */
+    String createPart(long size) throws IOException;
+
+    /**
+     * Writes exactly {@code length} bytes of {@code content} at {@code offset} in the part.
+     * Throws IllegalArgumentException if the range is outside the part or the content is
+     * shorter or longer than {@code length}. The caller closes {@code content}.
+     */
+    void writePart(String handle, long offset, long length, InputStream content) throws IOException;
+
+    /** Hashes a fully written part and turns it into staged content; the part is gone afterwards. */
+    StagedMedia sealPart(String handle) throws IOException;
+
+    /** Drops a part that will not be completed. */
+    void discardPart(String handle) throws IOException;
+
+    /** Reads a stored object; the caller closes the stream. */
+    InputStream open(String key) throws IOException;
+
+    /** Removes the object; false if there was none. */
+    boolean delete(String key) throws IOException;
+
+    /** The extension of an uploaded file's name, with its dot, or "" if it has none or an odd one. */
+    static String extensionOf(String filename) {
+        if (filename == null) return "";
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) return "";
+        String extension = filename.substring(dot).toLowerCase();
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+}
@@ -2,34 +2,41 @@ package com.postgresql.MasChat.service;
 
 import com.postgresql.MasChat.dto.MemoryDTO;
 import com.postgresql.MasChat.dto.MemoryStatsDTO;
-import com.postgresql.MasChat.model.Post;
-import com.postgresql.MasChat.model.Story;
-import com.postgresql.MasChat.model.Reel;
-import com.postgresql.MasChat.repository.PostRepository;
-import com.postgresql.MasChat.repository.StoryRepository;
-import com.postgresql.MasChat.repository.ReelRepository;
 import com.postgresql.MasChat.repository.LikeRepository;
 import com.postgresql.MasChat.repository.CommentRepository;
+import com.postgresql.MasChat.service.EngagementCounters.Metric;
+import com.postgresql.MasChat.service.EngagementService.Target;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * A user's memories: their posts, stories and reels by calendar date.
+ *
+ * Lists are read from the {@link MemoryCalendar} index with one paged query that joins
+ * the three content tables, newest first. Comment counts for the page are then read with
+ * one grouped query per content type, likes and shares come from the counter columns plus
+ * pending {@link EngagementCounters} deltas, and views from {@link ViewTracker}, so no
+ * entity collections are loaded.
+ */
 @Service
 public class MemoriesService {
 
-    @Autowired
-    private PostRepository postRepository;
-
-    @Autowired
-    private StoryRepository storyRepository;
-
-    @Autowired
-    private ReelRepository reelRepository;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final Map<String, List<String>> FILTERS = Map.of(
+        "all", List.of("post", "story", "reel"),
+        "posts", List.of("post"),
+        "stories", List.of("story"),
+        "reels", List.of("reel"));
 
     @Autowired
     private LikeRepository likeRepository;
@@ -37,166 +44,169 @@ public class MemoriesService {
     @Autowired
     private CommentRepository commentRepository;
 
-    public List<MemoryDTO> getMemories(Long userId, String filter, int year) {
-        List<MemoryDTO> memories = new ArrayList<>();
+    @Autowired
+    private ViewTracker viewTracker;
 
-        if (filter.equals("all") || filter.equals("posts")) {
-            List<Post> posts = postRepository.findByUserIdAndYear(userId, year);
-            memories.addAll(posts.stream().map(this::convertPostToMemory).collect(Collectors.toList()));
-        }
+    @Autowired
+    private EngagementCounters counters;
 
-        if (filter.equals("all") || filter.equals("stories")) {
-            List<Story> stories = storyRepository.findByUserIdAndYear(userId, year);
-            memories.addAll(stories.stream().map(this::convertStoryToMemory).collect(Collectors.toList()));
-        }
+    @Autowired
+    private ContentStats contentStats;
 
-        if (filter.equals("all") || filter.equals("reels")) {
-            List<Reel> reels = reelRepository.findByUserIdAndYear(userId, year);
-            memories.addAll(reels.stream().map(this::convertReelToMemory).collect(Collectors.toList()));
-        }
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
 
-        // Sort by date (newest first)
-        memories.sort((a, b) -> b.getDate().compareTo(a.getDate()));
-        return memories;
+    /** A year of memories of the types in {@code filter} (all, posts, stories or reels), newest first. */
+    public List<MemoryDTO> getMemories(Long userId, String filter, int year, int page, int size) {
+        List<String> types = FILTERS.get(filter);
+        if (types == null) return List.of();
+        return page(userId, types, "c.year = :year", new MapSqlParameterSource("year", year), page, size);
     }
 
+    /** Content totals from the {@link ContentStats} rollup, plus likes, comments and views received. */
     public MemoryStatsDTO getMemoryStats(Long userId) {
+        ContentStats.Totals totals = contentStats.totals(userId);
         MemoryStatsDTO stats = new MemoryStatsDTO();
-        
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime yearStart = now.withDayOfYear(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime monthStart = now.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime weekStart = now.minusDays(now.getDayOfWeek().getValue() - 1).withHour(0).withMinute(0).withSecond(0);
-
-        // Total memories (all time)
-        long totalPosts = postRepository.countByUserId(userId);
-        long totalStories = storyRepository.countByUserId(userId);
-        long totalReels = reelRepository.countByUserId(userId);
-        stats.setTotalMemories(totalPosts + totalStories + totalReels);
-
-        // This year
-        long yearPosts = postRepository.countByUserIdAndCreatedAtAfter(userId, yearStart);
-        long yearStories = storyRepository.countByUserIdAndCreatedAtAfter(userId, yearStart);
-        long yearReels = reelRepository.countByUserIdAndCreatedAtAfter(userId, yearStart);
-        stats.setThisYear(yearPosts + yearStories + yearReels);
-
-        // This month
-        long monthPosts = postRepository.countByUserIdAndCreatedAtAfter(userId, monthStart);
-        long monthStories = storyRepository.countByUserIdAndCreatedAtAfter(userId, monthStart);
-        long monthReels = reelRepository.countByUserIdAndCreatedAtAfter(userId, monthStart);
-        stats.setThisMonth(monthPosts + monthStories + monthReels);
-
-        // This week
-        long weekPosts = postRepository.countByUserIdAndCreatedAtAfter(userId, weekStart);
-        long weekStories = storyRepository.countByUserIdAndCreatedAtAfter(userId, weekStart);
-        long weekReels = reelRepository.countByUserIdAndCreatedAtAfter(userId, weekStart);
-        stats.setThisWeek(weekPosts + weekStories + weekReels);
+        stats.setTotalMemories(totals.total());
+        stats.setThisYear(totals.thisYear());
+        stats.setThisMonth(totals.thisMonth());
+        stats.setThisWeek(totals.thisWeek());
 
         // Total engagement
-        long totalLikes = likeRepository.countByPostUserId(userId);
-        long totalComments = commentRepository.countByPostUserId(userId);
-        stats.setTotalLikes(totalLikes);
-        stats.setTotalComments(totalComments);
-        stats.setTotalViews(0L); // TODO: Implement view tracking
+        stats.setTotalLikes(likeRepository.countByPostUserId(userId));
+        stats.setTotalComments(commentRepository.countByPostUserId(userId));
+        stats.setTotalViews(viewTracker.totalContentViews(userId));
         stats.setTotalShares(0L); // TODO: Implement share tracking
 
         return stats;
     }
 
-    public List<MemoryDTO> getOnThisDay(Long userId) {
-        LocalDate today = LocalDate.now();
-        int dayOfYear = today.getDayOfYear();
-        
-        List<MemoryDTO> memories = new ArrayList<>();
-
-        // Get posts from previous years on this day
-        List<Post> posts = postRepository.findByUserIdAndDayOfYear(userId, dayOfYear);
-        memories.addAll(posts.stream().map(this::convertPostToMemory).collect(Collectors.toList()));
-
-        // Get stories from previous years on this day
-        List<Story> stories = storyRepository.findByUserIdAndDayOfYear(userId, dayOfYear);
-        memories.addAll(stories.stream().map(this::convertStoryToMemory).collect(Collectors.toList()));
-
-        // Get reels from previous years on this day
-        List<Reel> reels = reelRepository.findByUserIdAndDayOfYear(userId, dayOfYear);
-        memories.addAll(reels.stream().map(this::convertReelToMemory).collect(Collectors.toList()));
-
-        return memories;
+    /**
+     * Memories from this month and day in earlier years, newest first. The endpoint serves
+     * these from {@link MemoryDigestService} when it has a digest for today.
+     */
+    public List<MemoryDTO> getOnThisDay(Long userId, int page, int size) {
+        return getOnThisDay(userId, LocalDate.now(), page, size);
     }
 
-    public List<MemoryDTO> getMemoriesByYear(Long userId, int year) {
-        return getMemories(userId, "all", year);
+    /** Memories from the month and day of {@code date} in years before it, newest first. */
+    public List<MemoryDTO> getOnThisDay(Long userId, LocalDate date, int page, int size) {
+        return page(userId, FILTERS.get("all"), "c.month = :month AND c.day = :day AND c.year < :year",
+            new MapSqlParameterSource("month", date.getMonthValue())
+                .addValue("day", date.getDayOfMonth())
+                .addValue("year", date.getYear()),
+            page, size);
     }
 
-    public List<MemoryDTO> getMemoriesByMonth(Long userId, int year, int month) {
-        List<MemoryDTO> memories = new ArrayList<>();
-
-        // Get posts for the specific month
-        List<Post> posts = postRepository.findByUserIdAndYearAndMonth(userId, year, month);
-        memories.addAll(posts.stream().map(this::convertPostToMemory).collect(Collectors.toList()));
+    public List<MemoryDTO> getMemoriesByYear(Long userId, int year, int page, int size) {
+        return getMemories(userId, "all", year, page, size);
+    }
 
-        // Get stories for the specific month
-        List<Story> stories = storyRepository.findByUserIdAndYearAndMonth(userId, year, month);
-        memories.addAll(stories.stream().map(this::convertStoryToMemory).collect(Collectors.toList()));
+    public List<MemoryDTO> getMemoriesByMonth(Long userId, int year, int month, int page, int size) {
+        return page(userId, FILTERS.get("all"), "c.year = :year AND c.month = :month",
+            new MapSqlParameterSource("year", year).addValue("month", month), page, size);
+    }
 
-        // Get reels for the specific month
-        List<Reel> reels = reelRepository.findByUserIdAndYearAndMonth(userId, year, month);
-        memories.addAll(reels.stream().map(this::convertReelToMemory).collect(Collectors.toList()));
+    private record Row(String type, long id, LocalDateTime createdAt, String text, String mediaUrl,
+                       long likeCount, long shareCount) {}
+
+    private List<MemoryDTO> page(Long userId, List<String> types, String dateCondition,
+                                 MapSqlParameterSource params, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        params.addValue("userId", userId)
+            .addValue("types", types)
+            .addValue("limit", limit)
+            .addValue("offset", (long) Math.max(0, page) * limit);
+        // Calendar rows whose content is gone (deleted outside the services) are skipped
+        List<Row> rows = namedJdbc.query(
+            "SELECT c.content_type, c.content_id, c.created_at, " +
+            "COALESCE(p.content, s.caption, r.caption), COALESCE(p.image_url, s.media_url, r.video_url), " +
+            "COALESCE(p.like_count, r.like_count, 0), COALESCE(p.share_count, r.share_count, 0) " +
+            "FROM memory_calendar c " +
+            "LEFT JOIN posts p ON c.content_type = 'post' AND p.id = c.content_id " +
+            "LEFT JOIN stories s ON c.content_type = 'story' AND s.id = c.content_id " +
+            "LEFT JOIN reels r ON c.content_type = 'reel' AND r.id = c.content_id " +
+            "WHERE c.user_id = :userId AND " + dateCondition + " AND c.content_type IN (:types) " +
+            "AND (p.id IS NOT NULL OR s.id IS NOT NULL OR r.id IS NOT NULL) " +
+            "ORDER BY c.created_at DESC, c.content_id DESC LIMIT :limit OFFSET :offset",
+            params,
+            (rs, i) -> new Row(rs.getString(1), rs.getLong(2), rs.getTimestamp(3).toLocalDateTime(),
+                rs.getString(4), rs.getString(5), rs.getLong(6), rs.getLong(7)));
+        if (rows.isEmpty()) return List.of();
+
+        Map<Long, Long> postComments = new HashMap<>();
+        Map<Long, Long> reelComments = new HashMap<>();
+        List<Long> postIds = idsOf(rows, "post");
+        List<Long> reelIds = idsOf(rows, "reel");
+        if (!postIds.isEmpty()) {
+            for (Object[] row : commentRepository.countByPostIds(postIds)) {
+                postComments.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+        }
+        if (!reelIds.isEmpty()) {
+            namedJdbc.query(
+                "SELECT reel_id, COUNT(*) FROM reel_comments WHERE reel_id IN (:ids) GROUP BY reel_id",
+                new MapSqlParameterSource("ids", reelIds),
+                rs -> { reelComments.put(rs.getLong(1), rs.getLong(2)); });
+        }
 
-        // Sort by date
-        memories.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+        List<MemoryDTO> memories = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            MemoryDTO memory = new MemoryDTO();
+            memory.setId(row.id());
+            memory.setType(row.type());
+            memory.setDescription(row.text());
+            memory.setOriginalContent(row.text());
+            memory.setDate(row.createdAt());
+            memory.setShares(0L);
+            switch (row.type()) {
+                case "post" -> {
+                    memory.setTitle("Post");
+                    memory.setImageUrl(row.mediaUrl() != null ? row.mediaUrl() : "");
+                    memory.setLikes(counters.read(Target.POST, row.id(), Metric.LIKES, row.likeCount()));
+                    memory.setComments(postComments.getOrDefault(row.id(), 0L));
+                    memory.setShares(counters.read(Target.POST, row.id(), Metric.SHARES, row.shareCount()));
+                    memory.setVideo(false);
+                }
+                case "story" -> {
+                    memory.setTitle("Story");
+                    memory.setImageUrl(row.mediaUrl());
+                    memory.setLikes(0L); // Stories typically don't have likes
+                    memory.setComments(0L); // Stories typically don't have comments
+                    memory.setVideo(false);
+                }
+                default -> {
+                    memory.setTitle("Reel");
+                    memory.setImageUrl(row.mediaUrl());
+                    memory.setLikes(counters.read(Target.REEL, row.id(), Metric.LIKES, row.likeCount()));
+                    memory.setComments(reelComments.getOrDefault(row.id(), 0L));
+                    memory.setShares(counters.read(Target.REEL, row.id(), Metric.SHARES, row.shareCount()));
+                    memory.setVideo(true);
+                    memory.setDuration("0"); // Reel model doesn't have duration field
+                }
+            }
+            memories.add(memory);
+        }
+        applyViews(memories);
         return memories;
     }
 
-    private MemoryDTO convertPostToMemory(Post post) {
-        MemoryDTO memory = new MemoryDTO();
-        memory.setId(post.getId());
-        memory.setType("post");
-        memory.setTitle("Post");
-        memory.setDescription(post.getContent());
-        memory.setImageUrl(post.getImageUrl() != null ? post.getImageUrl() : "");
-        memory.setDate(post.getCreatedAt());
-        memory.setLikes((long) post.getLikedBy().size());
-        memory.setComments((long) post.getComments().size());
-        memory.setShares(0L); // TODO: Implement shares
-        memory.setViews(0L); // TODO: Implement views
-        memory.setVideo(false);
-        memory.setOriginalContent(post.getContent());
-        return memory;
+    private static List<Long> idsOf(List<Row> rows, String type) {
+        return rows.stream().filter(r -> type.equals(r.type())).map(Row::id).collect(Collectors.toList());
     }
 
-    private MemoryDTO convertStoryToMemory(Story story) {
-        MemoryDTO memory = new MemoryDTO();
-        memory.setId(story.getId());
-        memory.setType("story");
-        memory.setTitle("Story");
-        memory.setDescription(story.getCaption());
-        memory.setImageUrl(story.getMediaUrl());
-        memory.setDate(story.getCreatedAt());
-        memory.setLikes(0L); // Stories typically don't have likes
-        memory.setComments(0L); // Stories typically don't have comments
-        memory.setShares(0L);
-        memory.setViews(0L);
-        memory.setVideo(false);
-        memory.setOriginalContent(story.getCaption());
-        return memory;
-    }
-
-    private MemoryDTO convertReelToMemory(Reel reel) {
-        MemoryDTO memory = new MemoryDTO();
-        memory.setId(reel.getId());
-        memory.setType("reel");
-        memory.setTitle("Reel");
-        memory.setDescription(reel.getCaption());
-        memory.setImageUrl(reel.getMediaUrl());
-        memory.setDate(reel.getCreatedAt());
-        memory.setLikes((long) reel.getLikedBy().size());
-        memory.setComments((long) reel.getComments().size());
-        memory.setShares((long) reel.getShareCount());
-        memory.setViews(0L);
-        memory.setVideo(true);
-        memory.setDuration("0"); // Reel model doesn't have duration field
-        memory.setOriginalContent(reel.getCaption());
-        return memory;
+    // One rollup lookup per memory type instead of one per memory
+    private void applyViews(List<MemoryDTO> memories) {
+        for (ViewTracker.Subject subject : List.of(ViewTracker.Subject.POST, ViewTracker.Subject.STORY, ViewTracker.Subject.REEL)) {
+            String type = subject.name().toLowerCase();
+            List<Long> ids = memories.stream().filter(m -> type.equals(m.getType())).map(MemoryDTO::getId).collect(Collectors.toList());
+            Map<Long, ViewTracker.ViewCount> counts = ids.isEmpty() ? Map.of() : viewTracker.counts(subject, ids);
+            for (MemoryDTO memory : memories) {
+                if (!type.equals(memory.getType())) continue;
+                ViewTracker.ViewCount views = counts.getOrDefault(memory.getId(), ViewTracker.ViewCount.NONE);
+                memory.setViews(views.total());
+                memory.setUniqueViews(views.unique());
+            }
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * The memory_calendar index: each post, story and reel under its owner and the calendar
+ * date it was created, which {@link MemoriesService} reads by (user, month, day) and
+ * (user, year). Content services call {@link #add} after saving new content and
+ * {@link #remove} after deleting it. Both keep the {@link ContentStats} day counts in
+ * step, and removing also drops any stored "on this day" digest the content was in; rows
+ * of deleted users go with them by cascade.
+ */
+@Service
+public class MemoryCalendar {
+
+    public enum Type {
+        POST, STORY, REEL;
+
+        /** The content_type column value, which is also the MemoryDTO type. */
+        public String code() {
+            return name().toLowerCase();
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MemoryDigestService digests;
+
+    @Autowired
+    private ContentStats stats;
+
+    private record Removed(Long userId, LocalDate createdOn) {}
+
+    public void add(Type type, Long contentId, Long userId, LocalDateTime createdAt) {
+        if (contentId == null || userId == null || createdAt == null) return;
+        int added = jdbcTemplate.update(
+            "INSERT INTO memory_calendar (content_type, content_id, user_id, created_at, year, month, day) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING",
+            type.code(), contentId, userId, Timestamp.valueOf(createdAt),
+            createdAt.getYear(), createdAt.getMonthValue(), createdAt.getDayOfMonth());
+        if (added > 0) stats.record(type, userId, createdAt.toLocalDate(), 1);
+    }
+
+    public void remove(Type type, Long contentId) {
+        List<Removed> removed = jdbcTemplate.query(
+            "DELETE FROM memory_calendar WHERE content_type = ? AND content_id = ? RETURNING user_id, created_at",
+            (rs, i) -> new Removed(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime().toLocalDate()),
+            type.code(), contentId);
+        for (Removed row : removed) {
+            stats.record(type, row.userId(), row.createdOn(), -1);
+            digests.evict(row.userId(), row.createdOn().getMonthValue(), row.createdOn().getDayOfMonth());
+        }
+    }
+}
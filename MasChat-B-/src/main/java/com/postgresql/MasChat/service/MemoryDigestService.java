@@ -0,0 +1,321 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.postgresql.MasChat.dto.MemoryDTO;
+import com.postgresql.MasChat.dto.MemoryDigestProgressDTO;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Precomputed "on this day" memories, so the morning rush on Memories reads one stored row
+ * per user instead of running the calendar query.
+ *
+ * Each night the digest for the coming day is built for every user seen within the active
+ * window: users are read in id order in waves of parallelism x chunk-size, the chunks of a
+ * wave run on a ForkJoinPool, and the run's cursor in memory_digest_runs advances after
+ * each wave. Digests are upserted, so a run cut short by a restart is picked up after its
+ * cursor by the resume check and repeating a wave only rewrites the same rows.
+ *
+ * Every node schedules the run, but a node only builds it while it holds the run's lease in
+ * memory_digest_runs (owner, lease_until), taken with one conditional update and renewed
+ * with each cursor advance. The other nodes find the lease held and return; a lease left by
+ * a node that died expires, and the next resume check anywhere takes the run over.
+ *
+ * {@link #getOnThisDay} serves today's digest when there is one and falls back to
+ * {@link MemoriesService} otherwise (inactive users, later pages, a missed run). Engagement
+ * counts in a digest are as of the night it was built; deleting content evicts the
+ * owner's digests for that day through {@link #evict}.
+ *
+ * Progress is reported as memories.digest.progress (0..1), memories.digest.users{result}
+ * and memories.digest.run, and per run through {@link #progress}.
+ */
+@Service
+public class MemoryDigestService {
+    private static final Logger logger = LoggerFactory.getLogger(MemoryDigestService.class);
+
+    // Stored memories per digest: the endpoint's default page size
+    private static final int DIGEST_SIZE = 100;
+    private static final int KEEP_RUNS_DAYS = 7;
+    private static final TypeReference<List<MemoryDTO>> MEMORY_LIST = new TypeReference<>() {};
+
+    @Value("${app.memories.digest.active-days:30}")
+    private int activeDays;
+
+    @Value("${app.memories.digest.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.memories.digest.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.memories.digest.lease-ms:600000}")
+    private long leaseMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MemoriesService memoriesService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ForkJoinPool workers;
+
+    // Runs a build off the scheduler thread, which the counter flushes also use
+    private ExecutorService coordinator;
+
+    // Identifies this node's leases on memory_digest_runs
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger runTotal = new AtomicInteger();
+    private final AtomicInteger runDone = new AtomicInteger();
+
+    private record Run(long cursor, int usersTotal, int usersDone) {}
+
+    @PostConstruct
+    public void init() {
+        workers = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("memory-digest-" + t.getPoolIndex());
+            return t;
+        }, null, false);
+        coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "memory-digest-run");
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("memories.digest.progress", this, s -> {
+            int total = s.runTotal.get();
+            return total == 0 ? 1.0 : Math.min(1.0, (double) s.runDone.get() / total);
+        }).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /** Today's "on this day" memories: from the stored digest for page 0 when it covers {@code size}. */
+    public List<MemoryDTO> getOnThisDay(Long userId, int page, int size) {
+        if (page == 0) {
+            List<MemoryDTO> digest = find(userId, LocalDate.now());
+            // A full digest may have been cut off at DIGEST_SIZE
+            if (digest != null && (digest.size() < DIGEST_SIZE || size <= digest.size())) {
+                meterRegistry.counter("memories.digest.requests", "result", "hit").increment();
+                return digest.subList(0, Math.min(Math.max(size, 1), digest.size()));
+            }
+        }
+        meterRegistry.counter("memories.digest.requests", "result", "miss").increment();
+        return memoriesService.getOnThisDay(userId, page, size);
+    }
+
+    /** Drops a user's stored digests for today onward that fall on {@code month}/{@code day}. */
+    public void evict(Long userId, int month, int day) {
+        LocalDate today = LocalDate.now();
+        for (LocalDate date : List.of(today, today.plusDays(1))) {
+            if (date.getMonthValue() == month && date.getDayOfMonth() == day) {
+                jdbcTemplate.update("DELETE FROM memory_digests WHERE user_id = ? AND digest_date = ?",
+                    userId, Date.valueOf(date));
+            }
+        }
+    }
+
+    /** The latest run, or null before the first one. */
+    public MemoryDigestProgressDTO progress() {
+        return jdbcTemplate.query(
+            "SELECT digest_date, users_total, users_done, started_at, finished_at FROM memory_digest_runs " +
+            "ORDER BY digest_date DESC LIMIT 1",
+            (rs, i) -> new MemoryDigestProgressDTO(rs.getDate(1).toLocalDate(), rs.getInt(2), rs.getInt(3),
+                rs.getTimestamp(4).toLocalDateTime(),
+                rs.getTimestamp(5) != null ? rs.getTimestamp(5).toLocalDateTime() : null))
+            .stream().findFirst().orElse(null);
+    }
+
+    @Scheduled(cron = "${app.memories.digest.cron:0 0 3 * * *}")
+    public void buildNightly() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        coordinator.execute(() -> build(date));
+    }
+
+    // Continues a run that a restart or failure left unfinished while its day is still current
+    @Scheduled(fixedDelayString = "${app.memories.digest.resume-ms:900000}",
+               initialDelayString = "${app.memories.digest.resume-ms:900000}")
+    public void resumeUnfinished() {
+        try {
+            List<LocalDate> dates = jdbcTemplate.query(
+                "SELECT digest_date FROM memory_digest_runs WHERE finished_at IS NULL AND digest_date >= ? ORDER BY digest_date",
+                (rs, i) -> rs.getDate(1).toLocalDate(), Date.valueOf(LocalDate.now()));
+            for (LocalDate date : dates) {
+                coordinator.execute(() -> build(date));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Memory digest resume check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the digests for {@code date}, continuing after the run's cursor if it was
+     * started before. Returns at once if a build is already running on this node or another
+     * node holds the run's lease.
+     */
+    public void build(LocalDate date) {
+        if (!running.compareAndSet(false, true)) return;
+        long started = System.nanoTime();
+        boolean leased = false;
+        try {
+            // Measured from the digest date, so a resumed run selects the same users
+            Timestamp activeSince = Timestamp.valueOf(date.atStartOfDay().minusDays(activeDays));
+            jdbcTemplate.update(
+                "INSERT INTO memory_digest_runs (digest_date, users_total) " +
+                "SELECT ?, COUNT(*) FROM users WHERE last_seen >= ? ON CONFLICT (digest_date) DO NOTHING",
+                Date.valueOf(date), activeSince);
+            Run run = jdbcTemplate.query(
+                "UPDATE memory_digest_runs SET owner = ?, lease_until = CURRENT_TIMESTAMP + ? * INTERVAL '1 millisecond' " +
+                "WHERE digest_date = ? AND finished_at IS NULL " +
+                "AND (owner IS NULL OR owner = ? OR lease_until < CURRENT_TIMESTAMP) " +
+                "RETURNING cursor_user_id, users_total, users_done",
+                (rs, i) -> new Run(rs.getLong(1), rs.getInt(2), rs.getInt(3)),
+                owner, leaseMillis, Date.valueOf(date), owner).stream().findFirst().orElse(null);
+            if (run == null) return; // finished, or being built by another node
+            leased = true;
+
+            long cursor = run.cursor();
+            int done = run.usersDone();
+            runTotal.set(run.usersTotal());
+            runDone.set(done);
+            logger.info("Building memory digests for {}: {} active users, resuming after user {}",
+                date, run.usersTotal(), cursor);
+
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE id > ? AND last_seen >= ? ORDER BY id LIMIT ?",
+                    Long.class, cursor, activeSince, parallelism * chunkSize);
+                if (ids.isEmpty()) break;
+
+                List<Callable<Void>> chunks = new ArrayList<>();
+                for (int i = 0; i < ids.size(); i += chunkSize) {
+                    List<Long> chunk = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+                    chunks.add(() -> {
+                        buildChunk(chunk, date);
+                        return null;
+                    });
+                }
+                for (Future<Void> result : workers.invokeAll(chunks)) {
+                    result.get();
+                }
+
+                cursor = ids.get(ids.size() - 1);
+                done += ids.size();
+                int renewed = jdbcTemplate.update(
+                    "UPDATE memory_digest_runs SET cursor_user_id = ?, users_done = ?, " +
+                    "lease_until = CURRENT_TIMESTAMP + ? * INTERVAL '1 millisecond' WHERE digest_date = ? AND owner = ?",
+                    cursor, done, leaseMillis, Date.valueOf(date), owner);
+                if (renewed == 0) {
+                    leased = false;
+                    logger.warn("Memory digest run for {} was taken over by another node after user {}", date, cursor);
+                    return;
+                }
+                runDone.set(done);
+            }
+
+            jdbcTemplate.update(
+                "UPDATE memory_digest_runs SET finished_at = CURRENT_TIMESTAMP, owner = NULL, lease_until = NULL " +
+                "WHERE digest_date = ? AND owner = ?",
+                Date.valueOf(date), owner);
+            leased = false;
+            LocalDate today = LocalDate.now();
+            jdbcTemplate.update("DELETE FROM memory_digests WHERE digest_date < ?", Date.valueOf(today));
+            jdbcTemplate.update("DELETE FROM memory_digest_runs WHERE digest_date < ?",
+                Date.valueOf(today.minusDays(KEEP_RUNS_DAYS)));
+            logger.info("Built memory digests for {}: {} users", date, done);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            logger.warn("Memory digest run for {} stopped: {}", date, cause.getMessage());
+        } finally {
+            if (leased) release(date);
+            meterRegistry.timer("memories.digest.run").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    // Gives up a run this node stopped early, so the next resume check need not wait out the lease
+    private void release(LocalDate date) {
+        try {
+            jdbcTemplate.update(
+                "UPDATE memory_digest_runs SET owner = NULL, lease_until = NULL WHERE digest_date = ? AND owner = ?",
+                Date.valueOf(date), owner);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release the memory digest run for {}: {}", date, e.getMessage());
+        }
+    }
+
+    // One upsert batch per chunk; a user whose digest fails is left to the live query
+    private void buildChunk(List<Long> userIds, LocalDate date) {
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            try {
+                List<MemoryDTO> memories = memoriesService.getOnThisDay(userId, date, 0, DIGEST_SIZE);
+                rows.add(new Object[] { userId, Date.valueOf(date), objectMapper.writeValueAsString(memories) });
+            } catch (JsonProcessingException | RuntimeException e) {
+                meterRegistry.counter("memories.digest.users", "result", "failed").increment();
+                logger.warn("Could not build memory digest of user {}: {}", userId, e.getMessage());
+            }
+        }
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO memory_digests (user_id, digest_date, memories) VALUES (?, ?, ?) " +
+            "ON CONFLICT (user_id, digest_date) DO UPDATE SET memories = EXCLUDED.memories, built_at = CURRENT_TIMESTAMP",
+            rows);
+        meterRegistry.counter("memories.digest.users", "result", "built").increment(rows.size());
+    }
+
+    private List<MemoryDTO> find(Long userId, LocalDate date) {
+        String json = jdbcTemplate.query(
+            "SELECT memories FROM memory_digests WHERE user_id = ? AND digest_date = ?",
+            (rs, i) -> rs.getString(1), userId, Date.valueOf(date)).stream().findFirst().orElse(null);
+        if (json == null) return null;
+        try {
+            return objectMapper.readValue(json, MEMORY_LIST);
+        } catch (JsonProcessingException e) {
+            logger.warn("Unreadable memory digest of user {} for {}: {}", userId, date, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.postgresql.MasChat.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only crash-recovery log for messages that have been delivered but not yet
+ * written to the database by {@link MessageWriteBehind}.
+ *
+ * Entries are JSON lines spread over numbered segment files. Each segment counts its
+ * unacknowledged entries; once a segment is closed and fully acknowledged it is deleted.
+ * Whatever is left on disk at startup is replayed, and since every entry carries its
+ * final message id the replay is idempotent.
+ */
+public class MessageJournal {
+    private static final Logger logger = LoggerFactory.getLogger(MessageJournal.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long SEGMENT_MAX_BYTES = 16L * 1024 * 1024;
+    // An idle segment is recycled once it is fully acknowledged and at least this large
+    private static final long RECYCLE_MIN_BYTES = 1024 * 1024;
+
+    private final Path dir;
+    private final ObjectMapper mapper;
+    private final Map<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long nextSegmentNo = 1;
+    private long appended;  // entries appended so far; guarded by this
+
+    // Group commit: one force covers every entry appended before it
+    private final Object syncLock = new Object();
+    private long synced;    // guarded by syncLock
+
+    public static class Entry {
+        private long id;
+        private long chatId;
+        private long senderId;
+        private long recipientId;
+        private String content;
+        private String image;
+        private LocalDateTime sentAt;
+        @JsonIgnore
+        private Segment segment;
+
+        public Entry() {}
+
+        public Entry(long id, long chatId, long senderId, long recipientId, String content, String image, LocalDateTime sentAt) {
+            this.id = id;
+            this.chatId = chatId;
+            this.senderId = senderId;
+            this.recipientId = recipientId;
+            this.content = content;
+            this.image = image;
+            this.sentAt = sentAt;
+        }
+
+        public long getId() { return id; }
+        public void setId(long id) { this.id = id; }
+        public long getChatId() { return chatId; }
+        public void setChatId(long chatId) { this.chatId = chatId; }
+        public long getSenderId() { return senderId; }
+        public void setSenderId(long senderId) { this.senderId = senderId; }
+        public long getRecipientId() { return recipientId; }
+        public void setRecipientId(long recipientId) { this.recipientId = recipientId; }
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+        public String getImage() { return image; }
+        public void setImage(String image) { this.image = image; }
+        public LocalDateTime getSentAt() { return sentAt; }
+        public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+    }
+
+    private static class Segment {
+        final long no;
+        final Path path;
+        final FileChannel channel;
+        final AtomicInteger pending = new AtomicInteger();
+        long size;
+        boolean closed;
+
+        Segment(long no, Path path, FileChannel channel) {
+            this.no = no;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    public MessageJournal(Path dir, ObjectMapper mapper) {
+        this.dir = dir;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Reads every segment left behind by a previous run, oldest first. A torn last line
+     * (the process died mid-write) is skipped. Call {@link #open()} once the entries are safe.
+     */
+    public List<Entry> recover() throws IOException {
+        Files.createDirectories(dir);
+        List<Entry> entries = new ArrayList<>();
+        for (Path path : listSegments()) {
+            nextSegmentNo = Math.max(nextSegmentNo, segmentNo(path) + 1);
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    try {
+                        entries.add(mapper.readValue(line, Entry.class));
+                    } catch (IOException e) {
+                        logger.warn("Skipping unreadable journal line in {}: {}", path.getFileName(), e.getMessage());
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /** Deletes the recovered segments and starts a fresh one. */
+    public synchronized void open() throws IOException {
+        for (Path path : listSegments()) {
+            Files.deleteIfExists(path);
+        }
+        rotate();
+    }
+
+    /** Appends an entry and returns its sequence number for {@link #sync(long)}. */
+    public synchronized long append(Entry entry) {
+        try {
+            byte[] line = mapper.writeValueAsBytes(entry);
+            if (active.size + line.length + 1 > SEGMENT_MAX_BYTES) {
+                rotate();
+            }
+            ByteBuffer buf = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            while (buf.hasRemaining()) {
+                active.channel.write(buf);
+            }
+            active.size += line.length + 1;
+            active.pending.incrementAndGet();
+            entry.segment = active;
+            return ++appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal message " + entry.getId(), e);
+        }
+    }
+
+    /**
+     * Returns once the entry with sequence number {@code seq} is on disk. Callers that
+     * arrive while a force is running wait for it and are usually covered by it, so
+     * concurrent senders share one force instead of paying for one each. Segments are
+     * forced when rotated, so forcing the active one covers every earlier entry.
+     */
+    public void sync(long seq) {
+        synchronized (syncLock) {
+            if (synced >= seq) return;
+            long target;
+            Segment current;
+            synchronized (this) {
+                target = appended;
+                current = active;
+            }
+            try {
+                current.channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync the message journal", e);
+            }
+            synced = target;
+        }
+    }
+
+    /** Marks entries as durable in the database, deleting segments that no longer hold anything pending. */
+    public synchronized void ack(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (entry.segment != null) {
+                entry.segment.pending.decrementAndGet();
+                entry.segment = null;
+            }
+        }
+        if (active.pending.get() == 0 && active.size >= RECYCLE_MIN_BYTES) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                logger.warn("Journal rotation failed: {}", e.getMessage());
+            }
+        }
+        segments.values().removeIf(this::deleteIfDone);
+    }
+
+    public synchronized void close() {
+        if (active != null) {
+            active.closed = true;
+        }
+        segments.values().removeIf(this::deleteIfDone);
+        for (Segment segment : segments.values()) {
+            try {
+                segment.channel.close();
+            } catch (IOException ignored) {
+                // left on disk for the next start to replay
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (active != null) {
+            active.channel.force(false);
+            active.closed = true;
+        }
+        long no = nextSegmentNo++;
+        Path path = dir.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, no, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        active = new Segment(no, path, channel);
+        segments.put(no, active);
+    }
+
+    private boolean deleteIfDone(Segment segment) {
+        if (!segment.closed || segment.pending.get() > 0) return false;
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not delete journal segment {}: {}", segment.path.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static long segmentNo(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.postgresql.MasChat.service;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.postgresql.MasChat.model.Message;
 import com.postgresql.MasChat.model.User;
@@ -15,6 +20,8 @@ import com.postgresql.MasChat.repository.MessageRepository;
 import com.postgresql.MasChat.repository.UserRepository;
 import com.postgresql.MasChat.repository.ChatRepository;
 import com.postgresql.MasChat.model.Chat;
+import com.postgresql.MasChat.dto.KeysetCursor;
+import com.postgresql.MasChat.dto.MessagePageDTO;
 import com.postgresql.MasChat.dto.RecentChatDTO;
 
 @Service
@@ -25,61 +32,49 @@ public class MessageService {
     private UserRepository userRepository;
     @Autowired
     private ChatRepository chatRepository;
+    @Autowired
+    private ChatDirectory chatDirectory;
+    @Autowired
+    private PresenceService presenceService;
+    @Autowired
+    private MediaService mediaService;
 
-    public Message sendMessage(Long senderId, Long recipientId, String content) {
-        User sender = userRepository.findById(senderId).orElseThrow();
-        User recipient = userRepository.findById(recipientId).orElseThrow();
-
-        // Find or create chat
-        Chat chat = chatRepository.findByUser1AndUser2OrUser2AndUser1(sender, recipient, sender, recipient)
-            .orElseGet(() -> {
-                Chat newChat = new Chat();
-                newChat.setUser1(sender);
-                newChat.setUser2(recipient);
-                return chatRepository.save(newChat);
-            });
+    public static final int DEFAULT_INBOX_PAGE_SIZE = 20;
+    public static final int MAX_INBOX_PAGE_SIZE = 50;
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    public static final int MAX_HISTORY_PAGE_SIZE = 200;
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59);
 
-        Message message = new Message();
-        message.setSender(sender);
-        message.setRecipient(recipient);
-        message.setContent(content);
-        message.setSentAt(LocalDateTime.now());
-        message.setChat(chat);
-        return messageRepository.save(message);
+    @Transactional
+    public Message sendMessage(Long senderId, Long recipientId, String content) {
+        return insertMessage(senderId, recipientId, content, null);
     }
 
+    @Transactional
     public Message sendImageMessage(Long senderId, Long recipientId, String imageUrl, String content) {
-        try {
-            // Validate inputs
-            if (senderId == null || recipientId == null || imageUrl == null || imageUrl.trim().isEmpty()) {
-                throw new IllegalArgumentException("Invalid parameters: senderId=" + senderId + ", recipientId=" + recipientId + ", imageUrl=" + imageUrl);
-            }
-            
-            User sender = userRepository.findById(senderId).orElseThrow();
-            User recipient = userRepository.findById(recipientId).orElseThrow();
-
-            // Find or create chat
-            Chat chat = chatRepository.findByUser1AndUser2OrUser2AndUser1(sender, recipient, sender, recipient)
-                .orElseGet(() -> {
-                    Chat newChat = new Chat();
-                    newChat.setUser1(sender);
-                    newChat.setUser2(recipient);
-                    return chatRepository.save(newChat);
-                });
-
-            Message message = new Message();
-            message.setSender(sender);
-            message.setRecipient(recipient);
-            message.setContent(content);
-            message.setImage(imageUrl); // Set the image URL
-            message.setSentAt(LocalDateTime.now());
-            message.setChat(chat);
-            return messageRepository.save(message);
-        } catch (Exception e) {
-            System.err.println("Error in sendImageMessage service: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+        // Validate inputs
+        if (senderId == null || recipientId == null || imageUrl == null || imageUrl.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid parameters: senderId=" + senderId + ", recipientId=" + recipientId + ", imageUrl=" + imageUrl);
         }
+        return insertMessage(senderId, recipientId, content, imageUrl);
+    }
+
+    // Send hot path: the chat id comes from ChatDirectory and users are bound by reference,
+    // so a message costs its INSERT plus the one-row chat summary UPDATE and no SELECTs.
+    private Message insertMessage(Long senderId, Long recipientId, String content, String imageUrl) {
+        Long chatId = chatDirectory.resolveChatId(senderId, recipientId);
+
+        Message message = new Message();
+        message.setSender(userRepository.getReferenceById(senderId));
+        message.setRecipient(userRepository.getReferenceById(recipientId));
+        message.setChat(chatRepository.getReferenceById(chatId));
+        message.setContent(content);
+        message.setImage(imageUrl);
+        message.setSentAt(LocalDateTime.now());
+        Message saved = messageRepository.save(message);
+        mediaService.retain(imageUrl);
+        recordInChatSummary(saved);
+        return saved;
     }
 
     public List<Message> getConversation(Long userId1, Long userId2) {
@@ -90,53 +85,129 @@ public class MessageService {
         return new ArrayList<>(unique.values());
     }
 
+    /**
+     * One bounded page of a conversation, newest first.
+     * <ul>
+     *   <li>no cursor: the latest {@code limit} messages</li>
+     *   <li>{@code before}: messages older than that cursor</li>
+     *   <li>{@code after}: messages newer than that cursor</li>
+     *   <li>{@code aroundMessageId}: the message plus about {@code limit / 2} on each side, for jumping to a search hit</li>
+     * </ul>
+     */
+    @Transactional(readOnly = true)
+    public MessagePageDTO getConversationPage(Long userId1, Long userId2, String before, String after,
+                                              Long aroundMessageId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        List<Long> chatIds = chatRepository.findBetweenUsers(userId1, userId2).stream().map(Chat::getId).toList();
+        if (chatIds.isEmpty()) {
+            return new MessagePageDTO(List.of(), null, null);
+        }
+
+        if (aroundMessageId != null) {
+            Message anchor = messageRepository.findById(aroundMessageId)
+                .filter(m -> m.getChat() != null && chatIds.contains(m.getChat().getId()))
+                .orElseThrow(() -> new IllegalArgumentException("Message " + aroundMessageId + " is not in this conversation"));
+            int newerCount = size / 2;
+            int olderCount = size - newerCount - 1;
+            List<Message> newer = messageRepository.findNewerInChats(chatIds, anchor.getSentAt(), anchor.getId(), PageRequest.of(0, newerCount + 1));
+            List<Message> older = messageRepository.findOlderInChats(chatIds, anchor.getSentAt(), anchor.getId(), PageRequest.of(0, olderCount + 1));
+            boolean hasNewer = newer.size() > newerCount;
+            boolean hasOlder = older.size() > olderCount;
+
+            List<Message> page = new ArrayList<>(size);
+            List<Message> newerShown = newer.subList(0, Math.min(newer.size(), newerCount));
+            for (int i = newerShown.size() - 1; i >= 0; i--) page.add(newerShown.get(i));
+            page.add(anchor);
+            page.addAll(older.subList(0, Math.min(older.size(), olderCount)));
+            return new MessagePageDTO(page,
+                hasOlder ? cursorOf(page.get(page.size() - 1)) : null,
+                hasNewer ? cursorOf(page.get(0)) : null);
+        }
+
+        KeysetCursor afterCursor = KeysetCursor.decode(after);
+        if (afterCursor != null) {
+            List<Message> newer = messageRepository.findNewerInChats(chatIds, afterCursor.getTime(), afterCursor.getId(), PageRequest.of(0, size + 1));
+            boolean hasNewer = newer.size() > size;
+            List<Message> page = new ArrayList<>(newer.subList(0, Math.min(newer.size(), size)));
+            Collections.reverse(page);
+            return new MessagePageDTO(page,
+                page.isEmpty() ? after : cursorOf(page.get(page.size() - 1)),
+                hasNewer ? cursorOf(page.get(0)) : null);
+        }
+
+        KeysetCursor beforeCursor = KeysetCursor.decode(before);
+        LocalDateTime at = beforeCursor != null ? beforeCursor.getTime() : END_OF_TIME;
+        Long id = beforeCursor != null ? beforeCursor.getId() : Long.MAX_VALUE;
+        List<Message> older = messageRepository.findOlderInChats(chatIds, at, id, PageRequest.of(0, size + 1));
+        boolean hasOlder = older.size() > size;
+        List<Message> page = older.subList(0, Math.min(older.size(), size));
+        return new MessagePageDTO(page,
+            hasOlder ? cursorOf(page.get(page.size() - 1)) : null,
+            beforeCursor != null && !page.isEmpty() ? cursorOf(page.get(0)) : null);
+    }
+
+    private static String cursorOf(Message m) {
+        return KeysetCursor.encode(m.getSentAt(), m.getId());
+    }
+
     public List<RecentChatDTO> getRecentChats(Long userId) {
+        return getRecentChats(userId, null, DEFAULT_INBOX_PAGE_SIZE);
+    }
+
+    /**
+     * One inbox page read from the per-chat summary columns, newest activity first.
+     * {@code cursor} is the {@link RecentChatDTO#getCursor()} of the last item already shown.
+     */
+    @Transactional(readOnly = true)
+    public List<RecentChatDTO> getRecentChats(Long userId, String cursor, int limit) {
         // Ensure user exists or throw
-        userRepository.findById(userId).orElseThrow();
+        if (!userRepository.existsById(userId)) {
+            throw new java.util.NoSuchElementException("User not found: " + userId);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_INBOX_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDateTime beforeAt = after != null ? after.getTime() : END_OF_TIME;
+        Long beforeId = after != null ? after.getId() : Long.MAX_VALUE;
+        PageRequest page = PageRequest.of(0, size);
 
-        // Get all conversations for this user
-        List<Message> allMessages = messageRepository.findBySenderIdOrRecipientIdOrderBySentAtDesc(userId);
-        
-        // Group by conversation partner and get latest message
-        return allMessages.stream()
-            .collect(Collectors.groupingBy(msg -> {
-                if (msg.getSender().getId().equals(userId)) {
-                    return msg.getRecipient();
-                } else {
-                    return msg.getSender();
-                }
-            }))
-            .entrySet().stream()
-            .map(entry -> {
-                User partner = entry.getKey();
-                List<Message> conversation = entry.getValue();
-                Message latestMessage = conversation.get(0); // Already sorted by sentAt desc
-                
-                // Count unread messages
-                long unreadCount = conversation.stream()
-                    .filter(msg -> !msg.getSender().getId().equals(userId) && !msg.isRead())
-                    .count();
-                
-                return new RecentChatDTO(
+        // Each side is already ordered; merge and keep the first page
+        List<Chat> chats = Stream.concat(
+                chatRepository.findInboxPageAsUser1(userId, beforeAt, beforeId, page).stream(),
+                chatRepository.findInboxPageAsUser2(userId, beforeAt, beforeId, page).stream())
+            .sorted(Comparator.comparing(Chat::getLastActivityAt).thenComparing(Chat::getId).reversed())
+            .limit(size)
+            .toList();
+
+        return chats.stream()
+            .map(chat -> {
+                boolean isUser1 = chat.getUser1().getId().equals(userId);
+                User partner = isUser1 ? chat.getUser2() : chat.getUser1();
+                long unreadCount = isUser1 ? chat.getUser1UnreadCount() : chat.getUser2UnreadCount();
+
+                RecentChatDTO dto = new RecentChatDTO(
                     partner.getId(),
                     partner.getUsername(),
                     partner.getFullName(),
                     partner.getProfilePicture(),
-                    latestMessage.getContent(),
-                    latestMessage.getSentAt(),
+                    chat.getLastMessagePreview(),
+                    chat.getLastActivityAt(),
                     unreadCount,
-                    partner.getOnline() != null ? partner.getOnline() : false
+                    presenceService.isOnline(partner.getId())
                 );
+                dto.setChatId(chat.getId());
+                dto.setCursor(KeysetCursor.encode(chat.getLastActivityAt(), chat.getId()));
+                return dto;
             })
             .collect(Collectors.toList());
     }
 
+    @Transactional
     public void markMessagesAsRead(Long userId, Long partnerId) {
-        List<Message> unreadMessages = messageRepository.findByRecipientIdAndSenderIdAndReadFalse(userId, partnerId);
-        unreadMessages.forEach(msg -> msg.setRead(true));
-        messageRepository.saveAll(unreadMessages);
+        messageRepository.markReadFromSender(userId, partnerId);
+        chatRepository.clearUnread(userId, partnerId);
     }
 
+    @Transactional
     public void deleteMessage(Long messageId, Long userId) {
         Message message = messageRepository.findById(messageId).orElseThrow();
         
@@ -146,8 +217,13 @@ public class MessageService {
         }
         
         messageRepository.delete(message);
+        mediaService.release(message.getImage());
+        if (message.getChat() != null && message.getId().equals(message.getChat().getLastMessageId())) {
+            refreshChatSummary(message.getChat());
+        }
     }
 
+    @Transactional
     public void deleteConversation(Long userId, Long partnerId) {
         User user = userRepository.findById(userId).orElseThrow();
         User partner = userRepository.findById(partnerId).orElseThrow();
@@ -157,5 +233,29 @@ public class MessageService {
         );
         
         messageRepository.deleteAll(conversation);
+        messageRepository.flush();
+        mediaService.releaseAll(conversation.stream().map(Message::getImage).toList());
+        chatRepository.findBetweenUsers(userId, partnerId).forEach(this::refreshChatSummary);
+    }
+
+    private void recordInChatSummary(Message message) {
+        chatRepository.recordMessage(
+            message.getChat().getId(),
+            message.getId(),
+            Chat.preview(message.getContent(), message.getImage()),
+            message.getSentAt(),
+            message.getRecipient().getId()
+        );
+    }
+
+    // Rebuild a chat's summary from its remaining messages; only used on the rare delete paths
+    private void refreshChatSummary(Chat chat) {
+        Message last = messageRepository.findFirstByChat_IdOrderBySentAtDescIdDesc(chat.getId()).orElse(null);
+        chat.setLastMessageId(last != null ? last.getId() : null);
+        chat.setLastMessagePreview(last != null ? Chat.preview(last.getContent(), last.getImage()) : null);
+        chat.setLastActivityAt(last != null ? last.getSentAt() : null);
+        chat.setUser1UnreadCount((int) messageRepository.countByChat_IdAndRecipient_IdAndReadFalse(chat.getId(), chat.getUser1().getId()));
+        chat.setUser2UnreadCount((int) messageRepository.countByChat_IdAndRecipient_IdAndReadFalse(chat.getId(), chat.getUser2().getId()));
+        chatRepository.save(chat);
     }
 }
@@ -0,0 +1,427 @@
+package com.postgresql.MasChat.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.postgresql.MasChat.dto.MessageDTO;
+import com.postgresql.MasChat.model.Chat;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind persistence for WebSocket chat messages.
+ *
+ * When enabled, {@link #submit} assigns the message its final id from a block of
+ * {@code messages} sequence values, appends it to the {@link MessageJournal} and returns
+ * once the journal entry is on disk, so the caller only delivers messages that survive a
+ * crash. Concurrent senders share journal syncs (group commit). Persister threads then
+ * insert queued messages with JDBC batches, flushing when a batch fills or the flush
+ * window closes.
+ *
+ * Each chat is pinned to one persister, so its messages are written in send order.
+ * Queued plus in-flight messages are capped; when the cap is reached senders wait up to
+ * the enqueue timeout and are then rejected. Inserts use ON CONFLICT (id) DO NOTHING,
+ * so replaying the journal after a crash never duplicates a message. A message the
+ * database rejects outright is moved to message_dead_letters rather than dropped.
+ */
+@Service
+public class MessageWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    private static final int ID_BLOCK_SIZE = 100;
+    private static final int MAX_CONTENT_LENGTH = 1000;
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    private static final int SHUTDOWN_RETRIES = 3;
+
+    private static final String DEAD_LETTER_SQL =
+        "INSERT INTO message_dead_letters (id, chat_id, sender_id, recipient_id, content, image, sent_at, error) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO messages (id, chat_id, sender_id, recipient_id, content, image, sent_at, read, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, FALSE, ?) ON CONFLICT (id) DO NOTHING";
+
+    // Same effect as ChatRepository.recordMessage, for a whole batch of one chat's messages
+    private static final String SUMMARY_SQL =
+        "UPDATE chats SET " +
+        "last_message_id = CASE WHEN last_activity_at IS NULL OR last_activity_at <= ? THEN ? ELSE last_message_id END, " +
+        "last_message_preview = CASE WHEN last_activity_at IS NULL OR last_activity_at <= ? THEN ? ELSE last_message_preview END, " +
+        "last_activity_at = CASE WHEN last_activity_at IS NULL OR last_activity_at <= ? THEN ? ELSE last_activity_at END, " +
+        "user1_unread_count = user1_unread_count + CASE WHEN user1_id = ? THEN ? WHEN user1_id = ? THEN ? ELSE 0 END, " +
+        "user2_unread_count = user2_unread_count + CASE WHEN user2_id = ? THEN ? WHEN user2_id = ? THEN ? ELSE 0 END " +
+        "WHERE id = ?";
+
+    @Value("${app.chat.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.chat.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.chat.write-behind.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${app.chat.write-behind.max-backlog:20000}")
+    private int maxBacklog;
+
+    @Value("${app.chat.write-behind.enqueue-timeout-ms:2000}")
+    private long enqueueTimeoutMs;
+
+    @Value("${app.chat.write-behind.persisters:2}")
+    private int persisterCount;
+
+    @Value("${app.chat.write-behind.journal-dir:data/chat-journal}")
+    private String journalDir;
+
+    @Autowired
+    private ChatDirectory chatDirectory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MediaService mediaService;
+
+    private MessageJournal journal;
+    private TransactionTemplate tx;
+    private Semaphore backlog;
+    private final List<Persister> persisters = new ArrayList<>();
+    private final Deque<Long> idBlock = new ArrayDeque<>();
+    private volatile boolean running;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        tx = new TransactionTemplate(transactionManager);
+        backlog = new Semaphore(maxBacklog);
+        journal = new MessageJournal(Paths.get(journalDir), objectMapper);
+
+        List<MessageJournal.Entry> recovered = journal.recover();
+        if (!recovered.isEmpty()) {
+            logger.info("Replaying {} journaled chat messages", recovered.size());
+            for (int from = 0; from < recovered.size(); from += batchSize) {
+                List<MessageJournal.Entry> batch = recovered.subList(from, Math.min(recovered.size(), from + batchSize));
+                if (!persist(batch)) {
+                    throw new IllegalStateException("Could not replay chat message journal; refusing to start write-behind");
+                }
+            }
+        }
+        journal.open();
+
+        running = true;
+        for (int i = 0; i < Math.max(1, persisterCount); i++) {
+            Persister persister = new Persister(i);
+            persisters.add(persister);
+            persister.start();
+        }
+        logger.info("Chat write-behind enabled: {} persisters, batch {}, window {} ms, backlog {}",
+            persisters.size(), batchSize, flushIntervalMs, maxBacklog);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) return;
+        running = false;
+        for (Persister persister : persisters) {
+            persister.interrupt();
+        }
+        for (Persister persister : persisters) {
+            try {
+                persister.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+    }
+
+    /**
+     * Accepts a message for delivery and later persistence. Blocks while the backlog is
+     * full and throws {@link IllegalStateException} if it stays full past the enqueue timeout.
+     */
+    public MessageDTO submit(Long senderId, Long recipientId, String content) {
+        if (!running) {
+            throw new IllegalStateException("Chat write-behind is not running");
+        }
+        if (content == null || content.length() > MAX_CONTENT_LENGTH) {
+            throw new IllegalArgumentException("Message content is required and at most " + MAX_CONTENT_LENGTH + " characters");
+        }
+        try {
+            if (!backlog.tryAcquire(enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Chat message backlog is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for chat backlog");
+        }
+
+        try {
+            Long chatId = chatDirectory.resolveChatId(senderId, recipientId);
+            MessageJournal.Entry entry = new MessageJournal.Entry(
+                nextId(), chatId, senderId, recipientId, content, null, LocalDateTime.now());
+            long seq = journal.append(entry);
+            try {
+                journal.sync(seq);
+            } catch (UncheckedIOException e) {
+                // Not durable in the journal: write it through before it is delivered
+                logger.warn("Journal sync failed, storing message {} directly: {}", entry.getId(), e.getMessage());
+                if (!persist(List.of(entry))) {
+                    throw new IllegalStateException("Could not store chat message " + entry.getId());
+                }
+                journal.ack(List.of(entry));
+                backlog.release();
+                return toDto(entry);
+            }
+            persisters.get((int) Math.floorMod(chatId, (long) persisters.size())).queue.add(entry);
+            return toDto(entry);
+        } catch (RuntimeException e) {
+            backlog.release();
+            throw e;
+        }
+    }
+
+    public int getBacklog() {
+        return backlog == null ? 0 : maxBacklog - backlog.availablePermits();
+    }
+
+    private synchronized long nextId() {
+        if (idBlock.isEmpty()) {
+            idBlock.addAll(jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('messages', 'id')) FROM generate_series(1, ?)",
+                Long.class, ID_BLOCK_SIZE));
+        }
+        return idBlock.removeFirst();
+    }
+
+    private static MessageDTO toDto(MessageJournal.Entry entry) {
+        MessageDTO dto = new MessageDTO();
+        dto.setId(entry.getId());
+        dto.setChatId(entry.getChatId());
+        dto.setSender(new MessageDTO.Participant(entry.getSenderId()));
+        dto.setRecipient(new MessageDTO.Participant(entry.getRecipientId()));
+        dto.setContent(entry.getContent());
+        dto.setImage(entry.getImage());
+        dto.setSentAt(entry.getSentAt());
+        dto.setRead(false);
+        return dto;
+    }
+
+    private class Persister extends Thread {
+        final BlockingQueue<MessageJournal.Entry> queue = new LinkedBlockingQueue<>();
+
+        Persister(int index) {
+            super("chat-persister-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<MessageJournal.Entry> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    MessageJournal.Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize) {
+                        long wait = deadline - System.nanoTime();
+                        MessageJournal.Entry next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) break;
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    // Shutdown: keep draining without waiting
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.isEmpty()) continue;
+
+                if (persist(batch)) {
+                    journal.ack(batch);
+                }
+                backlog.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch, retrying transient failures with backoff. A batch rejected by a
+     * constraint is retried row by row so one bad message cannot block its chat, and a
+     * single rejected row goes to message_dead_letters. Returns false only when giving up
+     * during shutdown, leaving the rows in the journal.
+     */
+    private boolean persist(List<MessageJournal.Entry> batch) {
+        long backoff = 100;
+        int attempts = 0;
+        while (true) {
+            RuntimeException failure;
+            try {
+                tx.executeWithoutResult(status -> insertBatch(batch));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                if (batch.size() > 1) {
+                    boolean all = true;
+                    for (MessageJournal.Entry entry : batch) {
+                        all &= persist(List.of(entry));
+                    }
+                    return all;
+                }
+                String reason = e.getMostSpecificCause().getMessage();
+                try {
+                    deadLetter(batch.get(0), reason);
+                    logger.error("Chat message {} rejected by the database, moved to message_dead_letters: {}",
+                        batch.get(0).getId(), reason);
+                    return true;
+                } catch (RuntimeException dl) {
+                    failure = dl;
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            attempts++;
+            if (!running && attempts >= SHUTDOWN_RETRIES) {
+                logger.error("Leaving {} chat messages in the journal after {} failed attempts: {}", batch.size(), attempts, failure.getMessage());
+                return false;
+            }
+            logger.warn("Chat message batch of {} failed, retrying in {} ms: {}", batch.size(), backoff, failure.getMessage());
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ie) {
+                // Shutdown; the attempt limit ends the loop
+                Thread.currentThread().interrupt();
+            }
+            backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+        }
+    }
+
+    private void deadLetter(MessageJournal.Entry e, String reason) {
+        jdbcTemplate.update(DEAD_LETTER_SQL, e.getId(), e.getChatId(), e.getSenderId(), e.getRecipientId(),
+            e.getContent(), e.getImage(), Timestamp.valueOf(e.getSentAt()), reason);
+    }
+
+    private void insertBatch(List<MessageJournal.Entry> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                MessageJournal.Entry e = batch.get(i);
+                ps.setLong(1, e.getId());
+                ps.setLong(2, e.getChatId());
+                ps.setLong(3, e.getSenderId());
+                ps.setLong(4, e.getRecipientId());
+                ps.setString(5, e.getContent());
+                ps.setString(6, e.getImage());
+                ps.setTimestamp(7, Timestamp.valueOf(e.getSentAt()));
+                ps.setTimestamp(8, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+
+        // Fold the rows that were actually inserted into one summary update per chat
+        Map<Long, ChatDelta> deltas = new LinkedHashMap<>();
+        List<String> images = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (counts[i] == 0) continue; // already stored by an earlier attempt or replay
+            MessageJournal.Entry e = batch.get(i);
+            deltas.computeIfAbsent(e.getChatId(), k -> new ChatDelta()).add(e);
+            if (e.getImage() != null) images.add(e.getImage());
+        }
+        mediaService.retainAll(images);
+        if (deltas.isEmpty()) return;
+
+        List<Map.Entry<Long, ChatDelta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(SUMMARY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Long chatId = rows.get(i).getKey();
+                ChatDelta d = rows.get(i).getValue();
+                Timestamp at = Timestamp.valueOf(d.last.getSentAt());
+                String preview = Chat.preview(d.last.getContent(), d.last.getImage());
+                ps.setTimestamp(1, at);
+                ps.setLong(2, d.last.getId());
+                ps.setTimestamp(3, at);
+                ps.setString(4, preview);
+                ps.setTimestamp(5, at);
+                ps.setTimestamp(6, at);
+                for (int side = 0; side < 2; side++) {
+                    int base = 7 + side * 4;
+                    ps.setLong(base, d.recipientA);
+                    ps.setInt(base + 1, d.unreadA);
+                    ps.setLong(base + 2, d.recipientB);
+                    ps.setInt(base + 3, d.unreadB);
+                }
+                ps.setLong(15, chatId);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    // Net effect of one batch on a chat: its newest message and unread increments per recipient
+    private static class ChatDelta {
+        MessageJournal.Entry last;
+        long recipientA = -1;
+        int unreadA;
+        long recipientB = -1;
+        int unreadB;
+
+        void add(MessageJournal.Entry e) {
+            if (last == null || e.getSentAt().isAfter(last.getSentAt())
+                    || (e.getSentAt().isEqual(last.getSentAt()) && e.getId() > last.getId())) {
+                last = e;
+            }
+            if (recipientA == -1 || recipientA == e.getRecipientId()) {
+                recipientA = e.getRecipientId();
+                unreadA++;
+            } else {
+                recipientB = e.getRecipientId();
+                unreadB++;
+            }
+        }
+    }
+}
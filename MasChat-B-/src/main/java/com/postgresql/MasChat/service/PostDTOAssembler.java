@@ -0,0 +1,156 @@
+package com.postgresql.MasChat.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.postgresql.MasChat.dto.AttachmentDTO;
+import com.postgresql.MasChat.dto.PostDTO;
+import com.postgresql.MasChat.dto.UserDTO;
+import com.postgresql.MasChat.model.Post;
+import com.postgresql.MasChat.model.User;
+import com.postgresql.MasChat.repository.AttachmentRepository;
+import com.postgresql.MasChat.repository.CommentRepository;
+import com.postgresql.MasChat.repository.PostRepository;
+import com.postgresql.MasChat.repository.UserRepository;
+import com.postgresql.MasChat.service.EngagementCounters.Metric;
+import com.postgresql.MasChat.service.EngagementService.Target;
+
+/**
+ * Builds {@link PostDTO}s for a list of posts with a fixed number of queries, however
+ * long the list: one for the authors, one grouped count for comments, one for the
+ * viewer's likes, one for attachments and a cached one for the resized variants of
+ * post images and avatars. Like and share counts come from the posts' counter columns
+ * plus pending {@link EngagementCounters} deltas. The posts' lazy collections are
+ * never touched.
+ *
+ * When the viewer is known, {@code likedBy} holds just the viewer's id if they liked
+ * the post. Callers that do not pass a viewer still get the full liker id list, read
+ * in one extra query, for clients that derive like state from it.
+ */
+@Service
+public class PostDTOAssembler {
+    // Keeps IN lists well under the driver's bind parameter limit
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @Autowired
+    private EngagementCounters counters;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
+    @Transactional(readOnly = true)
+    public PostDTO toDto(Post post, Long viewerId) {
+        if (post == null) return null;
+        return toDtos(List.of(post), viewerId).get(0);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PostDTO> toDtos(List<Post> posts, Long viewerId) {
+        if (posts.isEmpty()) return List.of();
+
+        List<Long> postIds = new ArrayList<>(posts.size());
+        Set<Long> authorIds = new LinkedHashSet<>();
+        for (Post post : posts) {
+            postIds.add(post.getId());
+            // Reading the id of a lazy author proxy does not initialize it
+            if (post.getUser() != null) authorIds.add(post.getUser().getId());
+        }
+
+        Map<Long, UserDTO> authors = new HashMap<>();
+        Map<Long, Long> commentCounts = new HashMap<>();
+        Set<Long> likedByViewer = new HashSet<>();
+        Map<Long, List<String>> likers = new HashMap<>();
+        Map<Long, List<AttachmentDTO>> attachments = new HashMap<>();
+
+        for (List<Long> ids : chunks(new ArrayList<>(authorIds))) {
+            for (User user : userRepository.findAllWithDetailsByIdIn(ids)) {
+                authors.put(user.getId(), UserDTO.fromEntity(user));
+            }
+        }
+        for (List<Long> ids : chunks(postIds)) {
+            putCounts(commentCounts, commentRepository.countByPostIds(ids));
+            for (Object[] row : attachmentRepository.findByPostIds(ids)) {
+                attachments.computeIfAbsent(((Number) row[0]).longValue(), k -> new ArrayList<>())
+                    .add(new AttachmentDTO((String) row[1], (String) row[2], (String) row[3]));
+            }
+            if (viewerId != null) {
+                likedByViewer.addAll(postRepository.findLikedPostIds(ids, viewerId));
+            } else {
+                for (Object[] row : postRepository.findLikerIdsByPostIds(ids)) {
+                    likers.computeIfAbsent(((Number) row[0]).longValue(), k -> new ArrayList<>())
+                        .add(String.valueOf(((Number) row[1]).longValue()));
+                }
+            }
+        }
+
+        Function<Long, List<String>> likedBy = viewerId != null
+            ? id -> likedByViewer.contains(id) ? List.of(viewerId.toString()) : List.of()
+            : id -> likers.getOrDefault(id, List.of());
+
+        List<PostDTO> dtos = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            Long id = post.getId();
+            PostDTO dto = new PostDTO();
+            dto.setId(id.toString());
+            dto.setContent(post.getContent());
+            dto.setImageUrl(post.getImageUrl());
+            dto.setVideoUrl(post.getVideoUrl());
+            dto.setAttachments(attachments.getOrDefault(id, List.of()));
+            dto.setCreatedAt(post.getCreatedAt());
+            dto.setUser(post.getUser() != null ? authors.get(post.getUser().getId()) : null);
+            dto.setLikedBy(likedBy.apply(id));
+            dto.setLikeCount((int) counters.read(Target.POST, id, Metric.LIKES, post.getLikeCount()));
+            dto.setCommentCount(commentCounts.getOrDefault(id, 0L).intValue());
+            dto.setShareCount((int) counters.read(Target.POST, id, Metric.SHARES, post.getShareCount()));
+            dto.setLikedByCurrentUser(likedByViewer.contains(id));
+            dtos.add(dto);
+        }
+
+        List<String> imageUrls = new ArrayList<>();
+        dtos.forEach(dto -> imageUrls.add(dto.getImageUrl()));
+        authors.values().forEach(author -> imageUrls.add(author.getProfilePicture()));
+        Map<String, Map<String, String>> variants = imageVariants.variantsFor(imageUrls);
+        if (!variants.isEmpty()) {
+            dtos.forEach(dto -> dto.setImageVariants(variants.getOrDefault(dto.getImageUrl(), Map.of())));
+            authors.values().forEach(author ->
+                author.setProfilePictureVariants(variants.getOrDefault(author.getProfilePicture(), Map.of())));
+        }
+        return dtos;
+    }
+
+    private static void putCounts(Map<Long, Long> target, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            target.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+}
@@ -4,12 +4,24 @@ import com.postgresql.MasChat.model.*;
 import com.postgresql.MasChat.repository.*;
 import com.postgresql.MasChat.dto.PostRequestDto;
 import com.postgresql.MasChat.dto.CommentDTO;
+import com.postgresql.MasChat.dto.CommentPageDTO;
+import com.postgresql.MasChat.dto.UploadSessionDTO;
+import com.postgresql.MasChat.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class PostService {
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private PostRepository postRepository;
     @Autowired
@@ -18,6 +30,20 @@ public class PostService {
     private CommentRepository commentRepository;
     @Autowired
     private LikeRepository likeRepository;
+    @Autowired
+    private FeedService feedService;
+    @Autowired
+    private CommentThreadService commentThreadService;
+    @Autowired
+    private EngagementService engagementService;
+    @Autowired
+    private MediaService mediaService;
+    @Autowired
+    private ResumableUploadService resumableUploads;
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+    @Autowired
+    private MemoryCalendar memoryCalendar;
 
     public Post createPost(PostRequestDto dto, Long userId) {
         User user = userRepository.findById(userId).orElseThrow();
@@ -26,11 +52,25 @@ public class PostService {
         post.setImageUrl(dto.getImageUrl());
         post.setVideoUrl(dto.getVideoUrl());
         post.setUser(user);
-        return postRepository.save(post);
+        List<Attachment> attachments = attachmentsFor(dto.getAttachmentUploadIds(), userId, post);
+        post.setAttachments(attachments);
+        Post saved = postRepository.save(post);
+        mediaService.retain(saved.getImageUrl(), saved.getVideoUrl());
+        mediaService.retainAll(attachments.stream().map(Attachment::getUrl).toList());
+        memoryCalendar.add(MemoryCalendar.Type.POST, saved.getId(), userId, saved.getCreatedAt());
+        feedService.onPostCreated(saved);
+        return saved;
     }
 
-    public List<Post> getAllPosts() {
-        return postRepository.findAll();
+    /** Newest posts first, one page at a time. */
+    public List<Post> getRecentPosts(int page, int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+            Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        return postRepository.findAll(pageable).getContent();
+    }
+
+    public boolean exists(Long postId) {
+        return postRepository.existsById(postId);
     }
 
     public List<Post> getPostsByUser(Long userId) {
@@ -38,19 +78,13 @@ public class PostService {
     }
 
     public Post likePost(Long postId, Long userId) {
-        Post post = postRepository.findById(postId).orElseThrow();
-        User user = userRepository.findById(userId).orElseThrow();
-        if (!post.getLikedBy().contains(user)) {
-            post.getLikedBy().add(user);
-        }
-        return postRepository.save(post);
+        engagementService.like(EngagementService.Target.POST, postId, userId);
+        return postRepository.findById(postId).orElseThrow();
     }
 
     public Post unlikePost(Long postId, Long userId) {
-        Post post = postRepository.findById(postId).orElseThrow();
-        User user = userRepository.findById(userId).orElseThrow();
-        post.getLikedBy().remove(user);
-        return postRepository.save(post);
+        engagementService.unlike(EngagementService.Target.POST, postId, userId);
+        return postRepository.findById(postId).orElseThrow();
     }
 
     public Comment addComment(Long postId, Long userId, String content) {
@@ -119,50 +153,46 @@ public class PostService {
         if (!post.getUser().getId().equals(userId)) {
             throw new RuntimeException("User not authorized to delete this post");
         }
+        List<String> attachmentUrls = attachmentRepository.findUrlsByPostId(postId);
         postRepository.delete(post);
+        mediaService.release(post.getImageUrl(), post.getVideoUrl());
+        mediaService.releaseAll(attachmentUrls);
+        memoryCalendar.remove(MemoryCalendar.Type.POST, postId);
     }
 
-    public java.util.List<CommentDTO> getComments(Long postId) {
-        return getComments(postId, null);
-    }
-
-    public java.util.List<CommentDTO> getComments(Long postId, Long currentUserId) {
-        try {
-            Post post = postRepository.findById(postId).orElseThrow();
-            java.util.List<Comment> topLevelComments = commentRepository.findTopLevelCommentsByPost(post);
-            java.util.List<CommentDTO> dtos = new java.util.ArrayList<>();
-            for (Comment c : topLevelComments) {
-                try {
-                    dtos.add(CommentDTO.fromEntity(c, currentUserId));
-                } catch (Exception e) {
-                    System.err.println("Error converting comment to DTO: " + e.getMessage());
-                    // Continue with other comments
-                }
+    // Completes each resumable upload, if not done yet, and makes it an attachment of the post
+    private List<Attachment> attachmentsFor(List<String> uploadIds, Long userId, Post post) {
+        List<Attachment> attachments = new ArrayList<>();
+        if (uploadIds == null) return attachments;
+        for (String uploadId : uploadIds) {
+            UploadSessionDTO upload;
+            try {
+                upload = resumableUploads.complete(uploadId, userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            return dtos;
-        } catch (Exception e) {
-            System.err.println("Error getting comments for post " + postId + ": " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+            Attachment attachment = new Attachment();
+            attachment.setFileName(upload.getFileName());
+            attachment.setFileType(MediaTypeFactory.getMediaType(upload.getFileName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+            attachment.setUrl(upload.getUrl());
+            attachment.setPost(post);
+            attachments.add(attachment);
         }
+        return attachments;
+    }
+
+    public CommentPageDTO getComments(Long postId, Long currentUserId, String cursor, int limit) {
+        return commentThreadService.getCommentPage(postId, currentUserId, cursor, limit,
+            CommentThreadService.DEFAULT_EMBEDDED_REPLIES);
     }
 
     public java.util.List<CommentDTO> searchComments(Long postId, String searchTerm, Long currentUserId) {
-        Post post = postRepository.findById(postId).orElseThrow();
-        java.util.List<Comment> comments = commentRepository.searchCommentsByContent(post, searchTerm);
-        java.util.List<CommentDTO> dtos = new java.util.ArrayList<>();
-        for (Comment c : comments) {
-            dtos.add(CommentDTO.fromEntity(c, currentUserId));
-        }
-        return dtos;
+        return commentThreadService.search(postId, searchTerm, currentUserId);
     }
 
-    public java.util.List<CommentDTO> getCommentReplies(Long commentId, Long currentUserId) {
-        java.util.List<Comment> replies = commentRepository.findRepliesByParentCommentId(commentId);
-        java.util.List<CommentDTO> dtos = new java.util.ArrayList<>();
-        for (Comment c : replies) {
-            dtos.add(CommentDTO.fromEntity(c, currentUserId));
-        }
-        return dtos;
+    public CommentPageDTO getCommentReplies(Long commentId, Long currentUserId, String cursor, int limit) {
+        return commentThreadService.getReplyPage(commentId, currentUserId, cursor, limit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,286 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.dto.PresenceDTO;
+import com.postgresql.MasChat.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory presence, keyed by WebSocket session.
+ *
+ * A user is online while at least one of their sessions is open, so closing one tab
+ * no longer marks them offline. Sessions are touched by every inbound STOMP frame
+ * (heartbeats included) and swept once they go quiet for longer than the session
+ * timeout, which covers clients that vanish without a DISCONNECT.
+ *
+ * Transitions are pushed to each online friend on {@code /topic/presence.{friendId}}.
+ * The users table is only a mirror: online flags and last-seen times are written in
+ * one batch per flush interval.
+ *
+ * With several nodes, each records its per-user session counts in presence_nodes under
+ * its node id and refreshes them on every flush. The online flag is derived from the
+ * fresh rows of all nodes, so a user is only marked offline once no node holds a session
+ * for them, and an offline transition is not announced while another node does. Rows of
+ * a node that stopped refreshing them are swept after the node timeout.
+ */
+@Service
+public class PresenceService {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    // Dot-separated so the same destination is valid on the simple broker and on RabbitMQ's STOMP relay
+    public static final String PRESENCE_TOPIC = "/topic/presence.";
+
+    @Value("${app.presence.session-timeout-ms:35000}")
+    private long sessionTimeoutMs;
+
+    @Value("${app.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${app.presence.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.presence.node-timeout-ms:120000}")
+    private long nodeTimeoutMs;
+
+    private String nodeId;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Lazy: the messaging template is built by the broker configuration, which depends on this service
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+
+    private static class Session {
+        final Long userId;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Session(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDateTime> lastSeen = new ConcurrentHashMap<>();
+    // Users whose row needs writing on the next flush
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+            ? UUID.randomUUID().toString() : configuredNodeId.trim();
+    }
+
+    /** Binds a session to a user. Repeated calls for the same session are no-ops. */
+    public void connect(String sessionId, Long userId) {
+        if (sessionId == null || userId == null) return;
+        Session existing = sessions.putIfAbsent(sessionId, new Session(userId));
+        if (existing != null) return;
+
+        boolean[] cameOnline = {false};
+        sessionsByUser.compute(userId, (id, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+                cameOnline[0] = true;
+            }
+            set.add(sessionId);
+            return set;
+        });
+        if (cameOnline[0]) {
+            transition(userId, true);
+        }
+    }
+
+    public void disconnect(String sessionId) {
+        if (sessionId == null) return;
+        Session session = sessions.remove(sessionId);
+        if (session == null) return;
+
+        boolean[] wentOffline = {false};
+        sessionsByUser.computeIfPresent(session.userId, (id, set) -> {
+            set.remove(sessionId);
+            if (set.isEmpty()) {
+                wentOffline[0] = true;
+                return null;
+            }
+            return set;
+        });
+        if (wentOffline[0]) {
+            transition(session.userId, false);
+        }
+    }
+
+    /** Records activity on a session; unknown sessions are ignored. */
+    public void touch(String sessionId) {
+        if (sessionId == null) return;
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            session.lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        return userId != null && sessionsByUser.containsKey(userId);
+    }
+
+    public Set<Long> onlineAmong(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        for (Long id : userIds) {
+            if (isOnline(id)) online.add(id);
+        }
+        return online;
+    }
+
+    public PresenceDTO getPresence(Long userId) {
+        return new PresenceDTO(userId, isOnline(userId), lastSeen.get(userId));
+    }
+
+    public int getOnlineUserCount() {
+        return sessionsByUser.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.sweep-interval-ms:10000}")
+    public void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTimeoutMs;
+        List<String> expired = new ArrayList<>();
+        sessions.forEach((id, session) -> {
+            if (session.lastActivity < cutoff) expired.add(id);
+        });
+        for (String sessionId : expired) {
+            logger.debug("Expiring idle WebSocket session {}", sessionId);
+            disconnect(sessionId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.flush-interval-ms:30000}")
+    public void flushLastSeen() {
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp freshSince = new Timestamp(now.getTime() - nodeTimeoutMs);
+        try {
+            // This node's session counts, then a heartbeat for the rows that did not change
+            List<Object[]> upserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            for (Long id : ids) {
+                Set<String> open = sessionsByUser.get(id);
+                if (open != null && !open.isEmpty()) {
+                    upserts.add(new Object[] { id, nodeId, open.size(), now });
+                } else {
+                    deletes.add(new Object[] { id, nodeId });
+                }
+            }
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO presence_nodes (user_id, node_id, sessions, seen_at) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (user_id, node_id) DO UPDATE SET sessions = EXCLUDED.sessions, seen_at = EXCLUDED.seen_at",
+                    upserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM presence_nodes WHERE user_id = ? AND node_id = ?", deletes);
+            }
+            jdbcTemplate.update("UPDATE presence_nodes SET seen_at = ? WHERE node_id = ?", now, nodeId);
+
+            // Users whose only sessions were on a node that has gone away
+            Set<Long> changed = new HashSet<>(ids);
+            changed.addAll(jdbcTemplate.queryForList(
+                "DELETE FROM presence_nodes WHERE seen_at < ? RETURNING user_id", Long.class, freshSince));
+            if (changed.isEmpty()) return;
+
+            List<Object[]> rows = new ArrayList<>(changed.size());
+            for (Long id : changed) {
+                LocalDateTime seen = lastSeen.get(id);
+                rows.add(new Object[] { seen != null ? Timestamp.valueOf(seen) : null, freshSince, id });
+            }
+            jdbcTemplate.batchUpdate(
+                "UPDATE users SET last_seen = COALESCE(CAST(? AS TIMESTAMP), last_seen), " +
+                "online = EXISTS (SELECT 1 FROM presence_nodes p WHERE p.user_id = users.id AND p.seen_at >= ?) " +
+                "WHERE id = ?",
+                rows);
+        } catch (RuntimeException e) {
+            dirty.addAll(ids);
+            logger.warn("Presence flush of {} users failed, will retry: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    // Nobody is connected to a freshly started single node; clear flags left over from the last run.
+    // Behind a broker relay other nodes may still hold sessions, so only this node's rows are dropped
+    // (a node restarting under a fixed node id) and other flags are left to the stale-row sweep.
+    @EventListener(ApplicationReadyEvent.class)
+    public void resetOnlineFlags() {
+        try {
+            if ("relay".equalsIgnoreCase(brokerMode)) {
+                jdbcTemplate.update("DELETE FROM presence_nodes WHERE node_id = ?", nodeId);
+                return;
+            }
+            jdbcTemplate.update("DELETE FROM presence_nodes");
+            int cleared = jdbcTemplate.update("UPDATE users SET online = FALSE WHERE online = TRUE");
+            if (cleared > 0) logger.info("Cleared stale online flag on {} users", cleared);
+        } catch (RuntimeException e) {
+            logger.warn("Could not reset online flags: {}", e.getMessage());
+        }
+    }
+
+    // Whether a node other than this one has a fresh row for the user
+    private boolean onlineElsewhere(Long userId) {
+        if (!"relay".equalsIgnoreCase(brokerMode)) return false;
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM presence_nodes WHERE user_id = ? AND node_id <> ? AND seen_at >= ?)",
+                Boolean.class, userId, nodeId, new Timestamp(System.currentTimeMillis() - nodeTimeoutMs)));
+        } catch (RuntimeException e) {
+            logger.warn("Could not read shared presence of user {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    private void transition(Long userId, boolean online) {
+        LocalDateTime now = LocalDateTime.now();
+        lastSeen.put(userId, now);
+        dirty.add(userId);
+        if (!online && onlineElsewhere(userId)) {
+            logger.debug("User {} left this node but is still connected elsewhere", userId);
+            return;
+        }
+        logger.debug("User {} is now {}", userId, online ? "online" : "offline");
+
+        PresenceDTO delta = new PresenceDTO(userId, online, now);
+        try {
+            for (Long friendId : userRepository.findFriendIds(userId)) {
+                if (isOnline(friendId)) {
+                    messagingTemplate.convertAndSend(PRESENCE_TOPIC + friendId, delta);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not publish presence for user {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.postgresql.MasChat.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.dto.ReelDTO;
+import com.postgresql.MasChat.dto.ReelPageDTO;
+import com.postgresql.MasChat.service.EngagementCounters.Metric;
+import com.postgresql.MasChat.service.EngagementService.Target;
+
+/**
+ * The reel feed: reels in {@link ReelRanker} order, in keyset pages on (rank_score, id).
+ *
+ * Scores only ever grow, so a reel that gains engagement while a viewer is paging moves
+ * ahead of the cursor and is skipped rather than shown twice. Reels the viewer watched in
+ * their current session (in memory, ended after an idle timeout) are left out; a page
+ * keeps reading past them until it is full. Reading stops after a few batches, so a page
+ * may come back short when most reels were watched; its cursor then continues from the
+ * last reel read.
+ *
+ * Pages are assembled with three queries whatever their size: the ranked ids, the reels
+ * with their authors and comment counts, and the viewer's likes among them, plus a
+ * cached lookup of image variants.
+ */
+@Service
+public class ReelFeedService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_SCAN_ROUNDS = 4;
+    private static final int MAX_SESSIONS = 10_000;
+    private static final int MAX_WATCHED_PER_SESSION = 2_000;
+
+    @Value("${app.reels.session-idle-ms:1800000}")
+    private long sessionIdleMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private EngagementCounters counters;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
+    private record Position(double score, long id) {}
+
+    private static class Session {
+        long lastActive = System.currentTimeMillis();
+        final Set<Long> watched = new LinkedHashSet<>();
+    }
+
+    private final Map<Long, Session> sessions = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Session> eldest) {
+            return size() > MAX_SESSIONS;
+        }
+    };
+
+    /**
+     * One page of the ranked feed. {@code cursor} is the {@link ReelPageDTO#getNextCursor()}
+     * of the previous page; throws IllegalArgumentException for a malformed one.
+     */
+    public ReelPageDTO getFeed(Long viewerId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Position after = decode(cursor);
+        Set<Long> watched = watchedIn(viewerId);
+
+        List<Position> picked = new ArrayList<>(size + 1);
+        int batch = 2 * size + 1;
+        boolean exhausted = false;
+        for (int round = 0; round < MAX_SCAN_ROUNDS && picked.size() <= size; round++) {
+            List<Position> rows = after == null
+                ? jdbcTemplate.query(
+                    "SELECT rank_score, id FROM reels ORDER BY rank_score DESC, id DESC LIMIT ?",
+                    (rs, i) -> new Position(rs.getDouble(1), rs.getLong(2)), batch)
+                : jdbcTemplate.query(
+                    "SELECT rank_score, id FROM reels WHERE rank_score < ? OR (rank_score = ? AND id < ?) " +
+                    "ORDER BY rank_score DESC, id DESC LIMIT ?",
+                    (rs, i) -> new Position(rs.getDouble(1), rs.getLong(2)),
+                    after.score(), after.score(), after.id(), batch);
+            for (Position row : rows) {
+                if (picked.size() > size) break;
+                if (!watched.contains(row.id())) picked.add(row);
+                after = row;
+            }
+            if (rows.size() < batch) {
+                exhausted = true;
+                break;
+            }
+        }
+
+        String nextCursor;
+        if (picked.size() > size) {
+            picked = picked.subList(0, size);
+            nextCursor = encode(picked.get(picked.size() - 1));
+        } else {
+            // Out of scan rounds before the page filled: continue after the last reel read
+            nextCursor = exhausted || after == null ? null : encode(after);
+        }
+        List<Long> ids = picked.stream().map(Position::id).toList();
+        return new ReelPageDTO(assemble(ids, viewerId), nextCursor);
+    }
+
+    /** The viewer watched the reel; it is left out of their feed for the rest of the session. */
+    public void markWatched(Long viewerId, Long reelId) {
+        if (viewerId == null || reelId == null) return;
+        synchronized (sessions) {
+            Session session = activeSession(viewerId);
+            session.watched.add(reelId);
+            if (session.watched.size() > MAX_WATCHED_PER_SESSION) {
+                Iterator<Long> oldest = session.watched.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    private Set<Long> watchedIn(Long viewerId) {
+        if (viewerId == null) return Set.of();
+        synchronized (sessions) {
+            return new HashSet<>(activeSession(viewerId).watched);
+        }
+    }
+
+    // Caller holds the sessions lock
+    private Session activeSession(Long viewerId) {
+        long now = System.currentTimeMillis();
+        Session session = sessions.get(viewerId);
+        if (session == null || now - session.lastActive > sessionIdleMillis) {
+            session = new Session();
+            sessions.put(viewerId, session);
+        }
+        session.lastActive = now;
+        return session;
+    }
+
+    private List<ReelDTO> assemble(List<Long> ids, Long viewerId) {
+        if (ids.isEmpty()) return List.of();
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids).addValue("viewerId", viewerId);
+
+        Set<Long> liked = new HashSet<>();
+        if (viewerId != null) {
+            liked.addAll(namedJdbc.queryForList(
+                "SELECT reel_id FROM reel_likes WHERE reel_id IN (:ids) AND user_id = :viewerId", params, Long.class));
+        }
+
+        Map<Long, ReelDTO> byId = new HashMap<>();
+        namedJdbc.query(
+            "SELECT r.id, r.user_id, r.video_url, r.caption, r.created_at, r.like_count, r.share_count, " +
+            "u.username, u.profile_picture, (SELECT COUNT(*) FROM reel_comments c WHERE c.reel_id = r.id) " +
+            "FROM reels r JOIN users u ON u.id = r.user_id WHERE r.id IN (:ids)",
+            params,
+            rs -> {
+                long id = rs.getLong(1);
+                ReelDTO dto = new ReelDTO();
+                dto.setId(String.valueOf(id));
+                dto.setUserId(String.valueOf(rs.getLong(2)));
+                dto.setMediaUrl(rs.getString(3));
+                dto.setVideoUrl(rs.getString(3));
+                dto.setCaption(rs.getString(4));
+                dto.setCreatedAt(rs.getTimestamp(5) != null ? rs.getTimestamp(5).toLocalDateTime().toString() : null);
+                dto.setLikeCount((int) counters.read(Target.REEL, id, Metric.LIKES, rs.getLong(6)));
+                dto.setShareCount((int) counters.read(Target.REEL, id, Metric.SHARES, rs.getLong(7)));
+                dto.setUsername(rs.getString(8));
+                dto.setProfilePicture(rs.getString(9));
+                dto.setCommentCount(rs.getInt(10));
+                // Only the viewer's own like, as PostDTOAssembler does for posts
+                dto.setLikedBy(liked.contains(id) ? List.of(String.valueOf(viewerId)) : List.of());
+                byId.put(id, dto);
+            });
+
+        List<ReelDTO> page = new ArrayList<>(ids.size());
+        List<String> urls = new ArrayList<>();
+        for (Long id : ids) {
+            ReelDTO dto = byId.get(id);
+            if (dto == null) continue;
+            page.add(dto);
+            urls.add(dto.getMediaUrl());
+            urls.add(dto.getProfilePicture());
+        }
+        Map<String, Map<String, String>> variants = imageVariants.variantsFor(urls);
+        for (ReelDTO dto : page) {
+            dto.setMediaVariants(variants.getOrDefault(dto.getMediaUrl(), Map.of()));
+            dto.setProfilePictureVariants(variants.getOrDefault(dto.getProfilePicture(), Map.of()));
+        }
+        return page;
+    }
+
+    private static String encode(Position position) {
+        String raw = position.score() + "|" + position.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Position(Double.parseDouble(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.postgresql.MasChat.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Maintains reels.rank_score, a time-decayed engagement score, one event at a time.
+ *
+ * A signal of weight w at time t would decay as {@code w * 2^(-(now - t) / halfLife)}. Every
+ * reel decays by the same factor, so the order is unchanged if each signal is instead
+ * stored as {@code w * 2^((t - EPOCH) / halfLife)} and never touched again. The sum is kept
+ * as its natural log so it cannot overflow: adding a signal is a log-sum-exp, and
+ * ORDER BY rank_score DESC is the decayed ranking at any moment.
+ *
+ * Signals are summed per reel in memory and applied in one batched UPDATE per flush
+ * interval. A new reel's base score is written when it is created so it ranks at once.
+ * V13 backfills existing reels with the same formula, so HALF_LIFE and EPOCH must not
+ * change without recomputing the column.
+ */
+@Service
+public class ReelRanker {
+    private static final Logger logger = LoggerFactory.getLogger(ReelRanker.class);
+
+    static final double HALF_LIFE_SECONDS = 24 * 3600;
+    static final long EPOCH_SECONDS = 1_704_067_200L; // 2024-01-01T00:00:00Z
+    private static final double DECAY_PER_SECOND = Math.log(2) / HALF_LIFE_SECONDS;
+
+    public enum Signal {
+        CREATED(10),
+        VIEW(1),
+        LIKE(4),
+        COMMENT(6),
+        SHARE(8);
+
+        final double weight;
+
+        Signal(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // ln(sum of pending signal terms) per reel; guarded by itself
+    private Map<Long, Double> pending = new HashMap<>();
+
+    public void record(Long reelId, Signal signal) {
+        record(reelId, signal, 1);
+    }
+
+    public void record(Long reelId, Signal signal, long count) {
+        if (reelId == null || count <= 0) return;
+        double term = logTerm(signal.weight * count, System.currentTimeMillis() / 1000);
+        synchronized (this) {
+            pending.merge(reelId, term, ReelRanker::logAddExp);
+        }
+    }
+
+    /** Writes the base score of a reel that was just created. */
+    public void onCreated(Long reelId, LocalDateTime createdAt) {
+        long at = (createdAt != null ? createdAt : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toEpochSecond();
+        jdbcTemplate.update("UPDATE reels SET rank_score = ? WHERE id = ?", logTerm(Signal.CREATED.weight, at), reelId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reels.rank-flush-interval-ms:5000}")
+    public void flush() {
+        Map<Long, Double> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((id, term) -> rows.add(new Object[] { term, term, id }));
+        try {
+            jdbcTemplate.batchUpdate(
+                // LEAST keeps EXP clear of PostgreSQL's underflow error; beyond 50 the correction is 0 anyway
+                "UPDATE reels SET rank_score = GREATEST(rank_score, ?) + LN(1 + EXP(-LEAST(ABS(rank_score - ?), 50))) WHERE id = ?",
+                rows);
+        } catch (RuntimeException e) {
+            // A score is a ranking hint: retrying a batch that did commit only over-ranks a few reels slightly
+            logger.warn("Reel rank flush of {} reels failed, will retry: {}", batch.size(), e.getMessage());
+            synchronized (this) {
+                batch.forEach((id, term) -> pending.merge(id, term, ReelRanker::logAddExp));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    static double logTerm(double weight, long epochSecond) {
+        return Math.log(weight) + DECAY_PER_SECOND * (epochSecond - EPOCH_SECONDS);
+    }
+
+    private static double logAddExp(double a, double b) {
+        return Math.max(a, b) + Math.log1p(Math.exp(-Math.abs(a - b)));
+    }
+}
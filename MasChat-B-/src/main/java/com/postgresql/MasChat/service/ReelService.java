@@ -7,6 +7,8 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.postgresql.MasChat.dto.LikeResultDTO;
+import com.postgresql.MasChat.dto.ReelPageDTO;
 import com.postgresql.MasChat.model.Reel;
 import com.postgresql.MasChat.model.ReelComment;
 import com.postgresql.MasChat.model.User;
@@ -26,6 +28,16 @@ public class ReelService {
     private UserRepository userRepository;
     @Autowired
     private ReelCommentRepository reelCommentRepository;
+    @Autowired
+    private EngagementService engagementService;
+    @Autowired
+    private ReelRanker reelRanker;
+    @Autowired
+    private ReelFeedService reelFeedService;
+    @Autowired
+    private MediaService mediaService;
+    @Autowired
+    private MemoryCalendar memoryCalendar;
 
     public Reel createReel(Long userId, String mediaUrl, String caption) {
         System.out.println("Creating reel for user: " + userId);
@@ -40,39 +52,32 @@ public class ReelService {
         reel.setCreatedAt(LocalDateTime.now());
         
         Reel savedReel = reelRepository.save(reel);
+        mediaService.retain(savedReel.getMediaUrl());
+        memoryCalendar.add(MemoryCalendar.Type.REEL, savedReel.getId(), userId, savedReel.getCreatedAt());
+        reelRanker.onCreated(savedReel.getId(), savedReel.getCreatedAt());
         System.out.println("Reel created successfully with ID: " + savedReel.getId());
         return savedReel;
     }
 
-    public List<Reel> getRecentReels() {
-        LocalDateTime since = LocalDateTime.now().minusDays(7); // Show last 7 days
-        System.out.println("Fetching reels created after: " + since);
-        List<Reel> reels = reelRepository.findByCreatedAtAfter(since);
-        System.out.println("Found " + reels.size() + " reels");
-        for (Reel reel : reels) {
-            System.out.println("Reel ID: " + reel.getId() + ", User: " + reel.getUser().getUsername() + ", Media: " + reel.getMediaUrl());
-        }
-        return reels;
+    // Reels in ranked order, one cursor page at a time; see ReelFeedService
+    public ReelPageDTO getFeed(Long viewerId, String cursor, int limit) {
+        return reelFeedService.getFeed(viewerId, cursor, limit);
     }
 
     public void deleteReel(Long reelId, Long userId) {
         Reel reel = reelRepository.findById(reelId).orElseThrow();
         if (!reel.getUser().getId().equals(userId)) throw new RuntimeException("Unauthorized");
         reelRepository.delete(reel);
+        mediaService.release(reel.getMediaUrl());
+        memoryCalendar.remove(MemoryCalendar.Type.REEL, reelId);
     }
 
-    public Reel likeReel(Long reelId, Long userId) {
-        Reel reel = reelRepository.findById(reelId).orElseThrow();
-        User user = userRepository.findById(userId).orElseThrow();
-        reel.getLikedBy().add(user);
-        return reelRepository.save(reel);
+    public LikeResultDTO likeReel(Long reelId, Long userId) {
+        return engagementService.like(EngagementService.Target.REEL, reelId, userId);
     }
 
-    public Reel unlikeReel(Long reelId, Long userId) {
-        Reel reel = reelRepository.findById(reelId).orElseThrow();
-        User user = userRepository.findById(userId).orElseThrow();
-        reel.getLikedBy().remove(user);
-        return reelRepository.save(reel);
+    public LikeResultDTO unlikeReel(Long reelId, Long userId) {
+        return engagementService.unlike(EngagementService.Target.REEL, reelId, userId);
     }
 
     public ReelComment addComment(Long reelId, Long userId, String content) {
@@ -83,13 +88,15 @@ public class ReelService {
         comment.setUser(user);
         comment.setContent(content);
         comment.setCreatedAt(java.time.LocalDateTime.now());
-        return reelCommentRepository.save(comment);
+        ReelComment saved = reelCommentRepository.save(comment);
+        reelRanker.record(reelId, ReelRanker.Signal.COMMENT);
+        return saved;
     }
 
     public Reel shareReel(Long reelId) {
         Reel reel = reelRepository.findById(reelId).orElseThrow();
-        reel.setShareCount(reel.getShareCount() + 1);
-        return reelRepository.save(reel);
+        engagementService.share(EngagementService.Target.REEL, reelId);
+        return reel;
     }
 
     public List<Reel> searchReels(String query) {
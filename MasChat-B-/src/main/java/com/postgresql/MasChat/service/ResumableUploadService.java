@@ -0,0 +1,278 @@
+package com.postgresql.MasChat.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.postgresql.MasChat.dto.MediaUploadDTO;
+import com.postgresql.MasChat.dto.UploadSessionDTO;
+import com.postgresql.MasChat.exception.MediaTooLargeException;
+import com.postgresql.MasChat.exception.UploadIncompleteException;
+
+/**
+ * Resumable uploads for files too large to send in one request, such as reels.
+ *
+ * A session reserves a part of the full size in {@link MediaStorage}. The client sends
+ * numbered, fixed-size chunks in any order, each written straight to its offset in the
+ * part, so memory use does not depend on the file size and a dropped connection only
+ * costs the chunk in flight. {@link #status} reports the byte ranges received so far.
+ * Completing a session hashes the part and stores it through {@link MediaService} like
+ * any other upload; the result is kept on the session, so completing it again returns the
+ * same URL. Sealing the part for storage consumes it, so if storing then fails the session
+ * starts over on an empty part and reports no ranges received. Sessions idle for longer
+ * than the TTL are dropped with their parts.
+ *
+ * Sessions belong to the user who created them; other users get not-found.
+ */
+@Service
+public class ResumableUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+    private static final int MAX_CHUNK_BYTES = 32 * 1024 * 1024;
+    private static final String COLUMNS =
+        "id, user_id, file_name, extension, part_handle, size_bytes, chunk_bytes, chunk_count, " +
+        "received, received_count, result_url, result_sha256";
+
+    @Value("${app.media.resumable.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${app.media.resumable.chunk-bytes:4194304}")
+    private int defaultChunkBytes;
+
+    @Value("${app.media.resumable.session-ttl-ms:86400000}")
+    private long sessionTtlMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MediaStorage storage;
+
+    @Autowired
+    private MediaService mediaService;
+
+    private record Session(String id, Long userId, String fileName, String extension, String partHandle,
+                           long size, int chunkBytes, int chunkCount, byte[] received, int receivedCount,
+                           String resultUrl, String resultSha256) {
+        long offsetOf(int index) {
+            return (long) index * chunkBytes;
+        }
+
+        long lengthOf(int index) {
+            return Math.min(chunkBytes, size - offsetOf(index));
+        }
+
+        // Bit numbering of Postgres set_bit on bytea
+        boolean has(int index) {
+            return (received[index >> 3] >> (index & 7) & 1) != 0;
+        }
+    }
+
+    private static final RowMapper<Session> SESSION = (rs, i) -> new Session(
+        rs.getString("id"), rs.getObject("user_id", Long.class), rs.getString("file_name"),
+        rs.getString("extension"), rs.getString("part_handle"), rs.getLong("size_bytes"),
+        rs.getInt("chunk_bytes"), rs.getInt("chunk_count"), rs.getBytes("received"), rs.getInt("received_count"),
+        rs.getString("result_url"), rs.getString("result_sha256"));
+
+    /**
+     * Opens a session for a file of {@code size} bytes. {@code chunkBytes} defaults to the
+     * configured chunk size. Throws MediaTooLargeException past the resumable limit and
+     * IllegalArgumentException for an empty file or an out-of-range chunk size.
+     */
+    public UploadSessionDTO create(Long userId, String fileName, long size, Integer chunkBytes) throws IOException {
+        if (size <= 0) throw new IllegalArgumentException("Upload size must be positive");
+        if (size > maxBytes) throw new MediaTooLargeException(maxBytes);
+        int chunk = chunkBytes != null ? chunkBytes : defaultChunkBytes;
+        if (chunk < MIN_CHUNK_BYTES || chunk > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("Chunk size must be between " + MIN_CHUNK_BYTES + " and " + MAX_CHUNK_BYTES);
+        }
+        int chunkCount = (int) ((size + chunk - 1) / chunk);
+        String extension = MediaStorage.extensionOf(fileName);
+
+        String handle = storage.createPart(size);
+        Session session = new Session(UUID.randomUUID().toString(), userId, fileName, extension, handle,
+            size, chunk, chunkCount, new byte[(chunkCount + 7) / 8], 0, null, null);
+        try {
+            jdbcTemplate.update(
+                "INSERT INTO media_upload_sessions (id, user_id, file_name, extension, part_handle, size_bytes, " +
+                "chunk_bytes, chunk_count, received) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                session.id(), userId, fileName, extension, handle, size, chunk, chunkCount, session.received());
+        } catch (RuntimeException e) {
+            storage.discardPart(handle);
+            throw e;
+        }
+        return toDto(session);
+    }
+
+    public Optional<UploadSessionDTO> status(String id, Long userId) {
+        return find(id, userId, "").map(this::toDto);
+    }
+
+    /**
+     * Writes chunk {@code index} from {@code content}. {@code offset} (from Content-Range)
+     * and {@code contentLength}, when the client sends them, must match the chunk. Sending a
+     * chunk again overwrites it with the same bytes.
+     *
+     * The session row stays key-share locked while the chunk is written. Chunks still run
+     * concurrently, but {@link #complete} waits for those in flight and chunks arriving
+     * during completion wait for it. Neither can write into a part being sealed.
+     */
+    @Transactional
+    public Optional<UploadSessionDTO> putChunk(String id, Long userId, int index, Long offset, long contentLength,
+                                               InputStream content) throws IOException {
+        Optional<Session> found = find(id, userId, " FOR KEY SHARE");
+        if (found.isEmpty()) return Optional.empty();
+        Session session = found.get();
+        if (session.resultUrl() != null) throw new IllegalStateException("Upload " + id + " is already complete");
+        if (index < 0 || index >= session.chunkCount()) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (session.chunkCount() - 1));
+        }
+        long start = session.offsetOf(index);
+        long length = session.lengthOf(index);
+        if (offset != null && offset != start) {
+            throw new IllegalArgumentException("Chunk " + index + " starts at byte " + start);
+        }
+        if (contentLength >= 0 && contentLength != length) {
+            throw new IllegalArgumentException("Chunk " + index + " is " + length + " bytes");
+        }
+
+        storage.writePart(session.partHandle(), start, length, content);
+        // One row update, so concurrent chunks cannot lose each other's bits
+        return jdbcTemplate.query(
+            "UPDATE media_upload_sessions SET received = set_bit(received, ?, 1), " +
+            "received_count = received_count + 1 - get_bit(received, ?), updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? RETURNING " + COLUMNS,
+            SESSION, index, index, id).stream().findFirst().map(this::toDto);
+    }
+
+    /**
+     * Stores the uploaded file once every chunk has arrived; throws UploadIncompleteException
+     * while chunks are missing. The returned session carries the media URL, which callers
+     * then use like any upload URL.
+     */
+    @Transactional
+    public Optional<UploadSessionDTO> complete(String id, Long userId) throws IOException {
+        Optional<Session> found = find(id, userId, " FOR UPDATE");
+        if (found.isEmpty()) return Optional.empty();
+        Session session = found.get();
+        if (session.resultUrl() != null) return Optional.of(toDto(session));
+        if (session.receivedCount() < session.chunkCount()) {
+            throw new UploadIncompleteException("Upload " + id + " is missing "
+                + (session.chunkCount() - session.receivedCount()) + " of " + session.chunkCount() + " chunks");
+        }
+
+        StagedMedia staged = storage.sealPart(session.partHandle());
+        // Sealing moved the part away, so if the result is not recorded a retry would find
+        // nothing to seal: the session then restarts on an empty part once the row is released
+        AtomicBoolean recorded = new AtomicBoolean();
+        afterCompletion(committed -> {
+            if (!committed || !recorded.get()) restart(session);
+        });
+        MediaUploadDTO stored = mediaService.upload(staged, session.extension());
+        jdbcTemplate.update(
+            "UPDATE media_upload_sessions SET result_url = ?, result_sha256 = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+            stored.getUrl(), stored.getSha256(), id);
+        recorded.set(true);
+        return Optional.of(toDto(new Session(session.id(), session.userId(), session.fileName(), session.extension(),
+            session.partHandle(), session.size(), session.chunkBytes(), session.chunkCount(), session.received(),
+            session.receivedCount(), stored.getUrl(), stored.getSha256())));
+    }
+
+    /** Drops a session and what it has received; false if there was none. */
+    public boolean abort(String id, Long userId) throws IOException {
+        Optional<Session> found = find(id, userId, "");
+        if (found.isEmpty()) return false;
+        jdbcTemplate.update("DELETE FROM media_upload_sessions WHERE id = ?", id);
+        if (found.get().resultUrl() == null) storage.discardPart(found.get().partHandle());
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.media.resumable.sweep-ms:3600000}")
+    public void expireSessions() {
+        try {
+            List<String[]> expired = jdbcTemplate.query(
+                "DELETE FROM media_upload_sessions WHERE updated_at < ? RETURNING part_handle, result_url",
+                (rs, i) -> new String[] { rs.getString(1), rs.getString(2) },
+                new Timestamp(System.currentTimeMillis() - sessionTtlMillis));
+            for (String[] row : expired) {
+                if (row[1] != null) continue; // completed: the part became the stored file
+                try {
+                    storage.discardPart(row[0]);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not remove upload part {}: {}", row[0], e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Upload session expiry failed: {}", e.getMessage());
+        }
+    }
+
+    // Swaps in a fresh part and clears what was received, unless the session has moved on
+    private void restart(Session session) {
+        try {
+            String handle = storage.createPart(session.size());
+            int updated = jdbcTemplate.update(
+                "UPDATE media_upload_sessions SET part_handle = ?, received = ?, received_count = 0, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE id = ? AND part_handle = ? AND result_url IS NULL",
+                handle, new byte[session.received().length], session.id(), session.partHandle());
+            if (updated == 0) storage.discardPart(handle);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not restart upload {} after a failed completion: {}", session.id(), e.getMessage());
+        }
+    }
+
+    // Runs once the surrounding transaction has ended, with whether it committed
+    private static void afterCompletion(Consumer<Boolean> action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    // lock is a row-locking clause, or "" to read without one
+    private Optional<Session> find(String id, Long userId, String lock) {
+        return jdbcTemplate.query(
+            "SELECT " + COLUMNS + " FROM media_upload_sessions WHERE id = ?" + lock,
+            SESSION, id).stream()
+            .filter(session -> session.userId() == null || Objects.equals(session.userId(), userId))
+            .findFirst();
+    }
+
+    private UploadSessionDTO toDto(Session session) {
+        List<long[]> ranges = new ArrayList<>();
+        int first = -1;
+        for (int i = 0; i <= session.chunkCount(); i++) {
+            boolean has = i < session.chunkCount() && (session.resultUrl() != null || session.has(i));
+            if (has && first < 0) {
+                first = i;
+            } else if (!has && first >= 0) {
+                ranges.add(new long[] { session.offsetOf(first), session.offsetOf(i - 1) + session.lengthOf(i - 1) - 1 });
+                first = -1;
+            }
+        }
+        return new UploadSessionDTO(session.id(), session.fileName(), session.size(), session.chunkBytes(),
+            session.chunkCount(), session.receivedCount(), ranges, session.resultUrl(), session.resultSha256());
+    }
+}
@@ -0,0 +1,7 @@
+package com.postgresql.MasChat.service;
+
+/**
+ * Content streamed into {@link MediaStorage} but not yet stored under a key: a storage
+ * specific handle, the SHA-256 of the content (hex) and its size.
+ */
+public record StagedMedia(String handle, String sha256, long size) {}
@@ -0,0 +1,283 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.postgresql.MasChat.dto.StoryViewersDTO;
+import com.postgresql.MasChat.dto.UserDTO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Who has seen which active story, as one {@link ViewerSet} per story.
+ *
+ * Marking a story seen updates its in-memory set and queues the viewer; every flush
+ * interval the queued viewers are merged into story_viewers with one locked read and one
+ * batched update. Merging is a set union, so a retried flush can never double count.
+ * Loaded sets are refreshed after the cache TTL to pick up marks made on other nodes.
+ *
+ * Sets leave memory when a {@link TimerWheel} fires at the story's 24h mark, and expired
+ * rows are deleted by a periodic purge.
+ */
+@Service
+public class StorySeenService {
+    private static final Logger logger = LoggerFactory.getLogger(StorySeenService.class);
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_VIEWER_PAGE = 200;
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_BUCKETS = 3600;
+
+    @Value("${app.stories.seen.cache-ttl-ms:60000}")
+    private long cacheTtlMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ViewTracker viewTracker;
+
+    private TransactionTemplate tx;
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    private static class Seen {
+        final long authorId;
+        final long deadline;
+        final long loadedAt = System.currentTimeMillis();
+        final ViewerSet viewers;
+
+        Seen(long authorId, long deadline, ViewerSet viewers) {
+            this.authorId = authorId;
+            this.deadline = deadline;
+            this.viewers = viewers;
+        }
+    }
+
+    private final Map<Long, Seen> sets = new ConcurrentHashMap<>();
+    private final TimerWheel<Long> expiry = new TimerWheel<>(TICK_MILLIS, WHEEL_BUCKETS, System.currentTimeMillis());
+
+    // Viewers not yet written, by story; guarded by itself
+    private Map<Long, ViewerSet> pending = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /** Marks the story seen by the viewer. Authors viewing their own story and expired stories are ignored. */
+    public void markSeen(Long storyId, Long viewerId) {
+        Seen seen = load(List.of(storyId)).get(storyId);
+        if (seen == null) throw new NoSuchElementException("story " + storyId + " not found");
+        if (seen.authorId == viewerId || seen.deadline <= System.currentTimeMillis()) return;
+
+        viewTracker.record(ViewTracker.Subject.STORY, storyId, viewerId);
+        boolean added;
+        synchronized (seen.viewers) {
+            added = seen.viewers.add(viewerId);
+        }
+        if (added) {
+            synchronized (this) {
+                pending.computeIfAbsent(storyId, id -> new ViewerSet()).add(viewerId);
+            }
+        }
+    }
+
+    /** The subset of {@code storyIds} the viewer has seen. */
+    public Set<Long> seenStoryIds(Long viewerId, Collection<Long> storyIds) {
+        Set<Long> seenIds = new HashSet<>();
+        for (Map.Entry<Long, Seen> e : load(storyIds).entrySet()) {
+            ViewerSet viewers = e.getValue().viewers;
+            synchronized (viewers) {
+                if (viewers.contains(viewerId)) seenIds.add(e.getKey());
+            }
+        }
+        return seenIds;
+    }
+
+    /** True when the viewer has seen every one of the given stories, e.g. all of one author's active stories. */
+    public boolean hasSeenAll(Long viewerId, Collection<Long> storyIds) {
+        return seenStoryIds(viewerId, storyIds).size() == new HashSet<>(storyIds).size();
+    }
+
+    /** The story's viewer count and its first {@code limit} viewers; only the author may ask. */
+    public StoryViewersDTO getViewers(Long storyId, Long requesterId, int limit) {
+        Seen seen = load(List.of(storyId)).get(storyId);
+        if (seen == null) throw new NoSuchElementException("story " + storyId + " not found");
+        if (seen.authorId != requesterId) throw new RuntimeException("Unauthorized");
+
+        long count;
+        List<Long> ids;
+        synchronized (seen.viewers) {
+            count = seen.viewers.cardinality();
+            ids = seen.viewers.first(Math.max(0, Math.min(limit, MAX_VIEWER_PAGE)));
+        }
+        Map<Long, UserDTO> users = new HashMap<>();
+        if (!ids.isEmpty()) {
+            namedJdbc.query(
+                "SELECT id, username, full_name, profile_picture, verified FROM users WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    UserDTO dto = new UserDTO();
+                    dto.setId(String.valueOf(rs.getLong(1)));
+                    dto.setUsername(rs.getString(2));
+                    dto.setFullName(rs.getString(3));
+                    dto.setProfilePicture(rs.getString(4));
+                    dto.setVerified(rs.getBoolean(5));
+                    users.put(rs.getLong(1), dto);
+                });
+        }
+        List<UserDTO> viewers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            UserDTO dto = users.get(id);
+            if (dto != null) viewers.add(dto);
+        }
+        return new StoryViewersDTO(storyId, count, viewers);
+    }
+
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void expireSets() {
+        expiry.advance(System.currentTimeMillis(), sets::remove);
+    }
+
+    @Scheduled(cron = "${app.stories.seen.purge-cron:0 * * * * *}")
+    public void purgeExpired() {
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM story_viewers WHERE expires_at <= CURRENT_TIMESTAMP");
+            if (purged > 0) logger.debug("Purged seen-state of {} expired stories", purged);
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge story seen-state: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stories.seen.flush-interval-ms:2000}")
+    public void flush() {
+        Map<Long, ViewerSet> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        List<Long> storyIds = new ArrayList<>(batch.keySet());
+        storyIds.sort(null); // one lock order for every node
+        try {
+            tx.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO story_viewers (story_id, expires_at) " +
+                    "SELECT id, created_at + make_interval(secs => ?) FROM stories WHERE id = ? " +
+                    "ON CONFLICT (story_id) DO NOTHING",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, StoryTrayService.STORY_LIFETIME.toSeconds());
+                            ps.setLong(2, storyIds.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return storyIds.size();
+                        }
+                    });
+
+                Map<Long, ViewerSet> merged = new HashMap<>();
+                for (int from = 0; from < storyIds.size(); from += CHUNK_SIZE) {
+                    namedJdbc.query(
+                        "SELECT story_id, viewer_set FROM story_viewers WHERE story_id IN (:ids) ORDER BY story_id FOR UPDATE",
+                        new MapSqlParameterSource("ids", storyIds.subList(from, Math.min(storyIds.size(), from + CHUNK_SIZE))),
+                        rs -> {
+                            ViewerSet set = ViewerSet.fromBytes(rs.getBytes(2));
+                            set.addAll(batch.get(rs.getLong(1)));
+                            merged.put(rs.getLong(1), set);
+                        });
+                }
+                // Stories deleted since they were seen have no row and are skipped
+                List<Object[]> rows = new ArrayList<>(merged.size());
+                for (Map.Entry<Long, ViewerSet> e : merged.entrySet()) {
+                    rows.add(new Object[] { e.getValue().toBytes(), e.getValue().cardinality(), e.getKey() });
+                }
+                jdbcTemplate.batchUpdate(
+                    "UPDATE story_viewers SET viewer_set = ?, viewer_count = ?, updated_at = CURRENT_TIMESTAMP WHERE story_id = ?",
+                    rows);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Story seen-state flush of {} stories failed, will retry: {}", batch.size(), e.getMessage());
+            synchronized (this) {
+                batch.forEach((id, viewers) -> pending.merge(id, viewers, (a, b) -> {
+                    a.addAll(b);
+                    return a;
+                }));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Cached sets for the given stories, loading missing or stale ones in one query per chunk
+    private Map<Long, Seen> load(Collection<Long> storyIds) {
+        Map<Long, Seen> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Long id : storyIds) {
+            if (id == null) continue;
+            Seen seen = sets.get(id);
+            if (seen != null && now - seen.loadedAt <= cacheTtlMillis) {
+                result.put(id, seen);
+            } else {
+                missing.add(id);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += CHUNK_SIZE) {
+            namedJdbc.query(
+                "SELECT s.id, s.user_id, s.created_at, v.viewer_set FROM stories s " +
+                "LEFT JOIN story_viewers v ON v.story_id = s.id WHERE s.id IN (:ids) AND s.user_id IS NOT NULL",
+                new MapSqlParameterSource("ids", missing.subList(from, Math.min(missing.size(), from + CHUNK_SIZE))),
+                rs -> {
+                    long id = rs.getLong(1);
+                    LocalDateTime createdAt = rs.getTimestamp(3).toLocalDateTime();
+                    long deadline = createdAt.plus(StoryTrayService.STORY_LIFETIME)
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    ViewerSet viewers = ViewerSet.fromBytes(rs.getBytes(4));
+                    synchronized (this) {
+                        viewers.addAll(pending.get(id)); // marks not flushed yet
+                    }
+                    Seen seen = new Seen(rs.getLong(2), deadline, viewers);
+                    result.put(id, seen);
+                    if (deadline > System.currentTimeMillis() && sets.put(id, seen) == null) {
+                        expiry.schedule(id, deadline);
+                    }
+                });
+        }
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.postgresql.MasChat.service;
 
+import com.postgresql.MasChat.dto.LikeResultDTO;
 import com.postgresql.MasChat.model.Story;
 import com.postgresql.MasChat.model.User;
 import com.postgresql.MasChat.repository.StoryRepository;
@@ -16,6 +17,14 @@ public class StoryService {
     private StoryRepository storyRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private EngagementService engagementService;
+    @Autowired
+    private StoryTrayService storyTrayService;
+    @Autowired
+    private MediaService mediaService;
+    @Autowired
+    private MemoryCalendar memoryCalendar;
 
     public Story createStory(Long userId, String mediaUrl, String caption) {
         User user = userRepository.findById(userId).orElseThrow();
@@ -24,7 +33,11 @@ public class StoryService {
         story.setMediaUrl(mediaUrl);
         story.setCaption(caption);
         story.setCreatedAt(LocalDateTime.now());
-        return storyRepository.save(story);
+        Story saved = storyRepository.save(story);
+        mediaService.retain(saved.getMediaUrl());
+        memoryCalendar.add(MemoryCalendar.Type.STORY, saved.getId(), userId, saved.getCreatedAt());
+        storyTrayService.onStoryCreated(saved);
+        return saved;
     }
 
     public List<Story> getRecentStories() {
@@ -36,20 +49,17 @@ public class StoryService {
         Story story = storyRepository.findById(storyId).orElseThrow();
         if (!story.getUser().getId().equals(userId)) throw new RuntimeException("Unauthorized");
         storyRepository.delete(story);
+        mediaService.release(story.getMediaUrl());
+        storyTrayService.onStoryDeleted(storyId, userId);
+        memoryCalendar.remove(MemoryCalendar.Type.STORY, storyId);
     }
 
-    public Story likeStory(Long storyId, Long userId) {
-        Story story = storyRepository.findById(storyId).orElseThrow();
-        User user = userRepository.findById(userId).orElseThrow();
-        story.getLikedBy().add(user);
-        return storyRepository.save(story);
+    public LikeResultDTO likeStory(Long storyId, Long userId) {
+        return engagementService.like(EngagementService.Target.STORY, storyId, userId);
     }
 
-    public Story unlikeStory(Long storyId, Long userId) {
-        Story story = storyRepository.findById(storyId).orElseThrow();
-        User user = userRepository.findById(userId).orElseThrow();
-        story.getLikedBy().remove(user);
-        return storyRepository.save(story);
+    public LikeResultDTO unlikeStory(Long storyId, Long userId) {
+        return engagementService.unlike(EngagementService.Target.STORY, storyId, userId);
     }
 
     public List<Story> getStoriesByUser(Long userId) {
@@ -0,0 +1,285 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.dto.StoryDTO;
+import com.postgresql.MasChat.dto.StoryTrayDTO;
+import com.postgresql.MasChat.model.Story;
+import com.postgresql.MasChat.repository.UserRepository;
+
+/**
+ * A viewer's story tray: their friends' active stories, one group per author.
+ *
+ * Active stories (id, author, deadline) are indexed in memory by author, so building a
+ * tray costs one friend-id query and one query for the stories themselves. Each story
+ * is removed from the index by a {@link TimerWheel} at its 24h mark; stories past their
+ * deadline are also dropped from cached trays when they are read.
+ *
+ * Seen-state is looked up in {@link StorySeenService} on every read, not cached with the tray.
+ * Built trays are cached per viewer (bounded LRU with a TTL). Posting or deleting a story
+ * evicts the trays of the author's friends, and a friendship change evicts both sides.
+ * Stories created on other nodes are picked up by a periodic scan, which evicts the same
+ * way. Each scan reaches back over a rescan window before the previous one, so a story whose
+ * transaction committed after that scan, or whose node's clock is a little behind, is still
+ * found; stories already indexed are skipped.
+ */
+@Service
+public class StoryTrayService {
+
+    static final Duration STORY_LIFETIME = Duration.ofHours(24);
+    private static final int MAX_CACHED_VIEWERS = 10_000;
+    private static final int CHUNK_SIZE = 500;
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_BUCKETS = 3600;
+
+    private static final Comparator<Group> TRAY_ORDER = Comparator
+        .comparing((Group g) -> g.allSeen)
+        .thenComparing((Group g) -> g.latestAt, Comparator.reverseOrder());
+
+    @Value("${app.stories.tray.cache-ttl-ms:60000}")
+    private long cacheTtlMillis;
+
+    @Value("${app.stories.tray.rescan-window-ms:300000}")
+    private long rescanWindowMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorySeenService storySeenService;
+
+    private record ActiveStory(long id, long authorId, long deadline) {}
+
+    private record TrayStory(StoryDTO dto, LocalDateTime createdAt, long deadline) {}
+
+    private record AuthorStories(Long authorId, String username, String profilePicture, List<TrayStory> stories) {}
+
+    // A group as served to one viewer: only its live stories, in tray order
+    private static class Group {
+        final AuthorStories author;
+        final List<TrayStory> live;
+        final LocalDateTime latestAt;
+        boolean allSeen;
+
+        Group(AuthorStories author, List<TrayStory> live) {
+            this.author = author;
+            this.live = live;
+            this.latestAt = live.get(live.size() - 1).createdAt();
+        }
+    }
+
+    private class Entry {
+        final long computedAt = System.currentTimeMillis();
+        final List<AuthorStories> authors;
+
+        Entry(List<AuthorStories> authors) {
+            this.authors = authors;
+        }
+
+        boolean expired() {
+            return System.currentTimeMillis() - computedAt > cacheTtlMillis;
+        }
+    }
+
+    // Active stories by author, then by story id; a story leaves when its timer fires
+    private final Map<Long, Map<Long, ActiveStory>> active = new ConcurrentHashMap<>();
+    private final TimerWheel<ActiveStory> expiry = new TimerWheel<>(TICK_MILLIS, WHEEL_BUCKETS, System.currentTimeMillis());
+    private volatile boolean loaded;
+    private LocalDateTime lastScanAt; // guarded by this
+
+    private final Map<Long, Entry> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > MAX_CACHED_VIEWERS;
+        }
+    };
+
+    /** The viewer's tray: authors with unseen stories first, then most recently posted first. */
+    public List<StoryTrayDTO> getTray(Long viewerId) {
+        if (!loaded) loadNewStories();
+
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(viewerId);
+        }
+        if (entry == null || entry.expired()) {
+            entry = new Entry(build(viewerId));
+            synchronized (cache) {
+                cache.put(viewerId, entry);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        List<Group> groups = new ArrayList<>();
+        for (AuthorStories author : entry.authors) {
+            List<TrayStory> live = author.stories().stream().filter(s -> s.deadline() > now).toList();
+            if (!live.isEmpty()) groups.add(new Group(author, live));
+        }
+        List<Long> liveIds = new ArrayList<>();
+        for (Group group : groups) {
+            for (TrayStory story : group.live) liveIds.add(story.dto().getId());
+        }
+        Set<Long> seen = liveIds.isEmpty() ? Set.of() : storySeenService.seenStoryIds(viewerId, liveIds);
+        for (Group group : groups) {
+            group.allSeen = group.live.stream().allMatch(story -> seen.contains(story.dto().getId()));
+        }
+        groups.sort(TRAY_ORDER);
+
+        List<StoryTrayDTO> tray = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            StoryTrayDTO dto = new StoryTrayDTO();
+            dto.setUserId(group.author.authorId());
+            dto.setUsername(group.author.username());
+            dto.setProfilePicture(group.author.profilePicture());
+            dto.setAllSeen(group.allSeen);
+            dto.setLatestAt(group.latestAt.toString());
+            List<StoryDTO> stories = new ArrayList<>(group.live.size());
+            for (TrayStory story : group.live) {
+                story.dto().setSeen(seen.contains(story.dto().getId()));
+                stories.add(story.dto());
+            }
+            dto.setStories(stories);
+            tray.add(dto);
+        }
+        return tray;
+    }
+
+    public void onStoryCreated(Story story) {
+        if (story.getId() == null || story.getUser() == null) return;
+        if (index(story.getId(), story.getUser().getId(), story.getCreatedAt())) {
+            evictFriendsOf(story.getUser().getId());
+        }
+    }
+
+    public void onStoryDeleted(Long storyId, Long authorId) {
+        Map<Long, ActiveStory> stories = active.get(authorId);
+        if (stories != null) stories.remove(storyId);
+        evictFriendsOf(authorId);
+    }
+
+    /** A and B became or stopped being friends: each tray gains or loses the other's stories. */
+    public void onFriendshipChanged(Long a, Long b) {
+        invalidate(a);
+        invalidate(b);
+    }
+
+    public void invalidate(Long viewerId) {
+        synchronized (cache) {
+            cache.remove(viewerId);
+        }
+    }
+
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void expireStories() {
+        expiry.advance(System.currentTimeMillis(), story ->
+            active.computeIfPresent(story.authorId(), (author, stories) -> {
+                stories.remove(story.id());
+                return stories.isEmpty() ? null : stories;
+            }));
+    }
+
+    // Stories created on other nodes since the last scan, or everything active on the first one
+    @Scheduled(fixedDelayString = "${app.stories.tray.refresh-ms:30000}")
+    public synchronized void loadNewStories() {
+        LocalDateTime scanAt = LocalDateTime.now();
+        LocalDateTime since = scanAt.minus(STORY_LIFETIME);
+        if (lastScanAt != null) {
+            LocalDateTime rescanFrom = lastScanAt.minus(Duration.ofMillis(rescanWindowMillis));
+            if (rescanFrom.isAfter(since)) since = rescanFrom;
+        }
+        List<Object[]> rows = jdbcTemplate.query(
+            "SELECT id, user_id, created_at FROM stories WHERE created_at > ? AND user_id IS NOT NULL ORDER BY id",
+            (rs, i) -> new Object[] { rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).toLocalDateTime() },
+            Timestamp.valueOf(since));
+
+        Set<Long> authors = new HashSet<>();
+        for (Object[] row : rows) {
+            long id = (Long) row[0];
+            long authorId = (Long) row[1];
+            if (index(id, authorId, (LocalDateTime) row[2]) && loaded) authors.add(authorId);
+        }
+        for (Long authorId : authors) evictFriendsOf(authorId);
+        lastScanAt = scanAt;
+        loaded = true;
+    }
+
+    private boolean index(long storyId, long authorId, LocalDateTime createdAt) {
+        long deadline = createdAt.plus(STORY_LIFETIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (deadline <= System.currentTimeMillis()) return false;
+        ActiveStory story = new ActiveStory(storyId, authorId, deadline);
+        if (active.computeIfAbsent(authorId, k -> new ConcurrentHashMap<>()).putIfAbsent(storyId, story) != null) {
+            return false;
+        }
+        expiry.schedule(story, deadline);
+        return true;
+    }
+
+    private void evictFriendsOf(Long authorId) {
+        List<Long> friends = userRepository.findFriendIds(authorId);
+        synchronized (cache) {
+            for (Long friendId : friends) cache.remove(friendId);
+        }
+    }
+
+    private List<AuthorStories> build(Long viewerId) {
+        List<Long> storyIds = new ArrayList<>();
+        for (Long friendId : userRepository.findFriendIds(viewerId)) {
+            Map<Long, ActiveStory> stories = active.get(friendId);
+            if (stories != null) storyIds.addAll(stories.keySet());
+        }
+        if (storyIds.isEmpty()) return List.of();
+
+        Map<Long, AuthorStories> byAuthor = new LinkedHashMap<>();
+        for (int from = 0; from < storyIds.size(); from += CHUNK_SIZE) {
+            namedJdbc.query(
+                "SELECT s.id, s.user_id, s.media_url, s.caption, s.created_at, u.username, u.profile_picture " +
+                "FROM stories s JOIN users u ON u.id = s.user_id WHERE s.id IN (:ids)",
+                new MapSqlParameterSource("ids", storyIds.subList(from, Math.min(storyIds.size(), from + CHUNK_SIZE))),
+                rs -> {
+                    long authorId = rs.getLong(2);
+                    LocalDateTime createdAt = rs.getTimestamp(5).toLocalDateTime();
+                    StoryDTO dto = new StoryDTO();
+                    dto.setId(rs.getLong(1));
+                    dto.setUserId(authorId);
+                    dto.setUsername(rs.getString(6));
+                    dto.setProfilePicture(rs.getString(7));
+                    dto.setMediaUrl(rs.getString(3));
+                    dto.setCaption(rs.getString(4));
+                    dto.setCreatedAt(createdAt.toString());
+                    long deadline = createdAt.plus(STORY_LIFETIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    byAuthor.computeIfAbsent(authorId,
+                            k -> new AuthorStories(authorId, dto.getUsername(), dto.getProfilePicture(), new ArrayList<>()))
+                        .stories().add(new TrayStory(dto, createdAt, deadline));
+                });
+        }
+        for (AuthorStories author : byAuthor.values()) {
+            author.stories().sort(Comparator.comparing(TrayStory::createdAt).thenComparing(s -> s.dto().getId()));
+        }
+        return new ArrayList<>(byAuthor.values());
+    }
+}
@@ -0,0 +1,69 @@
+package com.postgresql.MasChat.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: each item sits in the bucket for its deadline tick, and
+ * {@link #advance} only visits the buckets for the ticks that have passed.
+ *
+ * Deadlines further out than one revolution share a bucket with nearer ones and are
+ * skipped until their own revolution comes round. Items fire within one tick after
+ * their deadline; the caller drives the wheel, e.g. from a scheduled job.
+ */
+final class TimerWheel<T> {
+
+    private record Timeout<T>(T item, long deadline) {}
+
+    private final long tickMillis;
+    private final List<Timeout<T>>[] buckets;
+    private long lastTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickMillis, int bucketCount, long now) {
+        this.tickMillis = tickMillis;
+        this.buckets = new List[bucketCount];
+        this.lastTick = now / tickMillis - 1;
+    }
+
+    synchronized void schedule(T item, long deadline) {
+        // Already-due items go in the first bucket the next advance visits
+        long tick = Math.max(deadline / tickMillis, lastTick + 1);
+        int index = (int) (tick % buckets.length);
+        if (buckets[index] == null) buckets[index] = new ArrayList<>();
+        buckets[index].add(new Timeout<>(item, deadline));
+        size++;
+    }
+
+    /** Removes every item whose deadline is at or before {@code now} and hands it to {@code expired}. */
+    void advance(long now, Consumer<T> expired) {
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            long tick = now / tickMillis;
+            // After a long pause every bucket is due once; no need to walk the same bucket twice
+            long from = Math.max(lastTick + 1, tick - buckets.length + 1);
+            for (long t = from; t <= tick; t++) {
+                List<Timeout<T>> bucket = buckets[(int) (t % buckets.length)];
+                if (bucket == null) continue;
+                for (Iterator<Timeout<T>> it = bucket.iterator(); it.hasNext(); ) {
+                    Timeout<T> timeout = it.next();
+                    if (timeout.deadline() <= now) {
+                        it.remove();
+                        size--;
+                        due.add(timeout.item());
+                    }
+                }
+            }
+            // The current tick's bucket is visited again next time: it may hold deadlines later in this tick
+            lastTick = Math.max(lastTick, tick - 1);
+        }
+        due.forEach(expired);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,181 @@
+package com.postgresql.MasChat.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory search index over username and fullName.
+ *
+ * Every substring of one to three characters has a posting list. Short queries read
+ * the list for the query itself; longer ones intersect the lists of their trigrams and
+ * then verify the substring match. Either way a query matches the same users as the
+ * LIKE '%q%' fallback, and a lookup touches only candidate users instead of the whole
+ * users table.
+ *
+ * The startup load goes through {@link #load} between {@link #beginLoad} and
+ * {@link #endLoad}, so rows it read before a concurrent put or remove do not overwrite
+ * that change.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> grams = new ConcurrentHashMap<>();
+
+    // Ids removed while a bulk load runs; guarded by this
+    private final Set<Long> removedDuringLoad = new HashSet<>();
+    private boolean loading;
+
+    public static class Entry {
+        private final Long id;
+        private final String username;
+        private final String fullName;
+
+        Entry(Long id, String username, String fullName) {
+            this.id = id;
+            this.username = normalize(username);
+            this.fullName = normalize(fullName);
+        }
+
+        public Long getId() { return id; }
+        public String getUsername() { return username; }
+        public String getFullName() { return fullName; }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized void put(Long id, String username, String fullName) {
+        if (id == null) return;
+        unindex(id);
+        Entry entry = new Entry(id, username, fullName);
+        entries.put(id, entry);
+        for (String gram : gramsOf(entry)) {
+            grams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        if (loading) removedDuringLoad.add(id);
+        unindex(id);
+    }
+
+    public synchronized void beginLoad() {
+        loading = true;
+    }
+
+    public synchronized void endLoad() {
+        loading = false;
+        removedDuringLoad.clear();
+    }
+
+    /** Adds a row read by the bulk load, unless the user was put or removed since the load began. */
+    public synchronized void load(Long id, String username, String fullName) {
+        if (id == null || entries.containsKey(id) || removedDuringLoad.contains(id)) return;
+        put(id, username, fullName);
+    }
+
+    private void unindex(Long id) {
+        Entry old = entries.remove(id);
+        if (old == null) return;
+        for (String gram : gramsOf(old)) {
+            detach(grams, gram, id);
+        }
+    }
+
+    /**
+     * Returns one page of at most {@code limit} ranked ids after skipping {@code offset},
+     * never including the excluded user. Ranking: exact username, username prefix, name-word prefix,
+     * then plain substring; ties broken by shorter username and then id.
+     */
+    public List<Long> search(String query, int offset, int limit, Long excludeUserId) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) return List.of();
+
+        Set<Long> candidates = q.length() <= GRAM ? grams.getOrDefault(q, Set.of()) : trigramCandidates(q);
+        List<Entry> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            if (id.equals(excludeUserId)) continue;
+            Entry e = entries.get(id);
+            if (e != null && score(q, e.username, e.fullName) < Integer.MAX_VALUE) {
+                matches.add(e);
+            }
+        }
+        matches.sort(Comparator
+            .comparingInt((Entry e) -> score(q, e.username, e.fullName))
+            .thenComparingInt(e -> e.username.length())
+            .thenComparing(Entry::getId));
+
+        List<Long> page = new ArrayList<>();
+        for (int i = offset; i < matches.size() && page.size() < limit; i++) {
+            page.add(matches.get(i).id);
+        }
+        return page;
+    }
+
+    /** Lower is better; {@link Integer#MAX_VALUE} means no match. */
+    static int score(String q, String username, String fullName) {
+        if (username.equals(q)) return 0;
+        if (username.startsWith(q)) return 1;
+        for (String word : fullName.split("\\s+")) {
+            if (!word.isEmpty() && word.startsWith(q)) return 2;
+        }
+        if (username.contains(q)) return 3;
+        if (fullName.contains(q)) return 4;
+        return Integer.MAX_VALUE;
+    }
+
+    static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Set<Long> trigramCandidates(String q) {
+        List<Set<Long>> postings = new ArrayList<>();
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<Long> ids = grams.get(q.substring(i, i + GRAM));
+            if (ids == null) return Set.of();
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(postings.get(0));
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.retainAll(postings.get(i));
+        }
+        return result;
+    }
+
+    private static Set<String> gramsOf(Entry e) {
+        Set<String> grams = new HashSet<>();
+        addGrams(grams, e.username);
+        addGrams(grams, e.fullName);
+        return grams;
+    }
+
+    // Every substring of length 1..GRAM
+    private static void addGrams(Set<String> grams, String s) {
+        for (int n = 1; n <= GRAM; n++) {
+            for (int i = 0; i + n <= s.length(); i++) {
+                grams.add(s.substring(i, i + n));
+            }
+        }
+    }
+
+    private static void detach(Map<String, Set<Long>> postings, String key, Long id) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(key, ids);
+        }
+    }
+}
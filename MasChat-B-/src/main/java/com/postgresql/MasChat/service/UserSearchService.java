@@ -0,0 +1,110 @@
+package com.postgresql.MasChat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.postgresql.MasChat.model.User;
+import com.postgresql.MasChat.repository.UserRepository;
+
+/**
+ * Ranked, paginated user search backed by {@link UserSearchIndex}.
+ *
+ * The index is warmed in the background at startup; until it is ready, queries fall
+ * through to a LIKE query served by the pg_trgm indexes from V2.
+ */
+@Service
+public class UserSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+    private static final int WARM_BATCH_SIZE = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchIndex index;
+
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmIndex() {
+        Thread warmer = new Thread(() -> {
+            index.beginLoad();
+            try {
+                long afterId = 0L;
+                while (true) {
+                    List<Object[]> rows = userRepository.findSearchFieldsAfter(afterId, PageRequest.of(0, WARM_BATCH_SIZE));
+                    if (rows.isEmpty()) break;
+                    for (Object[] row : rows) {
+                        index.load((Long) row[0], (String) row[1], (String) row[2]);
+                    }
+                    afterId = (Long) rows.get(rows.size() - 1)[0];
+                }
+                ready = true;
+                logger.info("User search index ready with {} users", index.size());
+            } catch (Exception e) {
+                logger.warn("User search index warm-up failed, staying on database search: {}", e.getMessage());
+            } finally {
+                index.endLoad();
+            }
+        }, "user-search-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    public List<User> search(String query, int page, int size, Long excludeUserId) {
+        String q = UserSearchIndex.normalize(query);
+        if (q.isEmpty()) return List.of();
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * limit;
+
+        if (!ready) {
+            // Over-fetch by one so excluding the caller does not shrink the page
+            List<User> users = userRepository.searchRanked(q, escapeLike(q), PageRequest.of(0, offset + limit + 1));
+            return users.stream()
+                .filter(u -> !u.getId().equals(excludeUserId))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+        }
+
+        List<Long> ids = index.search(q, offset, limit, excludeUserId);
+        if (ids.isEmpty()) return List.of();
+        Map<Long, User> byId = userRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User u = byId.get(id);
+            if (u != null) ordered.add(u);
+        }
+        return ordered;
+    }
+
+    // Matches the query literally: %, _ and the escape character itself lose their LIKE meaning
+    static String escapeLike(String q) {
+        return q.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public void onUserChanged(User user) {
+        if (user != null) {
+            index.put(user.getId(), user.getUsername(), user.getFullName());
+        }
+    }
+
+    public void onUserDeleted(Long userId) {
+        index.remove(userId);
+    }
+}
@@ -24,6 +24,12 @@ public class UserService {
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private MediaService mediaService;
+
     
 
     public User findById(Long userId) {
@@ -48,7 +54,9 @@ public class UserService {
         }
         user.setCreatedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSearchService.onUserChanged(saved);
+        return saved;
     }
 
     @Transactional
@@ -105,13 +113,16 @@ public User updateProfile(Long userId, ProfileUpdateRequest request) {
     }
 
     user.setUpdatedAt(LocalDateTime.now());
-    return userRepository.save(user);
+    User saved = userRepository.save(user);
+    userSearchService.onUserChanged(saved);
+    return saved;
 }
 
 
     @Transactional
     public User updateProfilePicture(Long userId, String imageUrl) {
         User user = this.findById(userId);
+        mediaService.replace(user.getProfilePicture(), imageUrl);
         user.setProfilePicture(imageUrl);
         user.setUpdatedAt(LocalDateTime.now());
         return userRepository.save(user);
@@ -120,6 +131,7 @@ public User updateProfile(Long userId, ProfileUpdateRequest request) {
     @Transactional
     public User updateCoverPhoto(Long userId, String imageUrl) {
         User user = this.findById(userId);
+        mediaService.replace(user.getCoverPhoto(), imageUrl);
         user.setCoverPhoto(imageUrl);
         user.setUpdatedAt(LocalDateTime.now());
         return userRepository.save(user);
@@ -131,6 +143,7 @@ public User updateProfile(Long userId, ProfileUpdateRequest request) {
         if (user.getDetails() == null) {
             user.setDetails(new UserProfile());
         }
+        mediaService.replace(user.getDetails().getAvatar(), imageUrl);
         user.getDetails().setAvatar(imageUrl);
         user.getDetails().setShowAvatar(showAvatar);
         user.setUpdatedAt(LocalDateTime.now());
@@ -145,6 +158,7 @@ public User updateProfile(Long userId, ProfileUpdateRequest request) {
         Optional<User> userOpt = userRepository.findByUsername(username);
         if (userOpt.isPresent()) {
             userRepository.delete(userOpt.get());
+            userSearchService.onUserDeleted(userOpt.get().getId());
             return true;
         }
         return false;
@@ -154,6 +168,7 @@ public User updateProfile(Long userId, ProfileUpdateRequest request) {
         Optional<User> userOpt = userRepository.findById(id);
         if (userOpt.isPresent()) {
             userRepository.delete(userOpt.get());
+            userSearchService.onUserDeleted(userOpt.get().getId());
             return true;
         }
         return false;
@@ -173,11 +188,11 @@ public User updateProfile(Long userId, ProfileUpdateRequest request) {
     }
 
     public List<User> searchUsers(String query) {
-        String q = query.toLowerCase();
-        return userRepository.findAll().stream()
-            .filter(u -> (u.getUsername() != null && u.getUsername().toLowerCase().contains(q)) ||
-                         (u.getFullName() != null && u.getFullName().toLowerCase().contains(q)))
-            .toList();
+        return searchUsers(query, 0, UserSearchService.DEFAULT_PAGE_SIZE);
+    }
+
+    public List<User> searchUsers(String query, int page, int size) {
+        return userSearchService.search(query, page, size, null);
     }
 
     public List<User> getBestFriends(Long userId) {
@@ -0,0 +1,350 @@
+package com.postgresql.MasChat.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.postgresql.MasChat.service.EngagementCounters.Metric;
+import com.postgresql.MasChat.service.EngagementService.Target;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * View counts for posts, reels, stories and profiles, kept in the view_rollups table.
+ *
+ * {@link #record} only offers the view to a bounded queue, so read endpoints never wait
+ * on it; when the queue is full the view is dropped and counted. Every flush interval the
+ * queue is drained and folded into one rollup per item: a total and a {@link HyperLogLog}
+ * of viewer ids. Each rollup row is then locked and its totals and sketch updated in one
+ * batch.
+ *
+ * The sketches this node last wrote are kept in memory with the row's sketch_version, so a
+ * flush reads only the small version column back; viewer_sketch is re-read just for rows
+ * another node has rewritten since. A sketch is only written when merging the new viewers
+ * grew one of its registers, which for busy items is rare: most of their views then update
+ * total_views alone.
+ *
+ * Like {@link EngagementCounters}, each batch records its id in counter_flushes in the same
+ * transaction, so a retry after an ambiguous commit is not applied twice. Content views
+ * are also added to the items' view_count columns through {@link EngagementCounters}.
+ * Reads come from the rollup table and lag by at most one flush interval.
+ */
+@Service
+public class ViewTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ViewTracker.class);
+
+    private static final int CHUNK_SIZE = 500;
+    // 2 KB each; items past this are read back from the table on their next flush
+    private static final int MAX_CACHED_SKETCHES = 5_000;
+
+    public enum Subject {
+        POST(1, Target.POST),
+        REEL(2, Target.REEL),
+        STORY(3, Target.STORY),
+        PROFILE(4, null);
+
+        final short code;
+        final Target counterTarget;
+
+        Subject(int code, Target counterTarget) {
+            this.code = (short) code;
+            this.counterTarget = counterTarget;
+        }
+    }
+
+    public record ViewCount(long total, long unique) {
+        public static final ViewCount NONE = new ViewCount(0, 0);
+    }
+
+    private record View(Subject subject, long id, Long viewerId) {}
+
+    private record Key(Subject subject, long id) {}
+
+    private static final Comparator<Key> LOCK_ORDER = Comparator
+        .comparingInt((Key k) -> k.subject().code).thenComparingLong(Key::id);
+
+    private static final class Rollup {
+        long total;
+        HyperLogLog viewers;
+    }
+
+    // A sketch as stored at sketch_version; the registers are never modified in place
+    private record StoredSketch(long version, byte[] registers) {}
+
+    @Value("${app.views.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EngagementCounters counters;
+
+    @Autowired
+    private ReelRanker reelRanker;
+
+    private TransactionTemplate tx;
+    private BlockingQueue<View> queue;
+    private final AtomicLong dropped = new AtomicLong();
+
+    // A batch that failed to commit; retried with the same id before anything newer
+    private UUID retryId;
+    private Map<Key, Rollup> retryBatch;
+
+    // Only touched by flush(), which is synchronized
+    private final Map<Key, StoredSketch> sketches = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, StoredSketch> eldest) {
+            return size() > MAX_CACHED_SKETCHES;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /** Records one view; viewerId may be null for anonymous views, which count toward the total only. */
+    public void record(Subject subject, Long id, Long viewerId) {
+        if (id == null) return;
+        if (subject == Subject.PROFILE && id.equals(viewerId)) return; // own profile
+        if (!queue.offer(new View(subject, id, viewerId))) dropped.incrementAndGet();
+    }
+
+    public ViewCount count(Subject subject, Long id) {
+        if (id == null) return ViewCount.NONE;
+        return counts(subject, List.of(id)).getOrDefault(id, ViewCount.NONE);
+    }
+
+    /** Flushed view counts by id; ids never viewed are absent. */
+    public Map<Long, ViewCount> counts(Subject subject, Collection<Long> ids) {
+        Map<Long, ViewCount> counts = new HashMap<>();
+        List<Long> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            namedJdbc.query(
+                "SELECT target_id, total_views, unique_views FROM view_rollups " +
+                "WHERE target_type = :type AND target_id IN (:ids)",
+                new MapSqlParameterSource()
+                    .addValue("type", subject.code)
+                    .addValue("ids", list.subList(from, Math.min(list.size(), from + CHUNK_SIZE))),
+                rs -> {
+                    counts.put(rs.getLong(1), new ViewCount(rs.getLong(2), rs.getLong(3)));
+                });
+        }
+        return counts;
+    }
+
+    /** Total views across all posts, stories and reels owned by the user. */
+    public long totalContentViews(Long userId) {
+        Long total = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(v.total_views), 0) FROM view_rollups v JOIN (" +
+            "  SELECT ? AS type, id FROM posts WHERE user_id = ?" +
+            "  UNION ALL SELECT ?, id FROM stories WHERE user_id = ?" +
+            "  UNION ALL SELECT ?, id FROM reels WHERE user_id = ?" +
+            ") owned ON v.target_type = owned.type AND v.target_id = owned.id",
+            Long.class,
+            Subject.POST.code, userId, Subject.STORY.code, userId, Subject.REEL.code, userId);
+        return total != null ? total : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) logger.warn("Dropped {} view events: queue full", lost);
+
+        if (retryBatch != null && !apply(retryId, retryBatch)) return;
+        retryBatch = null;
+
+        List<View> views = new ArrayList<>();
+        queue.drainTo(views);
+        if (views.isEmpty()) return;
+
+        Map<Key, Rollup> batch = new HashMap<>();
+        for (View view : views) {
+            Rollup rollup = batch.computeIfAbsent(new Key(view.subject(), view.id()), k -> new Rollup());
+            rollup.total++;
+            if (view.viewerId() != null) {
+                if (rollup.viewers == null) rollup.viewers = new HyperLogLog();
+                rollup.viewers.add(view.viewerId());
+            }
+        }
+        for (Map.Entry<Key, Rollup> e : batch.entrySet()) {
+            Target target = e.getKey().subject().counterTarget;
+            if (target != null) counters.add(target, e.getKey().id(), Metric.VIEWS, e.getValue().total);
+            if (e.getKey().subject() == Subject.REEL) reelRanker.record(e.getKey().id(), ReelRanker.Signal.VIEW, e.getValue().total);
+        }
+
+        UUID id = UUID.randomUUID();
+        if (!apply(id, batch)) {
+            retryId = id;
+            retryBatch = batch;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (retryBatch != null) {
+            logger.warn("Dropping {} unflushed view rollups at shutdown", retryBatch.size());
+        }
+    }
+
+    private boolean apply(UUID batchId, Map<Key, Rollup> batch) {
+        // Rows are locked in one global order so concurrent flushes from several nodes cannot deadlock
+        List<Key> keys = new ArrayList<>(batch.keySet());
+        keys.sort(LOCK_ORDER);
+        Map<Key, StoredSketch> written = new HashMap<>();
+        try {
+            tx.executeWithoutResult(status -> {
+                int fresh = jdbcTemplate.update(
+                    "INSERT INTO counter_flushes (id) VALUES (?) ON CONFLICT DO NOTHING", batchId);
+                if (fresh == 0) return; // applied by an earlier attempt whose commit looked failed
+
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO view_rollups (target_type, target_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setShort(1, keys.get(i).subject().code);
+                            ps.setLong(2, keys.get(i).id());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return keys.size();
+                        }
+                    });
+
+                Map<Key, Long> versions = lockVersions(keys);
+                List<Key> stale = new ArrayList<>();
+                for (Key key : keys) {
+                    StoredSketch cached = sketches.get(key);
+                    if (batch.get(key).viewers != null && (cached == null || cached.version() != versions.get(key))) {
+                        stale.add(key);
+                    }
+                }
+                Map<Key, byte[]> stored = readSketches(stale);
+
+                List<Object[]> totals = new ArrayList<>();
+                List<Object[]> rewrites = new ArrayList<>();
+                for (Key key : keys) {
+                    Rollup rollup = batch.get(key);
+                    if (rollup.viewers == null) {
+                        totals.add(new Object[] { rollup.total, key.subject().code, key.id() });
+                        continue;
+                    }
+                    long version = versions.get(key);
+                    StoredSketch cached = sketches.get(key);
+                    HyperLogLog sketch = HyperLogLog.fromBytes(cached != null && cached.version() == version
+                        ? cached.registers() : stored.get(key));
+                    boolean changed;
+                    if (sketch == null) {
+                        sketch = rollup.viewers;
+                        changed = true;
+                    } else {
+                        changed = sketch.merge(rollup.viewers);
+                    }
+                    byte[] registers = sketch.toBytes();
+                    if (changed) {
+                        rewrites.add(new Object[] {
+                            rollup.total, sketch.estimate(), registers, key.subject().code, key.id()
+                        });
+                        written.put(key, new StoredSketch(version + 1, registers));
+                    } else {
+                        totals.add(new Object[] { rollup.total, key.subject().code, key.id() });
+                        written.put(key, new StoredSketch(version, registers));
+                    }
+                }
+                jdbcTemplate.batchUpdate(
+                    "UPDATE view_rollups SET total_views = total_views + ?, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE target_type = ? AND target_id = ?",
+                    totals);
+                jdbcTemplate.batchUpdate(
+                    "UPDATE view_rollups SET total_views = total_views + ?, unique_views = ?, viewer_sketch = ?, " +
+                    "sketch_version = sketch_version + 1, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE target_type = ? AND target_id = ?",
+                    rewrites);
+            });
+            // Cached only once committed, so a rolled back flush never leaves its sketches behind
+            sketches.putAll(written);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("View rollup flush of {} items failed, will retry: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private Map<Key, Long> lockVersions(List<Key> sortedKeys) {
+        Map<Key, Long> versions = new HashMap<>();
+        query(sortedKeys,
+            "SELECT target_id, sketch_version FROM view_rollups " +
+            "WHERE target_type = :type AND target_id IN (:ids) ORDER BY target_id FOR UPDATE",
+            (subject, rs) -> versions.put(new Key(subject, rs.getLong(1)), rs.getLong(2)));
+        return versions;
+    }
+
+    private Map<Key, byte[]> readSketches(List<Key> keys) {
+        Map<Key, byte[]> sketches = new HashMap<>();
+        query(keys,
+            "SELECT target_id, viewer_sketch FROM view_rollups WHERE target_type = :type AND target_id IN (:ids)",
+            (subject, rs) -> sketches.put(new Key(subject, rs.getLong(1)), rs.getBytes(2)));
+        return sketches;
+    }
+
+    private interface RowHandler {
+        void accept(Subject subject, ResultSet rs) throws SQLException;
+    }
+
+    // Runs sql once per subject and chunk of ids, binding :type and :ids
+    private void query(List<Key> keys, String sql, RowHandler handler) {
+        Map<Subject, List<Long>> idsBySubject = new HashMap<>();
+        for (Key key : keys) {
+            idsBySubject.computeIfAbsent(key.subject(), s -> new ArrayList<>()).add(key.id());
+        }
+        for (Subject subject : Subject.values()) {
+            List<Long> ids = idsBySubject.get(subject);
+            if (ids == null) continue;
+            for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+                namedJdbc.query(sql,
+                    new MapSqlParameterSource()
+                        .addValue("type", subject.code)
+                        .addValue("ids", ids.subList(from, Math.min(ids.size(), from + CHUNK_SIZE))),
+                    rs -> {
+                        handler.accept(subject, rs);
+                    });
+            }
+        }
+    }
+}
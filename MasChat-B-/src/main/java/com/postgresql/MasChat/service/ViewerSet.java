@@ -0,0 +1,197 @@
+package com.postgresql.MasChat.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Compact set of user ids in the style of a roaring bitmap.
+ *
+ * Ids are split on their low 16 bits: the high part selects a container and the low part
+ * is stored in it, either as a sorted char array (up to 4096 values, 2 bytes each) or as
+ * a 65536-bit bitmap (8 KB) once it grows past that. Sequential user ids therefore cost
+ * about 2 bytes each, and a story seen by a large share of one id range costs 1 bit per id.
+ *
+ * Not thread-safe; callers synchronize on the instance.
+ */
+final class ViewerSet {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private final TreeMap<Long, Container> containers = new TreeMap<>();
+    private long cardinality;
+
+    boolean add(long id) {
+        Container container = containers.get(id >>> 16);
+        if (container == null) {
+            container = new Container();
+            containers.put(id >>> 16, container);
+        }
+        if (!container.add((char) id)) return false;
+        cardinality++;
+        return true;
+    }
+
+    boolean contains(long id) {
+        Container container = containers.get(id >>> 16);
+        return container != null && container.contains((char) id);
+    }
+
+    long cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    void addAll(ViewerSet other) {
+        if (other == null) return;
+        for (Map.Entry<Long, Container> e : other.containers.entrySet()) {
+            long high = e.getKey() << 16;
+            e.getValue().forEach(low -> add(high | low));
+        }
+    }
+
+    /** Up to {@code limit} ids in ascending order. */
+    List<Long> first(int limit) {
+        if (limit <= 0) return List.of();
+        List<Long> ids = new ArrayList<>(Math.min(limit, (int) Math.min(cardinality, Integer.MAX_VALUE)));
+        for (Map.Entry<Long, Container> e : containers.entrySet()) {
+            long high = e.getKey() << 16;
+            if (!e.getValue().forEachUntil(low -> {
+                ids.add(high | low);
+                return ids.size() < limit;
+            })) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    byte[] toBytes() {
+        int size = 1 + 4;
+        for (Container c : containers.values()) size += 8 + 1 + 4 + c.serializedSize();
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(FORMAT_VERSION);
+        buf.putInt(containers.size());
+        for (Map.Entry<Long, Container> e : containers.entrySet()) {
+            Container c = e.getValue();
+            buf.putLong(e.getKey());
+            buf.put(c.bitmap != null ? (byte) 1 : (byte) 0);
+            buf.putInt(c.cardinality);
+            if (c.bitmap != null) {
+                for (long word : c.bitmap) buf.putLong(word);
+            } else {
+                for (int i = 0; i < c.cardinality; i++) buf.putChar(c.values[i]);
+            }
+        }
+        return buf.array();
+    }
+
+    /** Set from {@link #toBytes()} output; empty for null or unrecognized input. */
+    static ViewerSet fromBytes(byte[] bytes) {
+        ViewerSet set = new ViewerSet();
+        if (bytes == null || bytes.length < 5 || bytes[0] != FORMAT_VERSION) return set;
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        buf.get();
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            long key = buf.getLong();
+            boolean bitmap = buf.get() == 1;
+            int cardinality = buf.getInt();
+            Container c = new Container();
+            c.cardinality = cardinality;
+            if (bitmap) {
+                c.values = null;
+                c.bitmap = new long[BITMAP_WORDS];
+                for (int w = 0; w < BITMAP_WORDS; w++) c.bitmap[w] = buf.getLong();
+            } else {
+                c.values = new char[Math.max(cardinality, 4)];
+                for (int v = 0; v < cardinality; v++) c.values[v] = buf.getChar();
+            }
+            set.containers.put(key, c);
+            set.cardinality += cardinality;
+        }
+        return set;
+    }
+
+    private interface LowConsumer {
+        boolean accept(long low);
+    }
+
+    private static final class Container {
+        char[] values = new char[4]; // sorted, first cardinality entries used; null once a bitmap
+        long[] bitmap;
+        int cardinality;
+
+        boolean add(char low) {
+            if (bitmap != null) {
+                long mask = 1L << low;
+                if ((bitmap[low >>> 6] & mask) != 0) return false;
+                bitmap[low >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+            int pos = Arrays.binarySearch(values, 0, cardinality, low);
+            if (pos >= 0) return false;
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            pos = -pos - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+            System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+            values[pos] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean contains(char low) {
+            if (bitmap != null) return (bitmap[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        void forEach(LongConsumer action) {
+            forEachUntil(low -> {
+                action.accept(low);
+                return true;
+            });
+        }
+
+        // Stops early and returns false once the consumer returns false
+        boolean forEachUntil(LowConsumer action) {
+            if (bitmap != null) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = bitmap[w];
+                    while (word != 0) {
+                        int bit = Long.numberOfTrailingZeros(word);
+                        if (!action.accept(((long) w << 6) | bit)) return false;
+                        word &= word - 1;
+                    }
+                }
+                return true;
+            }
+            for (int i = 0; i < cardinality; i++) {
+                if (!action.accept(values[i])) return false;
+            }
+            return true;
+        }
+
+        int serializedSize() {
+            return bitmap != null ? BITMAP_WORDS * 8 : cardinality * 2;
+        }
+
+        private void toBitmap() {
+            bitmap = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) bitmap[values[i] >>> 6] |= 1L << values[i];
+            values = null;
+        }
+    }
+}
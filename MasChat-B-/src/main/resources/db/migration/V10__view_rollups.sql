@@ -0,0 +1,11 @@
+-- Per-item view rollups maintained by ViewTracker. target_type: 1 post, 2 reel, 3 story, 4 profile.
+-- viewer_sketch holds the HyperLogLog registers behind unique_views.
+CREATE TABLE IF NOT EXISTS view_rollups (
+    target_type SMALLINT NOT NULL,
+    target_id BIGINT NOT NULL,
+    total_views BIGINT NOT NULL DEFAULT 0,
+    unique_views BIGINT NOT NULL DEFAULT 0,
+    viewer_sketch BYTEA,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (target_type, target_id)
+);
@@ -0,0 +1,2 @@
+-- StoryTrayService loads the last 24h of stories by created_at on startup
+CREATE INDEX IF NOT EXISTS idx_stories_created_at ON stories(created_at);
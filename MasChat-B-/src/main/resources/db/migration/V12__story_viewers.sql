@@ -0,0 +1,10 @@
+-- Seen-state per story, maintained by StorySeenService. viewer_set is a serialized ViewerSet
+-- of user ids; rows are purged once expires_at (the story's 24h mark) has passed.
+CREATE TABLE IF NOT EXISTS story_viewers (
+    story_id BIGINT PRIMARY KEY REFERENCES stories(id) ON DELETE CASCADE,
+    viewer_set BYTEA,
+    viewer_count INTEGER NOT NULL DEFAULT 0,
+    expires_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_story_viewers_expires_at ON story_viewers(expires_at);
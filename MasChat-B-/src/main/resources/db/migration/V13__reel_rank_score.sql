@@ -0,0 +1,12 @@
+-- Time-decayed reel ranking maintained by ReelRanker: ln of the sum of weight * 2^((t - 2024-01-01) / 24h)
+-- over a reel's signals. Backfill counts creation (10), views (1), likes (4), comments (6) and shares (8)
+-- at the reel's creation time. Keep in sync with ReelRanker.HALF_LIFE_SECONDS / EPOCH_SECONDS.
+ALTER TABLE reels ADD COLUMN IF NOT EXISTS rank_score DOUBLE PRECISION NOT NULL DEFAULT 0;
+
+UPDATE reels r SET rank_score =
+    LN(10 + r.view_count + 4 * r.like_count + 8 * r.share_count
+       + 6 * (SELECT COUNT(*) FROM reel_comments c WHERE c.reel_id = r.id))
+    + LN(2) / 86400 * (EXTRACT(EPOCH FROM COALESCE(r.created_at::timestamptz, CURRENT_TIMESTAMP)) - 1704067200);
+
+CREATE INDEX IF NOT EXISTS idx_reels_rank ON reels(rank_score DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_reel_comments_reel_id ON reel_comments(reel_id);
@@ -0,0 +1,14 @@
+-- Content-addressed uploads, maintained by MediaService. One row per distinct content;
+-- ref_count is the number of posts, reels, stories, messages, profiles, groups and
+-- marketplace items whose URL points at storage_key. Rows whose count fell back to zero
+-- (released_at set) are collected once updated_at is older than the grace period.
+CREATE TABLE IF NOT EXISTS media_blobs (
+    sha256 CHAR(64) PRIMARY KEY,
+    storage_key VARCHAR(255) NOT NULL UNIQUE,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    released_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_media_blobs_collectable ON media_blobs(updated_at) WHERE ref_count = 0 AND released_at IS NOT NULL;
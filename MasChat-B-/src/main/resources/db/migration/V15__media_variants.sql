@@ -0,0 +1,7 @@
+-- Resized copies of uploaded images, maintained by ImageVariantService. variants is a
+-- JSON object from width to storage key ({"64": "ab/cd/<sha256>_w64.jpg", ...}); NULL
+-- while an image is still waiting for them, '{}' once there is nothing to generate.
+ALTER TABLE media_blobs ADD COLUMN IF NOT EXISTS variants TEXT;
+UPDATE media_blobs SET variants = '{}'
+    WHERE variants IS NULL AND storage_key !~ '\.(jpe?g|png|gif|bmp)$';
+CREATE INDEX IF NOT EXISTS idx_media_blobs_variants_pending ON media_blobs(created_at) WHERE variants IS NULL;
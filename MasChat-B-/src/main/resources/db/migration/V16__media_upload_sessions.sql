@@ -0,0 +1,22 @@
+-- Resumable uploads in progress, maintained by ResumableUploadService. The content is a
+-- part of size_bytes in media storage (part_handle), sent as chunk_count chunks of
+-- chunk_bytes (the last one shorter). Bit i of received (bit i % 8 of byte i / 8, as
+-- set_bit numbers them) is set once chunk i has been written. result_url and
+-- result_sha256 are set when the upload is completed, so completing again is harmless.
+CREATE TABLE IF NOT EXISTS media_upload_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT,
+    file_name VARCHAR(255),
+    extension VARCHAR(11) NOT NULL DEFAULT '',
+    part_handle VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    chunk_bytes INTEGER NOT NULL,
+    chunk_count INTEGER NOT NULL,
+    received BYTEA NOT NULL,
+    received_count INTEGER NOT NULL DEFAULT 0,
+    result_url TEXT,
+    result_sha256 CHAR(64),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_media_upload_sessions_updated ON media_upload_sessions(updated_at);
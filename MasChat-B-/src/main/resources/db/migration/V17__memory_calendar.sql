@@ -0,0 +1,35 @@
+-- Every post, story and reel by its owner and calendar date, maintained by MemoryCalendar,
+-- so memories are read by index instead of applying date functions to each content table.
+-- content_type is the MemoryDTO type: 'post', 'story' or 'reel'.
+CREATE TABLE IF NOT EXISTS memory_calendar (
+    content_type VARCHAR(8) NOT NULL,
+    content_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL,
+    year SMALLINT NOT NULL,
+    month SMALLINT NOT NULL,
+    day SMALLINT NOT NULL,
+    PRIMARY KEY (content_type, content_id)
+);
+-- On this day: same month and day, earlier years
+CREATE INDEX IF NOT EXISTS idx_memory_calendar_day ON memory_calendar(user_id, month, day, year);
+-- A year or a month of it, newest first
+CREATE INDEX IF NOT EXISTS idx_memory_calendar_year ON memory_calendar(user_id, year, created_at DESC, content_id DESC);
+
+INSERT INTO memory_calendar (content_type, content_id, user_id, created_at, year, month, day)
+SELECT 'post', id, user_id, created_at,
+       EXTRACT(YEAR FROM created_at), EXTRACT(MONTH FROM created_at), EXTRACT(DAY FROM created_at)
+FROM posts WHERE user_id IS NOT NULL AND created_at IS NOT NULL
+ON CONFLICT DO NOTHING;
+
+INSERT INTO memory_calendar (content_type, content_id, user_id, created_at, year, month, day)
+SELECT 'story', id, user_id, created_at,
+       EXTRACT(YEAR FROM created_at), EXTRACT(MONTH FROM created_at), EXTRACT(DAY FROM created_at)
+FROM stories WHERE user_id IS NOT NULL AND created_at IS NOT NULL
+ON CONFLICT DO NOTHING;
+
+INSERT INTO memory_calendar (content_type, content_id, user_id, created_at, year, month, day)
+SELECT 'reel', id, user_id, created_at,
+       EXTRACT(YEAR FROM created_at), EXTRACT(MONTH FROM created_at), EXTRACT(DAY FROM created_at)
+FROM reels WHERE user_id IS NOT NULL AND created_at IS NOT NULL
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,21 @@
+-- Precomputed "on this day" memories, built nightly by MemoryDigestService for recently
+-- active users and the coming day. memories is the JSON MemoryDTO list, '[]' when there
+-- is nothing from that day, so a stored row always answers the request.
+CREATE TABLE IF NOT EXISTS memory_digests (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    digest_date DATE NOT NULL,
+    memories TEXT NOT NULL,
+    built_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, digest_date)
+);
+
+-- One row per digest date. Users are processed in id order and cursor_user_id is the last
+-- one written, so a run cut short by a restart resumes after it.
+CREATE TABLE IF NOT EXISTS memory_digest_runs (
+    digest_date DATE PRIMARY KEY,
+    cursor_user_id BIGINT NOT NULL DEFAULT 0,
+    users_total INTEGER NOT NULL DEFAULT 0,
+    users_done INTEGER NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
@@ -0,0 +1,20 @@
+-- Posts, stories and reels each user created per calendar day, maintained by ContentStats
+-- alongside memory_calendar, so memory and dashboard totals sum a user's day rows instead
+-- of counting the content tables.
+CREATE TABLE IF NOT EXISTS memory_daily_counts (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    created_on DATE NOT NULL,
+    posts INTEGER NOT NULL DEFAULT 0,
+    stories INTEGER NOT NULL DEFAULT 0,
+    reels INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, created_on)
+);
+
+INSERT INTO memory_daily_counts (user_id, created_on, posts, stories, reels)
+SELECT user_id, CAST(created_at AS DATE),
+       COUNT(*) FILTER (WHERE content_type = 'post'),
+       COUNT(*) FILTER (WHERE content_type = 'story'),
+       COUNT(*) FILTER (WHERE content_type = 'reel')
+FROM memory_calendar
+GROUP BY user_id, CAST(created_at AS DATE)
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,13 @@
+-- Chat messages the write-behind persister could not insert because the database rejected
+-- the row itself (a constraint violation), kept for inspection instead of being dropped.
+CREATE TABLE IF NOT EXISTS message_dead_letters (
+    id BIGINT PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    recipient_id BIGINT NOT NULL,
+    content TEXT,
+    image TEXT,
+    sent_at TIMESTAMP NOT NULL,
+    error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
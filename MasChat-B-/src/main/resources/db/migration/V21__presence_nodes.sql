@@ -0,0 +1,13 @@
+-- Open WebSocket sessions per user and application node, written by PresenceService on
+-- each flush. A user is online while any node holds a fresh row for them, so a node whose
+-- last local session closes no longer marks a user offline who is still connected elsewhere.
+-- Rows of a node that stops heartbeating go stale and are swept by the other nodes.
+CREATE TABLE IF NOT EXISTS presence_nodes (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    node_id VARCHAR(64) NOT NULL,
+    sessions INTEGER NOT NULL,
+    seen_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, node_id)
+);
+CREATE INDEX IF NOT EXISTS idx_presence_nodes_node ON presence_nodes(node_id);
+CREATE INDEX IF NOT EXISTS idx_presence_nodes_seen ON presence_nodes(seen_at);
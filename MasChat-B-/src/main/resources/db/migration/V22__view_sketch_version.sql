@@ -0,0 +1,4 @@
+-- Bumped by ViewTracker each time it rewrites viewer_sketch. A node keeps the sketches it
+-- last wrote in memory and only reads viewer_sketch back when another node has moved the
+-- version since.
+ALTER TABLE view_rollups ADD COLUMN IF NOT EXISTS sketch_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- The node building a digest run holds it under a lease, renewed after each wave, so only
+-- one node works on a run at a time. A lease left by a node that died expires and the run
+-- is taken over by the next resume check.
+ALTER TABLE memory_digest_runs ADD COLUMN IF NOT EXISTS owner VARCHAR(64);
+ALTER TABLE memory_digest_runs ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
@@ -0,0 +1,9 @@
+-- Trigram indexes backing user search while the in-memory index is warming up
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Hibernate maps User.fullName to full_name; make sure it exists before indexing it
+ALTER TABLE users ADD COLUMN IF NOT EXISTS full_name VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_full_name_trgm ON users USING gin (lower(full_name) gin_trgm_ops);
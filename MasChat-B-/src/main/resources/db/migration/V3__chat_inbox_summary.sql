@@ -0,0 +1,30 @@
+-- Per-chat inbox summary maintained on send / read so the inbox reads N chat rows
+-- instead of every message the user has exchanged
+
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_message_id BIGINT;
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_message_preview VARCHAR(100);
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_activity_at TIMESTAMP;
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS user1_unread_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS user2_unread_count INTEGER NOT NULL DEFAULT 0;
+
+-- Backfill from existing history
+UPDATE chats c
+SET last_message_id = m.id,
+    last_message_preview = CASE
+        WHEN m.content IS NOT NULL AND m.content <> '' THEN LEFT(m.content, 100)
+        WHEN m.image IS NOT NULL THEN '[Image]'
+        ELSE '' END,
+    last_activity_at = m.sent_at
+FROM (
+    SELECT DISTINCT ON (chat_id) chat_id, id, content, image, sent_at
+    FROM messages
+    ORDER BY chat_id, sent_at DESC, id DESC
+) m
+WHERE m.chat_id = c.id;
+
+UPDATE chats c
+SET user1_unread_count = (SELECT COUNT(*) FROM messages m WHERE m.chat_id = c.id AND m.recipient_id = c.user1_id AND m.read = FALSE),
+    user2_unread_count = (SELECT COUNT(*) FROM messages m WHERE m.chat_id = c.id AND m.recipient_id = c.user2_id AND m.read = FALSE);
+
+CREATE INDEX IF NOT EXISTS idx_chats_user1_activity ON chats(user1_id, last_activity_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_chats_user2_activity ON chats(user2_id, last_activity_at DESC, id DESC);
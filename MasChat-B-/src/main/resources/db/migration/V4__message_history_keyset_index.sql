@@ -0,0 +1,6 @@
+-- Keyset pagination for conversation history: (chat_id, sent_at, id) lets each page
+-- be a single index range scan instead of sorting the whole conversation.
+CREATE INDEX IF NOT EXISTS idx_messages_chat_sent_id ON messages(chat_id, sent_at DESC, id DESC);
+
+-- The composite index covers every lookup the single-column one served
+DROP INDEX IF EXISTS idx_messages_chat_id;
@@ -0,0 +1,14 @@
+-- New chats are stored as (min user id, max user id) so the send path can resolve a
+-- chat with a single equality lookup on the unique (user1_id, user2_id) index.
+-- Flip existing high-first rows (and their per-side unread counters) to match,
+-- leaving alone any pair that already has a row in canonical order.
+UPDATE chats c
+SET user1_id = c.user2_id,
+    user2_id = c.user1_id,
+    user1_unread_count = c.user2_unread_count,
+    user2_unread_count = c.user1_unread_count
+WHERE c.user1_id > c.user2_id
+  AND NOT EXISTS (
+      SELECT 1 FROM chats d
+      WHERE d.user1_id = c.user2_id AND d.user2_id = c.user1_id
+  );
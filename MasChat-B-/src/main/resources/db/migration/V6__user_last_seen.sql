@@ -0,0 +1,2 @@
+-- Last-seen time, flushed in batches by the in-memory presence service
+ALTER TABLE users ADD COLUMN IF NOT EXISTS last_seen TIMESTAMP;
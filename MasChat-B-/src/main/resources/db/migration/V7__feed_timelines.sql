@@ -0,0 +1,12 @@
+-- Home feed timelines: one feeds row per user, feed_posts holds the fanned-out post ids.
+-- feed_posts carries the post time so a page is a range scan on (feed_id, created_at, post_id).
+DELETE FROM feeds a USING feeds b WHERE a.user_id = b.user_id AND a.id > b.id;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_feeds_user_id ON feeds(user_id);
+
+ALTER TABLE feed_posts ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+UPDATE feed_posts fp SET created_at = p.created_at FROM posts p WHERE p.id = fp.post_id AND p.created_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_feed_posts_timeline ON feed_posts(feed_id, created_at DESC, post_id DESC);
+
+-- Fan-out-on-read for high-friend-count authors, and backfills, page through an author's posts
+CREATE INDEX IF NOT EXISTS idx_posts_user_created ON posts(user_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_posts_user_id;
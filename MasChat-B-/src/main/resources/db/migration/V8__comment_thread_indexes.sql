@@ -0,0 +1,8 @@
+-- Keyset paging of comment threads: top-level comments newest first per post,
+-- replies oldest first per parent.
+UPDATE comments SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE comments ALTER COLUMN created_at SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_comments_post_top_level ON comments(post_id, created_at DESC, id DESC)
+    WHERE parent_comment_id IS NULL;
+CREATE INDEX IF NOT EXISTS idx_comments_parent_created ON comments(parent_comment_id, created_at, id);
@@ -0,0 +1,25 @@
+-- Denormalized engagement counters maintained by EngagementCounters.
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS like_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS share_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS view_count BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE reels ADD COLUMN IF NOT EXISTS like_count BIGINT NOT NULL DEFAULT 0;
+UPDATE reels SET share_count = 0 WHERE share_count IS NULL;
+ALTER TABLE reels ALTER COLUMN share_count TYPE BIGINT;
+ALTER TABLE reels ALTER COLUMN share_count SET NOT NULL;
+ALTER TABLE reels ADD COLUMN IF NOT EXISTS view_count BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE stories ADD COLUMN IF NOT EXISTS like_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE stories ADD COLUMN IF NOT EXISTS share_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE stories ADD COLUMN IF NOT EXISTS view_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE posts p SET like_count = l.n FROM (SELECT post_id, COUNT(*) AS n FROM post_likes GROUP BY post_id) l WHERE l.post_id = p.id;
+UPDATE reels r SET like_count = l.n FROM (SELECT reel_id, COUNT(*) AS n FROM reel_likes GROUP BY reel_id) l WHERE l.reel_id = r.id;
+UPDATE stories s SET like_count = l.n FROM (SELECT story_id, COUNT(*) AS n FROM story_likes GROUP BY story_id) l WHERE l.story_id = s.id;
+
+-- One row per applied flush batch, so a batch retried after an ambiguous commit is not applied twice
+CREATE TABLE IF NOT EXISTS counter_flushes (
+    id UUID PRIMARY KEY,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_counter_flushes_applied_at ON counter_flushes(applied_at);
@@ -0,0 +1,154 @@
+package com.postgresql.MasChat.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.postgresql.MasChat.dto.MediaFileStatsDTO;
+import com.postgresql.MasChat.service.LocalMediaStorage;
+import com.postgresql.MasChat.service.MediaAccessStats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UploadsControllerTest {
+    private static final String BODY = "abcdefghijklmnopqrstuvwxyz";
+    private static final String HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String KEY = "media/01/" + HASH + ".mp4";
+    private static final String ETAG = "\"" + HASH + "\"";
+
+    @TempDir
+    Path dir;
+
+    private Path root;
+    private LocalMediaStorage storage;
+    private MediaAccessStats stats;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = dir.resolve("uploads");
+        storage = new LocalMediaStorage();
+        ReflectionTestUtils.setField(storage, "rootDir", root.toString());
+        storage.init();
+        stats = new MediaAccessStats();
+        ReflectionTestUtils.setField(stats, "meterRegistry", new SimpleMeterRegistry());
+
+        UploadsController controller = new UploadsController();
+        ReflectionTestUtils.setField(controller, "storage", storage);
+        ReflectionTestUtils.setField(controller, "stats", stats);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        write(KEY, BODY);
+    }
+
+    @Test
+    void servesTheWholeFileAsImmutable() throws Exception {
+        mockMvc.perform(get("/uploads/" + KEY))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BODY.length()))
+            .andExpect(content().string(BODY));
+    }
+
+    @Test
+    void servesASingleRange() throws Exception {
+        mockMvc.perform(get("/uploads/" + KEY).header(HttpHeaders.RANGE, "bytes=2-5"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/26"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+            .andExpect(content().string("cdef"));
+
+        MediaFileStatsDTO served = stats.top(1).get(0);
+        assertEquals(KEY, served.getKey());
+        assertEquals(1, served.getRangeRequests());
+        assertEquals(4, served.getBytesSent());
+    }
+
+    @Test
+    void servesASuffixRange() throws Exception {
+        mockMvc.perform(get("/uploads/" + KEY).header(HttpHeaders.RANGE, "bytes=-4"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 22-25/26"))
+            .andExpect(content().string("wxyz"));
+
+        // An open-ended range past the end is cut at the last byte
+        mockMvc.perform(get("/uploads/" + KEY).header(HttpHeaders.RANGE, "bytes=20-100"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 20-25/26"))
+            .andExpect(content().string("uvwxyz"));
+    }
+
+    @Test
+    void rejectsAnUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/uploads/" + KEY).header(HttpHeaders.RANGE, "bytes=26-30"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */26"));
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWithNotModified() throws Exception {
+        mockMvc.perform(get("/uploads/" + KEY).header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + ETAG))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+            .andExpect(content().string(""));
+
+        mockMvc.perform(get("/uploads/" + KEY).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+            .andExpect(status().isOk())
+            .andExpect(content().string(BODY));
+    }
+
+    @Test
+    void sendsTheWholeFileWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get("/uploads/" + KEY)
+                .header(HttpHeaders.RANGE, "bytes=2-5")
+                .header(HttpHeaders.IF_RANGE, "\"stale\""))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+            .andExpect(content().string(BODY));
+
+        mockMvc.perform(get("/uploads/" + KEY)
+                .header(HttpHeaders.RANGE, "bytes=2-5")
+                .header(HttpHeaders.IF_RANGE, ETAG))
+            .andExpect(status().isPartialContent())
+            .andExpect(content().string("cdef"));
+    }
+
+    @Test
+    void refusesKeysOutsideTheServedFiles() throws Exception {
+        Files.writeString(dir.resolve("outside.txt"), "secret");
+        write(".tmp/upload-1.part", "staged");
+        write(".parts/resumable-1.part", "partial");
+
+        for (String key : new String[] { "../outside.txt", ".tmp/upload-1.part", ".parts/resumable-1.part", "media/../.tmp/upload-1.part" }) {
+            assertTrue(storage.file(key).isEmpty(), key);
+            assertThrows(IllegalArgumentException.class, () -> storage.open(key), key);
+        }
+        mockMvc.perform(get("/uploads/.tmp/upload-1.part")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/.parts/resumable-1.part")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/missing.mp4")).andExpect(status().isNotFound());
+    }
+
+    private void write(String key, String body) throws Exception {
+        Path path = root.resolve(key);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.postgresql.MasChat.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+/**
+ * Fan-out throughput against a running backend, used to compare the simple broker with
+ * the STOMP relay (app.websocket.broker). Skipped unless -Dloadtest.url is given.
+ *
+ * Subscribers connect to loadtest.url and one publisher sends to a shared topic through
+ * loadtest.publishUrl (defaults to the same node). Pointing the two at different nodes
+ * in relay mode checks cross-node delivery. See LOCAL_DEVELOPMENT.md for a full run.
+ *
+ * With -Dloadtest.senderId and -Dloadtest.recipientId (existing users), chat messages are
+ * also sent through the publishing node while the recipient listens on the other, on the
+ * literal /user/{id}/queue/messages destination the clients subscribe to.
+ */
+@EnabledIfSystemProperty(named = "loadtest.url", matches = ".+")
+class BrokerFanoutLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(BrokerFanoutLoadTest.class);
+
+    @Test
+    void fanOutThroughput() throws Exception {
+        String subscribeUrl = System.getProperty("loadtest.url");
+        String publishUrl = System.getProperty("loadtest.publishUrl", subscribeUrl);
+        int subscribers = Integer.getInteger("loadtest.subscribers", 100);
+        int messages = Integer.getInteger("loadtest.messages", 1000);
+        String topic = "/topic/loadtest." + UUID.randomUUID();
+
+        WebSocketStompClient client = new WebSocketStompClient(
+            new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new StringMessageConverter());
+
+        long expected = (long) subscribers * messages;
+        CountDownLatch delivered = new CountDownLatch((int) expected);
+        AtomicLong lastDeliveryNanos = new AtomicLong();
+        List<StompSession> sessions = new ArrayList<>();
+
+        for (int i = 0; i < subscribers; i++) {
+            StompSession session = client.connectAsync(subscribeUrl, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+            session.subscribe(topic, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return String.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    lastDeliveryNanos.set(System.nanoTime());
+                    delivered.countDown();
+                }
+            });
+            sessions.add(session);
+        }
+        // SUBSCRIBE is not acknowledged by the simple broker; give the subscriptions time to land
+        Thread.sleep(2000);
+
+        StompSession publisher = client.connectAsync(publishUrl, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            publisher.send(topic, "m" + i);
+        }
+        boolean complete = delivered.await(120, TimeUnit.SECONDS);
+        long end = complete ? lastDeliveryNanos.get() : System.nanoTime();
+
+        long received = expected - delivered.getCount();
+        double seconds = (end - start) / 1_000_000_000.0;
+        logger.info("Fan-out via {} -> {}: {} subscribers x {} messages, {} delivered in {} s ({} deliveries/s)",
+            publishUrl, subscribeUrl, subscribers, messages, received,
+            String.format("%.2f", seconds), String.format("%.0f", received / seconds));
+
+        publisher.disconnect();
+        sessions.forEach(StompSession::disconnect);
+        client.stop();
+        assertEquals(expected, received, "every subscriber should receive every message");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest.recipientId", matches = "\\d+")
+    void userDestinationAcrossNodes() throws Exception {
+        String subscribeUrl = System.getProperty("loadtest.url");
+        String publishUrl = System.getProperty("loadtest.publishUrl", subscribeUrl);
+        String senderId = System.getProperty("loadtest.senderId");
+        String recipientId = System.getProperty("loadtest.recipientId");
+        int messages = Integer.getInteger("loadtest.userMessages", 100);
+
+        WebSocketStompClient client = new WebSocketStompClient(
+            new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new CompositeMessageConverter(
+            List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())));
+
+        // Recipient on one node, the way the app's chat screens subscribe
+        CountDownLatch delivered = new CountDownLatch(messages);
+        StompSession recipient = client.connectAsync(subscribeUrl, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+        recipient.subscribe("/user/" + recipientId + "/queue/messages", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                delivered.countDown();
+            }
+        });
+        Thread.sleep(2000);
+
+        // Sender on the other; the server answers with convertAndSendToUser to the recipient
+        StompSession sender = client.connectAsync(publishUrl, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < messages; i++) {
+            sender.send("/app/chat.send", Map.of("senderId", senderId, "recipientId", recipientId, "content", "loadtest " + i));
+        }
+        delivered.await(60, TimeUnit.SECONDS);
+
+        long received = messages - delivered.getCount();
+        logger.info("User destination via {} -> {}: {} of {} messages delivered", publishUrl, subscribeUrl, received, messages);
+
+        sender.disconnect();
+        recipient.disconnect();
+        client.stop();
+        assertEquals(messages, received, "the recipient should receive every message sent through the other node");
+    }
+}
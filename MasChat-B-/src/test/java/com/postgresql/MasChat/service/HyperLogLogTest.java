@@ -0,0 +1,99 @@
+package com.postgresql.MasChat.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+    // Three standard errors of a 2^11-register sketch
+    private static final double TOLERANCE = 3 * 0.023;
+
+    @Test
+    void estimatesWithinTheErrorBound() {
+        for (int n : new int[] { 1_000, 10_000, 100_000, 1_000_000 }) {
+            HyperLogLog sequential = new HyperLogLog();
+            HyperLogLog scattered = new HyperLogLog();
+            Random random = new Random(n);
+            for (int i = 0; i < n; i++) {
+                sequential.add(i + 1);
+                scattered.add(random.nextLong());
+            }
+            assertWithinBound(n, sequential.estimate());
+            assertWithinBound(n, scattered.estimate());
+        }
+    }
+
+    @Test
+    void countsSmallSetsClosely() {
+        assertEquals(0, new HyperLogLog().estimate());
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.add(1);
+        assertEquals(1, sketch.estimate());
+        // Linear counting range: off by a few register collisions at most
+        for (int i = 2; i <= 100; i++) {
+            sketch.add(i);
+            assertTrue(Math.abs(sketch.estimate() - i) <= 5, "estimate " + sketch.estimate() + " for " + i);
+        }
+    }
+
+    @Test
+    void ignoresRepeatedValues() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5_000; i++) sketch.add(i);
+        byte[] before = sketch.toBytes();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5_000; i++) sketch.add(i);
+        }
+        assertArrayEquals(before, sketch.toBytes());
+    }
+
+    @Test
+    void mergesToTheSketchOfTheUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 60_000; i++) {
+            (i < 40_000 ? left : right).add(i);
+            if (i >= 20_000) right.add(i);
+            union.add(i);
+        }
+
+        assertTrue(left.merge(right));
+        assertArrayEquals(union.toBytes(), left.toBytes());
+        assertWithinBound(60_000, left.estimate());
+
+        // Nothing new: no register grows, so callers can skip the write
+        assertFalse(left.merge(right));
+        assertFalse(left.merge(HyperLogLog.fromBytes(left.toBytes())));
+        assertFalse(left.merge(null));
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 10_000; i++) sketch.add(i * 31L);
+        byte[] bytes = sketch.toBytes();
+
+        HyperLogLog copy = HyperLogLog.fromBytes(bytes);
+        assertEquals(sketch.estimate(), copy.estimate());
+        assertArrayEquals(bytes, copy.toBytes());
+
+        // The copy owns its registers
+        bytes[0] = 60;
+        assertEquals(sketch.estimate(), copy.estimate());
+
+        assertNull(HyperLogLog.fromBytes(null));
+        assertNull(HyperLogLog.fromBytes(new byte[16]));
+    }
+
+    private static void assertWithinBound(long expected, long estimate) {
+        double error = Math.abs(estimate - expected) / (double) expected;
+        assertTrue(error <= TOLERANCE, "estimate " + estimate + " for " + expected + " is off by " + error);
+    }
+}
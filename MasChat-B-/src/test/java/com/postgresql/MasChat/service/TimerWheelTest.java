@@ -0,0 +1,85 @@
+package com.postgresql.MasChat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+    private static final long TICK = 1000;
+    private static final int BUCKETS = 8;
+    private static final long REVOLUTION = TICK * BUCKETS;
+
+    @Test
+    void firesAtTheDeadlineAndNotBefore() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, BUCKETS, 0);
+        wheel.schedule("a", 2500);
+        wheel.schedule("b", 2999);
+
+        assertEquals(List.of(), advance(wheel, 2499));
+        // Later deadlines in the current tick stay put until they are due
+        assertEquals(List.of("a"), advance(wheel, 2500));
+        assertEquals(List.of(), advance(wheel, 2998));
+        assertEquals(List.of("b"), advance(wheel, 2999));
+        assertEquals(List.of(), advance(wheel, 5000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void holdsDeadlinesPastOneRevolution() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, BUCKETS, 0);
+        wheel.schedule("near", 2500);
+        wheel.schedule("next", 2500 + REVOLUTION);
+        wheel.schedule("later", 2500 + 3 * REVOLUTION);
+
+        assertEquals(List.of("near"), advance(wheel, 2500));
+        assertEquals(List.of(), advance(wheel, 2500 + REVOLUTION - 1));
+        assertEquals(List.of("next"), advance(wheel, 2500 + REVOLUTION));
+        assertEquals(List.of(), advance(wheel, 2500 + 2 * REVOLUTION));
+        assertEquals(List.of("later"), advance(wheel, 2500 + 3 * REVOLUTION));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void catchesUpAfterAStall() {
+        TimerWheel<Long> wheel = new TimerWheel<>(TICK, BUCKETS, 0);
+        for (long deadline = 100; deadline < 4 * REVOLUTION; deadline += 700) wheel.schedule(deadline, deadline);
+        int scheduled = wheel.size();
+
+        // One advance long after the last one fires everything due, each item once
+        long now = 2 * REVOLUTION + 3500;
+        List<Long> fired = advance(wheel, now);
+        List<Long> expected = new ArrayList<>();
+        for (long deadline = 100; deadline <= now; deadline += 700) expected.add(deadline);
+        fired.sort(null);
+        assertEquals(expected, fired);
+        assertEquals(scheduled - expected.size(), wheel.size());
+
+        assertEquals(List.of(), advance(wheel, now));
+        List<Long> rest = advance(wheel, 10 * REVOLUTION);
+        assertEquals(scheduled - expected.size(), rest.size());
+        rest.forEach(deadline -> assertTrue(deadline > now));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesOverdueItemsOnTheNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, BUCKETS, 0);
+        advance(wheel, 5 * TICK);
+        wheel.schedule("overdue", 1000);
+        wheel.schedule("past revolution", 5 * TICK - REVOLUTION - 1);
+
+        List<String> fired = advance(wheel, 5 * TICK + 1);
+        fired.sort(null);
+        assertEquals(List.of("overdue", "past revolution"), fired);
+    }
+
+    private static <T> List<T> advance(TimerWheel<T> wheel, long now) {
+        List<T> fired = new ArrayList<>();
+        wheel.advance(now, fired::add);
+        return fired;
+    }
+}
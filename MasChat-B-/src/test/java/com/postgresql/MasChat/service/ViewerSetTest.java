@@ -0,0 +1,123 @@
+package com.postgresql.MasChat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class ViewerSetTest {
+    // Ids sharing one 16-bit container
+    private static final long BASE = 3L << 16;
+
+    @Test
+    void promotesToBitmapPastArrayMax() {
+        ViewerSet set = new ViewerSet();
+        for (int i = 0; i < 4096; i++) assertTrue(set.add(BASE + 2 * i));
+        assertEquals(4096, set.cardinality());
+
+        // The 4097th value converts the container; everything added before must survive
+        assertTrue(set.add(BASE + 1));
+        assertTrue(set.add(BASE + 65535));
+        assertEquals(4098, set.cardinality());
+        for (int i = 0; i < 4096; i++) assertTrue(set.contains(BASE + 2 * i));
+        assertTrue(set.contains(BASE + 1));
+        assertTrue(set.contains(BASE + 65535));
+        assertFalse(set.contains(BASE + 3));
+        assertFalse(set.contains(BASE + 65536));
+
+        assertFalse(set.add(BASE + 2));
+        assertFalse(set.add(BASE + 1));
+        assertEquals(4098, set.cardinality());
+        assertEquals(List.of(BASE, BASE + 1, BASE + 2, BASE + 4), set.first(4));
+    }
+
+    @Test
+    void keepsIdsInSeparateContainers() {
+        ViewerSet set = new ViewerSet();
+        long[] ids = { 5, 65535, 65536, 65541, 7L << 16, (1L << 32) + 7, Long.MAX_VALUE };
+        for (int i = ids.length - 1; i >= 0; i--) assertTrue(set.add(ids[i]));
+
+        assertEquals(ids.length, set.cardinality());
+        for (long id : ids) assertTrue(set.contains(id));
+        assertFalse(set.contains(6));
+        assertFalse(set.contains(65537));
+        assertFalse(set.contains(1L << 32));
+        assertEquals(List.of(5L, 65535L, 65536L, 65541L, 7L << 16, (1L << 32) + 7, Long.MAX_VALUE),
+            set.first(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void firstReturnsAscendingIdsUpToTheLimit() {
+        ViewerSet set = new ViewerSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long id = random.nextInt(4 << 16);
+            assertEquals(expected.add(id), set.add(id));
+        }
+
+        assertEquals(expected.size(), set.cardinality());
+        assertEquals(new ArrayList<>(expected).subList(0, 10), set.first(10));
+        assertEquals(new ArrayList<>(expected), set.first(Integer.MAX_VALUE));
+        assertEquals(List.of(), set.first(0));
+        assertEquals(List.of(), new ViewerSet().first(10));
+    }
+
+    @Test
+    void roundTripsArrayAndBitmapContainers() {
+        ViewerSet set = new ViewerSet();
+        for (int i = 0; i < 5000; i++) set.add(BASE + i);         // bitmap
+        for (int i = 0; i < 100; i++) set.add((9L << 16) + 3 * i);  // array
+        set.add(1L << 40);                                         // single value
+
+        ViewerSet copy = ViewerSet.fromBytes(set.toBytes());
+        assertEquals(set.cardinality(), copy.cardinality());
+        assertEquals(set.first(Integer.MAX_VALUE), copy.first(Integer.MAX_VALUE));
+
+        // A decoded set keeps accepting ids in both kinds of container
+        assertTrue(copy.add((9L << 16) + 1));
+        assertFalse(copy.add((9L << 16) + 3));
+        assertTrue(copy.add(BASE + 6000));
+        assertFalse(copy.add(BASE + 10));
+        assertEquals(set.cardinality() + 2, copy.cardinality());
+    }
+
+    @Test
+    void decodesMissingOrUnknownBytesAsEmpty() {
+        assertTrue(ViewerSet.fromBytes(null).isEmpty());
+        assertTrue(ViewerSet.fromBytes(new byte[0]).isEmpty());
+        assertTrue(ViewerSet.fromBytes(new byte[] { 99, 0, 0, 0, 1 }).isEmpty());
+        assertTrue(ViewerSet.fromBytes(new ViewerSet().toBytes()).isEmpty());
+    }
+
+    @Test
+    void mergesCountingSharedIdsOnce() {
+        ViewerSet stored = new ViewerSet();
+        ViewerSet pending = new ViewerSet();
+        for (int i = 0; i < 3000; i++) stored.add(BASE + i);
+        for (int i = 1500; i < 4500; i++) pending.add(BASE + i);
+        pending.add(12);
+        pending.add(12L << 16);
+
+        // As a flush does: decode the stored row, merge what was buffered, encode again
+        ViewerSet merged = ViewerSet.fromBytes(stored.toBytes());
+        merged.addAll(pending);
+        merged.addAll(pending);
+        merged.addAll(null);
+
+        assertEquals(4502, merged.cardinality());
+        List<Long> expected = new ArrayList<>();
+        expected.add(12L);
+        for (int i = 0; i < 4500; i++) expected.add(BASE + i);
+        expected.add(12L << 16);
+        Collections.sort(expected);
+        assertEquals(expected, ViewerSet.fromBytes(merged.toBytes()).first(Integer.MAX_VALUE));
+    }
+}